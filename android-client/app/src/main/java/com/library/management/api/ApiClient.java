@@ -1,30 +1,123 @@
 package com.library.management.api;
 
+import android.app.Activity;
+import android.app.Application;
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.library.management.model.ModelTypeAdapterFactory;
+import okhttp3.Cache;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
+import okhttp3.Request;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 public class ApiClient {
     private static final String PREF_NAME = "library_settings";
+    // 可以保存多个服务器地址，用逗号分隔，第一个为首选
     private static final String KEY_SERVER_URL = "server_url";
     private static final String DEFAULT_SERVER_URL = "http://10.0.2.2:3001/"; // Android模拟器访问本机
+    // HTTP磁盘缓存：服务器返回 ETag 后，刷新时带 If-None-Match 验证，未变化只返回304
+    private static final String HTTP_CACHE_DIR = "http";
+    private static final long HTTP_CACHE_SIZE = 10 * 1024 * 1024;
     
     private static ApiClient instance;
-    private ApiService apiService;
-    private Retrofit retrofit;
-    private Context context;
-    private String baseUrl;
+    // OkHttpClient、Gson、Retrofit 在进程内只创建一次，切换服务器时只改写请求地址
+    private final ApiService apiService;
+    private final OkHttpClient okHttpClient;
+    private final Gson gson;
+    private final EndpointSelector endpointSelector;
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile List<String> serverUrls;
+    // 合并相同GET请求
+    private final CoalescingCallAdapterFactory coalescingFactory;
+    // 按接口统计压缩前后的响应字节数
+    private final TransferStats transferStats = new TransferStats();
+    // 列表和同步接口优先请求 CBOR，解析用同一套 TypeAdapter
+    private final CborConverterFactory cborConverterFactory;
     
     private ApiClient(Context context) {
         this.context = context.getApplicationContext();
-        this.baseUrl = getServerUrl();
-        initRetrofit();
+        List<String> urls = parseServerUrls(getServerUrl());
+        this.serverUrls = urls.isEmpty() ? parseServerUrls(DEFAULT_SERVER_URL) : urls;
+        this.endpointSelector = new EndpointSelector(serverUrls);
+        this.coalescingFactory = new CoalescingCallAdapterFactory(endpointSelector);
+        
+        // 创建Gson实例
+        // 模型类使用手写的 TypeAdapter，不走反射
+        gson = new GsonBuilder()
+                .registerTypeAdapterFactory(new ModelTypeAdapterFactory())
+                .setLenient()
+                .create();
+        cborConverterFactory = new CborConverterFactory(gson);
+        
+        okHttpClient = createOkHttpClient();
+        endpointSelector.start(okHttpClient);
+        pauseProbesInBackground();
+        
+        // 创建Retrofit实例，使用占位地址，实际地址由 BaseUrlInterceptor 填入
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(BaseUrlInterceptor.PLACEHOLDER)
+                .client(okHttpClient)
+                .addCallAdapterFactory(coalescingFactory)
+                .addConverterFactory(cborConverterFactory)
+                .addConverterFactory(GsonConverterFactory.create(gson))
+                .build();
+        
+        // 创建API服务
+        apiService = retrofit.create(ApiService.class);
+    }
+    
+    // 没有已启动的 Activity 时应用在后台，暂停服务器探测
+    private void pauseProbesInBackground() {
+        if (!(context instanceof Application)) return;
+        ((Application) context).registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+            private int started;
+            
+            @Override
+            public void onActivityStarted(@NonNull Activity activity) {
+                started++;
+                endpointSelector.setActive(true);
+            }
+            
+            @Override
+            public void onActivityStopped(@NonNull Activity activity) {
+                // ApiClient 可能在某个 Activity 启动之后才创建，计数不会低于0
+                started = Math.max(0, started - 1);
+                endpointSelector.setActive(started > 0);
+            }
+            
+            @Override
+            public void onActivityCreated(@NonNull Activity activity, @Nullable Bundle savedInstanceState) {}
+            
+            @Override
+            public void onActivityResumed(@NonNull Activity activity) {}
+            
+            @Override
+            public void onActivityPaused(@NonNull Activity activity) {}
+            
+            @Override
+            public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {}
+            
+            @Override
+            public void onActivityDestroyed(@NonNull Activity activity) {}
+        });
     }
     
     public static synchronized ApiClient getInstance(Context context) {
@@ -34,55 +127,92 @@ public class ApiClient {
         return instance;
     }
     
-    private void initRetrofit() {
-        // 创建Gson实例
-        Gson gson = new GsonBuilder()
-                .setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'")
-                .setLenient()
-                .create();
+    private OkHttpClient createOkHttpClient() {
+        // HTTP磁盘缓存，同一个缓存目录只能有一个 Cache 实例
+        Cache httpCache = new Cache(new File(context.getCacheDir(), HTTP_CACHE_DIR), HTTP_CACHE_SIZE);
         
         // 创建HTTP日志拦截器
         HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
-        loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
+        // BODY 级别会把整个响应体读进内存再记录，流式解析就失效了；调试版只记录请求头
+        boolean debuggable = (context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        loggingInterceptor.setLevel(debuggable ? HttpLoggingInterceptor.Level.HEADERS : HttpLoggingInterceptor.Level.NONE);
         
         // 创建OkHttp客户端
-        OkHttpClient okHttpClient = new OkHttpClient.Builder()
+        // 幂等键先加上，转到备用服务器重发时沿用同一个键；之后的拦截器、缓存和连接池看到的都是真实地址
+        return new OkHttpClient.Builder()
+                .cache(httpCache)
+                .addInterceptor(new IdempotencyInterceptor())
+                // 写请求使之后的 GET 不再合并到写之前发出的调用上
+                .addInterceptor(coalescingFactory.invalidationInterceptor())
+                .addInterceptor(new BaseUrlInterceptor(endpointSelector))
+                .addInterceptor(cborConverterFactory.acceptInterceptor())
+                .addInterceptor(transferStats.applicationInterceptor())
                 .addInterceptor(loggingInterceptor)
+                // OkHttp 自动带 Accept-Encoding: gzip 并解压，网络拦截器看到的是解压前的响应
+                .addNetworkInterceptor(transferStats.networkInterceptor())
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
                 .writeTimeout(30, TimeUnit.SECONDS)
                 .build();
-        
-        // 创建Retrofit实例
-        retrofit = new Retrofit.Builder()
-                .baseUrl(baseUrl)
-                .client(okHttpClient)
-                .addConverterFactory(GsonConverterFactory.create(gson))
-                .build();
-        
-        // 创建API服务
-        apiService = retrofit.create(ApiService.class);
     }
     
     public ApiService getApiService() {
         return apiService;
     }
     
+    public CoalescingCallAdapterFactory getCoalescingStats() {
+        return coalescingFactory;
+    }
+    
+    public TransferStats getTransferStats() {
+        return transferStats;
+    }
+    
+    public OkHttpClient getOkHttpClient() {
+        return okHttpClient;
+    }
+    
+    public Gson getGson() {
+        return gson;
+    }
+    
+    public EndpointSelector getEndpointSelector() {
+        return endpointSelector;
+    }
+    
+    // 当前使用的服务器地址
     public String getBaseUrl() {
-        return baseUrl;
+        return endpointSelector.current().getUrl().toString();
     }
     
+    public List<String> getServerUrls() {
+        return serverUrls;
+    }
+    
+    /**
+     * 更新服务器地址，可以用逗号分隔多个地址，第一个为首选，其余在首选不可用时自动接替。
+     */
     public void updateServerUrl(String newUrl) {
-        if (newUrl != null && !newUrl.equals(baseUrl)) {
+        if (newUrl == null) return;
+        List<String> urls = parseServerUrls(newUrl);
+        if (urls.isEmpty() || urls.equals(serverUrls)) return;
+        
+        endpointSelector.setEndpoints(urls);
+        this.serverUrls = urls;
+        saveServerUrl(TextUtils.join(",", urls));
+    }
+    
+    private static List<String> parseServerUrls(String value) {
+        List<String> urls = new ArrayList<>();
+        for (String part : value.split("[,\\s]+")) {
+            if (part.isEmpty()) continue;
             // 确保URL以/结尾
-            if (!newUrl.endsWith("/")) {
-                newUrl += "/";
+            String url = part.endsWith("/") ? part : part + "/";
+            if (HttpUrl.parse(url) != null && !urls.contains(url)) {
+                urls.add(url);
             }
-            
-            this.baseUrl = newUrl;
-            saveServerUrl(newUrl);
-            initRetrofit(); // 重新初始化Retrofit
         }
+        return urls;
     }
     
     private String getServerUrl() {
@@ -115,6 +245,37 @@ public class ApiClient {
         });
     }
     
+    // 测试候选服务器，不切换当前地址；与正式请求共用 OkHttpClient 和连接池
+    public void testConnection(String serverUrl, ConnectionCallback callback) {
+        HttpUrl base = HttpUrl.parse(serverUrl.endsWith("/") ? serverUrl : serverUrl + "/");
+        HttpUrl healthUrl = base != null ? base.resolve("api/health") : null;
+        if (healthUrl == null) {
+            callback.onError("无效的服务器地址");
+            return;
+        }
+        
+        Request request = new Request.Builder().url(healthUrl).build();
+        okHttpClient.newCall(request).enqueue(new okhttp3.Callback() {
+            @Override
+            public void onResponse(okhttp3.Call call, okhttp3.Response response) {
+                int code = response.code();
+                response.close();
+                mainHandler.post(() -> {
+                    if (code >= 200 && code < 300) {
+                        callback.onSuccess();
+                    } else {
+                        callback.onError("服务器响应错误: " + code);
+                    }
+                });
+            }
+            
+            @Override
+            public void onFailure(okhttp3.Call call, IOException e) {
+                mainHandler.post(() -> callback.onError("连接失败: " + e.getMessage()));
+            }
+        });
+    }
+    
     // 连接测试回调接口
     public interface ConnectionCallback {
         void onSuccess();
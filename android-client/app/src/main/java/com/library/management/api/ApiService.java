@@ -1,12 +1,19 @@
 package com.library.management.api;
 
 import com.library.management.model.*;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.*;
 import java.util.List;
 
 public interface ApiService {
     
+    // 列表页只渲染这些列，传给 fields 参数可以省掉简介、封面等大字段；传null返回全部列
+    String BOOK_LIST_FIELDS = "id,title,author,isbn,category_id,category_name,status,room,shelf,row,column,number,cover_url";
+    // getBorrowPage 的借阅记录列和图书列
+    String BORROW_PAGE_FIELDS = "id,book_id,borrower,borrow_date,due_date,return_date,status";
+    String BORROW_PAGE_BOOK_FIELDS = "id,title,author,isbn,status";
+    
     // 图书相关API
     @GET("api/books")
     Call<ApiResponse<List<Book>>> getBooks(
@@ -17,11 +24,56 @@ public interface ApiService {
         @Query("status") String status
     );
     
+    @GET("api/books")
+    Call<ApiResponse<List<Book>>> getBooks(
+        @Query("page") Integer page,
+        @Query("limit") Integer limit,
+        @Query("search") String search,
+        @Query("category") String category,
+        @Query("status") String status,
+        @Query("fields") String fields
+    );
+    
+    // 游标分页，cursor传null获取第一页
+    @GET("api/books/cursor")
+    Call<ApiResponse<BookPage>> getBooksPage(
+        @Query("cursor") String cursor,
+        @Query("limit") Integer limit,
+        @Query("search") String search,
+        @Query("category") String category,
+        @Query("status") String status,
+        @Query("include_total") Boolean includeTotal
+    );
+    
+    @GET("api/books/cursor")
+    Call<ApiResponse<BookPage>> getBooksPage(
+        @Query("cursor") String cursor,
+        @Query("limit") Integer limit,
+        @Query("search") String search,
+        @Query("category") String category,
+        @Query("status") String status,
+        @Query("include_total") Boolean includeTotal,
+        @Query("fields") String fields
+    );
+    
+    // 游标分页的大页用 StreamingListReader 边下载边解析，响应体不整体缓存，整页下载完之前就能显示第一批
+    @Streaming
+    @GET("api/books/cursor")
+    Call<ResponseBody> streamBooksPage(
+        @Query("cursor") String cursor,
+        @Query("limit") Integer limit,
+        @Query("search") String search,
+        @Query("category") String category,
+        @Query("status") String status,
+        @Query("fields") String fields
+    );
+    
     @GET("api/books/{id}")
     Call<ApiResponse<Book>> getBook(@Path("id") int id);
     
+    // 写操作可带 Idempotency-Key，同一个键重试时服务器返回第一次的结果
     @POST("api/books")
-    Call<ApiResponse<Book>> createBook(@Body Book book);
+    Call<ApiResponse<Book>> createBook(@Body Book book, @Header("Idempotency-Key") String idempotencyKey);
     
     @PUT("api/books/{id}")
     Call<ApiResponse<Book>> updateBook(@Path("id") int id, @Body Book book);
@@ -57,14 +109,28 @@ public interface ApiService {
         @Query("borrower") String borrower
     );
     
+    // 借阅记录只带 book_id，图书去重后放在 BorrowPage 的 books 字典里，由 BorrowPage 解析成共用的 Book
+    @GET("api/borrows?include=books")
+    Call<ApiResponse<BorrowPage>> getBorrowPage(
+        @Query("page") Integer page,
+        @Query("limit") Integer limit,
+        @Query("status") String status,
+        @Query("borrower") String borrower,
+        @Query("fields") String fields,
+        @Query("book_fields") String bookFields
+    );
+    
     @GET("api/borrows/{id}")
     Call<ApiResponse<Borrow>> getBorrow(@Path("id") int id);
     
     @POST("api/borrows")
-    Call<ApiResponse<Borrow>> createBorrow(@Body BorrowRequest borrowRequest);
+    Call<ApiResponse<Borrow>> createBorrow(
+        @Body BorrowRequest borrowRequest,
+        @Header("Idempotency-Key") String idempotencyKey
+    );
     
     @PUT("api/borrows/{id}/return")
-    Call<ApiResponse<Borrow>> returnBook(@Path("id") int id);
+    Call<ApiResponse<Borrow>> returnBook(@Path("id") int id, @Header("Idempotency-Key") String idempotencyKey);
     
     @DELETE("api/borrows/{id}")
     Call<ApiResponse<Void>> deleteBorrow(@Path("id") int id);
@@ -79,6 +145,13 @@ public interface ApiService {
     @GET("api/statistics/borrows")
     Call<ApiResponse<Statistics>> getBorrowStatistics();
     
+    // 增量同步API，since传0获取全部数据
+    @GET("api/sync/changes")
+    Call<ApiResponse<SyncChanges>> getChanges(
+        @Query("since") long since,
+        @Query("limit") Integer limit
+    );
+    
     // ISBN信息查询API
     @GET("api/isbn/{isbn}")
     Call<ApiResponse<Book>> getIsbnInfo(@Path("isbn") String isbn);
@@ -0,0 +1,78 @@
+package com.library.management.api;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.List;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 把发往占位地址的请求改写到 EndpointSelector 选出的服务器，失败时转到下一个服务器。
+ * Retrofit 固定使用占位地址，切换服务器只需更新服务器列表，OkHttpClient、连接池和 Gson 都不用重建。
+ * 直接使用完整地址发出的请求（例如测试候选服务器、健康探测）不做改写。
+ */
+public class BaseUrlInterceptor implements Interceptor {
+
+    static final HttpUrl PLACEHOLDER = HttpUrl.get("http://library.invalid/");
+
+    private final EndpointSelector selector;
+
+    public BaseUrlInterceptor(EndpointSelector selector) {
+        this.selector = selector;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        HttpUrl url = request.url();
+        if (!url.host().equals(PLACEHOLDER.host())) {
+            return chain.proceed(request);
+        }
+
+        // 去掉占位地址的前缀后按服务器地址解析，保留服务器地址中的路径前缀
+        String relative = url.encodedPath().substring(PLACEHOLDER.encodedPath().length());
+        if (url.encodedQuery() != null) {
+            relative += "?" + url.encodedQuery();
+        }
+        boolean readOnly = "GET".equals(request.method()) || "HEAD".equals(request.method());
+
+        List<EndpointSelector.Endpoint> candidates = selector.candidates();
+        for (int i = 0; ; i++) {
+            EndpointSelector.Endpoint endpoint = candidates.get(i);
+            boolean last = i == candidates.size() - 1;
+            HttpUrl target = endpoint.getUrl().resolve(relative);
+            if (target == null) {
+                throw new IOException("无效的请求地址: " + endpoint.getUrl() + relative);
+            }
+
+            Response response;
+            try {
+                response = chain.proceed(request.newBuilder().url(target).build());
+            } catch (IOException e) {
+                selector.record(endpoint, false);
+                // 写请求只在连接没建立时转移，请求可能已经到达服务器时不能换一台重发
+                if (last || chain.call().isCanceled() || !(readOnly || notDelivered(e))) {
+                    throw e;
+                }
+                continue;
+            }
+
+            boolean serverError = response.code() >= 500;
+            selector.record(endpoint, !serverError);
+            if (!serverError || !readOnly || last) {
+                return response;
+            }
+            response.close();
+        }
+    }
+
+    private static boolean notDelivered(IOException e) {
+        return e instanceof ConnectException
+                || e instanceof UnknownHostException
+                || e instanceof NoRouteToHostException;
+    }
+}
@@ -0,0 +1,64 @@
+package com.library.management.api;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * 按响应的 Content-Type 选择解析方式：application/cbor 用 CborReader 交给同一套 TypeAdapter，
+ * 其余响应交给后面的 Gson 转换器按 JSON 解析。需要放在 GsonConverterFactory 之前添加。
+ * 请求头由 {@link #acceptInterceptor()} 添加，服务器不支持 CBOR 的接口照常返回 JSON。
+ */
+public class CborConverterFactory extends Converter.Factory {
+
+    public static final String CBOR_TYPE = "application/cbor";
+    // 同时接受 JSON，服务器可以只对部分接口返回 CBOR
+    private static final String ACCEPT = CBOR_TYPE + ", application/json;q=0.9";
+
+    private final Gson gson;
+
+    public CborConverterFactory(Gson gson) {
+        this.gson = gson;
+    }
+
+    public static boolean isCbor(ResponseBody body) {
+        MediaType type = body.contentType();
+        return type != null && "cbor".equalsIgnoreCase(type.subtype());
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        Converter<ResponseBody, ?> json = retrofit.nextResponseBodyConverter(this, type, annotations);
+        TypeAdapter<?> adapter = gson.getAdapter(TypeToken.get(type));
+        return body -> {
+            if (!isCbor(body)) {
+                return json.convert(body);
+            }
+            try (CborReader reader = new CborReader(body.source())) {
+                return adapter.read(reader);
+            }
+        };
+    }
+
+    /**
+     * 给没有指定 Accept 的 GET 请求声明优先接受 CBOR；写请求和错误响应仍按 JSON 处理。
+     */
+    public Interceptor acceptInterceptor() {
+        return chain -> {
+            Request request = chain.request();
+            if (!"GET".equals(request.method()) || request.header("Accept") != null) {
+                return chain.proceed(request);
+            }
+            return chain.proceed(request.newBuilder().header("Accept", ACCEPT).build());
+        };
+    }
+}
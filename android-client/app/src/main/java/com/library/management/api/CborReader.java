@@ -0,0 +1,398 @@
+package com.library.management.api;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import okio.BufferedSource;
+
+/**
+ * 以 JsonReader 的接口逐项读取 CBOR（RFC 8949）数据，手写的 TypeAdapter 不用改就能解析 CBOR 响应。
+ * 边读边解析，不建中间树；整数直接按二进制读取，不用逐字符转换。
+ * 只支持服务器会输出的子集：定长数组和映射、整数、浮点数、字符串、布尔值和 null，标签会被忽略。
+ */
+public class CborReader extends JsonReader {
+
+    private static final Reader UNUSED_READER = new StringReader("");
+    private static final int MAX_DEPTH = 64;
+
+    private final BufferedSource source;
+
+    // 每层容器剩余的项数，映射按键和值各算一项
+    private final long[] remaining = new long[MAX_DEPTH];
+    private final boolean[] inMap = new boolean[MAX_DEPTH];
+    private int depth;
+    private boolean documentDone;
+
+    // peek() 已读出类型头、尚未消费的值
+    private JsonToken peeked;
+    private long peekedArgument;
+    private double peekedDouble;
+    private boolean peekedIsDouble;
+    // 字符串按数字读取失败时文本已经读出，暂存起来，之后的 nextString 或 skipValue 直接使用
+    private String peekedText;
+
+    public CborReader(BufferedSource source) {
+        super(UNUSED_READER);
+        this.source = source;
+    }
+
+    @Override
+    public JsonToken peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+        if (depth > 0 && remaining[depth - 1] == 0) {
+            peeked = inMap[depth - 1] ? JsonToken.END_OBJECT : JsonToken.END_ARRAY;
+            return peeked;
+        }
+        if (depth == 0 && documentDone) {
+            peeked = JsonToken.END_DOCUMENT;
+            return peeked;
+        }
+
+        int initial;
+        do {
+            initial = source.readByte() & 0xff;
+            // 标签（major 6）只是对后面值的注解，跳过参数后读实际的值
+            if (initial >> 5 == 6) {
+                readArgument(initial & 0x1f);
+            }
+        } while (initial >> 5 == 6);
+
+        int major = initial >> 5;
+        int info = initial & 0x1f;
+        peekedIsDouble = false;
+        switch (major) {
+            case 0:
+            case 1:
+                peekedArgument = readArgument(info);
+                if (peekedArgument < 0) {
+                    // 超出 long 范围的整数按浮点数处理
+                    peekedIsDouble = true;
+                    peekedDouble = major == 0 ? unsignedToDouble(peekedArgument) : -1 - unsignedToDouble(peekedArgument);
+                } else if (major == 1) {
+                    peekedArgument = -1 - peekedArgument;
+                }
+                peeked = JsonToken.NUMBER;
+                break;
+            case 2:
+            case 3:
+                peekedArgument = readArgument(info);
+                peeked = isNamePosition() ? JsonToken.NAME : JsonToken.STRING;
+                break;
+            case 4:
+                peekedArgument = readArgument(info);
+                peeked = JsonToken.BEGIN_ARRAY;
+                break;
+            case 5:
+                peekedArgument = readArgument(info);
+                peeked = JsonToken.BEGIN_OBJECT;
+                break;
+            default:
+                peeked = peekSimple(info);
+                break;
+        }
+        if (isNamePosition() && peeked != JsonToken.NAME) {
+            throw new IOException("CBOR map key must be a string: " + peeked);
+        }
+        return peeked;
+    }
+
+    private JsonToken peekSimple(int info) throws IOException {
+        switch (info) {
+            case 20:
+                peekedArgument = 0;
+                return JsonToken.BOOLEAN;
+            case 21:
+                peekedArgument = 1;
+                return JsonToken.BOOLEAN;
+            case 22:
+            case 23:
+                return JsonToken.NULL;
+            case 25:
+                peekedDouble = halfToDouble(source.readShort() & 0xffff);
+                break;
+            case 26:
+                peekedDouble = Float.intBitsToFloat(source.readInt());
+                break;
+            case 27:
+                peekedDouble = Double.longBitsToDouble(source.readLong());
+                break;
+            default:
+                throw new IOException("Unsupported CBOR simple value: " + info);
+        }
+        peekedIsDouble = true;
+        return JsonToken.NUMBER;
+    }
+
+    private long readArgument(int info) throws IOException {
+        if (info < 24) return info;
+        switch (info) {
+            case 24: return source.readByte() & 0xffL;
+            case 25: return source.readShort() & 0xffffL;
+            case 26: return source.readInt() & 0xffffffffL;
+            case 27: return source.readLong();
+            default:
+                // 31 为不定长，服务器不会输出
+                throw new IOException("Unsupported CBOR length: " + info);
+        }
+    }
+
+    private boolean isNamePosition() {
+        // 映射中剩余项数为偶数时下一项是键
+        return depth > 0 && inMap[depth - 1] && remaining[depth - 1] % 2 == 0;
+    }
+
+    private void expect(JsonToken expected) throws IOException {
+        JsonToken token = peek();
+        if (token != expected) {
+            throw new IllegalStateException("Expected " + expected + " but was " + token);
+        }
+    }
+
+    // 当前值读完，计入所在容器
+    private void consumed() {
+        peeked = null;
+        if (depth > 0) {
+            remaining[depth - 1]--;
+        } else {
+            documentDone = true;
+        }
+    }
+
+    private void push(boolean map, long items) throws IOException {
+        if (depth == MAX_DEPTH) {
+            throw new IOException("CBOR nesting too deep");
+        }
+        consumed();
+        inMap[depth] = map;
+        remaining[depth] = items;
+        depth++;
+    }
+
+    private void pop() {
+        peeked = null;
+        depth--;
+        if (depth == 0) {
+            documentDone = true;
+        }
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        expect(JsonToken.BEGIN_ARRAY);
+        push(false, peekedArgument);
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        expect(JsonToken.END_ARRAY);
+        pop();
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        expect(JsonToken.BEGIN_OBJECT);
+        push(true, peekedArgument * 2);
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        expect(JsonToken.END_OBJECT);
+        pop();
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        JsonToken token = peek();
+        return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY && token != JsonToken.END_DOCUMENT;
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        expect(JsonToken.NAME);
+        String name = readText();
+        consumed();
+        return name;
+    }
+
+    @Override
+    public String nextString() throws IOException {
+        JsonToken token = peek();
+        String value;
+        if (token == JsonToken.STRING) {
+            value = readText();
+        } else if (token == JsonToken.NUMBER) {
+            value = peekedIsDouble ? Double.toString(peekedDouble) : Long.toString(peekedArgument);
+        } else {
+            throw new IllegalStateException("Expected a string but was " + token);
+        }
+        consumed();
+        return value;
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        expect(JsonToken.BOOLEAN);
+        boolean value = peekedArgument != 0;
+        consumed();
+        return value;
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        expect(JsonToken.NULL);
+        consumed();
+    }
+
+    @Override
+    public double nextDouble() throws IOException {
+        JsonToken token = peek();
+        double value;
+        if (token == JsonToken.NUMBER) {
+            value = peekedIsDouble ? peekedDouble : peekedArgument;
+        } else if (token == JsonToken.STRING) {
+            // 与 JsonReader 一样接受数字字符串；解析失败时不消费，调用方可以改用 nextString
+            value = Double.parseDouble(peekText());
+        } else {
+            throw new IllegalStateException("Expected a double but was " + token);
+        }
+        consumed();
+        peekedText = null;
+        return value;
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        JsonToken token = peek();
+        long value;
+        if (token == JsonToken.NUMBER) {
+            if (!peekedIsDouble) {
+                value = peekedArgument;
+            } else if (peekedDouble == (long) peekedDouble) {
+                value = (long) peekedDouble;
+            } else {
+                throw new NumberFormatException("Expected a long but was " + peekedDouble);
+            }
+        } else if (token == JsonToken.STRING) {
+            value = Long.parseLong(peekText());
+        } else {
+            throw new IllegalStateException("Expected a long but was " + token);
+        }
+        consumed();
+        peekedText = null;
+        return value;
+    }
+
+    @Override
+    public int nextInt() throws IOException {
+        JsonToken token = peek();
+        long value;
+        if (token == JsonToken.NUMBER) {
+            if (!peekedIsDouble) {
+                value = peekedArgument;
+            } else if (peekedDouble == (int) peekedDouble) {
+                value = (int) peekedDouble;
+            } else {
+                throw new NumberFormatException("Expected an int but was " + peekedDouble);
+            }
+        } else if (token == JsonToken.STRING) {
+            value = Long.parseLong(peekText());
+        } else {
+            throw new IllegalStateException("Expected an int but was " + token);
+        }
+        if (value != (int) value) {
+            throw new NumberFormatException("Expected an int but was " + value);
+        }
+        consumed();
+        peekedText = null;
+        return (int) value;
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        int count = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_ARRAY:
+                    beginArray();
+                    count++;
+                    break;
+                case BEGIN_OBJECT:
+                    beginObject();
+                    count++;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    count--;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    count--;
+                    break;
+                case NAME:
+                case STRING:
+                    if (peekedText == null) {
+                        source.skip(peekedArgument);
+                    }
+                    peekedText = null;
+                    consumed();
+                    break;
+                case END_DOCUMENT:
+                    return;
+                default:
+                    consumed();
+                    break;
+            }
+        } while (count > 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        peeked = null;
+        source.close();
+    }
+
+    @Override
+    public String getPath() {
+        return "$";
+    }
+
+    @Override
+    public String toString() {
+        return "CborReader";
+    }
+
+    private String peekText() throws IOException {
+        if (peekedText == null) {
+            peekedText = source.readUtf8(peekedArgument);
+        }
+        return peekedText;
+    }
+
+    private String readText() throws IOException {
+        String text = peekText();
+        peekedText = null;
+        return text;
+    }
+
+    private static double unsignedToDouble(long value) {
+        return (double) (value >>> 1) * 2.0 + (value & 1);
+    }
+
+    private static double halfToDouble(int half) {
+        int exponent = (half >> 10) & 0x1f;
+        int mantissa = half & 0x3ff;
+        double value;
+        if (exponent == 0) {
+            value = mantissa * Math.pow(2, -24);
+        } else if (exponent == 31) {
+            value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+        } else {
+            value = (mantissa + 1024) * Math.pow(2, exponent - 25);
+        }
+        return (half & 0x8000) != 0 ? -value : value;
+    }
+}
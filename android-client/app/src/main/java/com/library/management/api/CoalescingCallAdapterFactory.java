@@ -0,0 +1,330 @@
+package com.library.management.api;
+
+import android.os.Handler;
+import android.os.Looper;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.CallAdapter;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+import retrofit2.http.GET;
+import retrofit2.http.Streaming;
+
+/**
+ * 合并相同的GET请求：URL相同的请求在途时共用一次网络调用和同一个解析结果，完成后不再复用。
+ * 只作用于 @GET 方法，写请求照常逐个发送；写请求经过 OkHttp 时（见 invalidationInterceptor）
+ * 之后的 GET 不再加入写之前发出的调用，写入后刷新不会拿到旧数据。
+ * 请求地址在 BaseUrlInterceptor 中才替换成真实服务器，键里带上当前服务器，切换后不会复用旧服务器的响应。
+ */
+public class CoalescingCallAdapterFactory extends CallAdapter.Factory {
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final EndpointSelector endpointSelector;
+    // 以当前服务器+请求方法+URL为键；以下状态由 this 保护
+    private final Map<String, Flight> flights = new HashMap<>();
+
+    private final AtomicLong networkCalls = new AtomicLong();
+    private final AtomicLong coalescedCalls = new AtomicLong();
+
+    public CoalescingCallAdapterFactory(EndpointSelector endpointSelector) {
+        this.endpointSelector = endpointSelector;
+    }
+
+    @Override
+    public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+        if (getRawType(returnType) != Call.class || !isGet(annotations)) {
+            return null;
+        }
+        // 流式响应体只能读一次，不能共用
+        if (getRawType(getParameterUpperBound(0, (ParameterizedType) returnType)) == ResponseBody.class) {
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        CallAdapter<Object, Call<Object>> delegate =
+                (CallAdapter<Object, Call<Object>>) retrofit.nextCallAdapter(this, returnType, annotations);
+        return new CallAdapter<Object, Call<Object>>() {
+            @Override
+            public Type responseType() {
+                return delegate.responseType();
+            }
+
+            @Override
+            public Call<Object> adapt(Call<Object> call) {
+                return new CoalescingCall(delegate.adapt(call));
+            }
+        };
+    }
+
+    private static boolean isGet(Annotation[] annotations) {
+        boolean get = false;
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Streaming) {
+                return false;
+            }
+            if (annotation instanceof GET) {
+                get = true;
+            }
+        }
+        return get;
+    }
+
+    // 实际发出的网络请求数
+    public long getNetworkCalls() {
+        return networkCalls.get();
+    }
+
+    // 因合并而省下的请求数
+    public long getCoalescedCalls() {
+        return coalescedCalls.get();
+    }
+
+    /**
+     * 非 GET 请求发出前和完成后都清空可加入的调用：已经在等的调用方照常拿到结果，
+     * 之后的相同 GET 重新发送。要加在 OkHttpClient 上，所有写请求（包括 Outbox）都会经过。
+     */
+    public Interceptor invalidationInterceptor() {
+        return chain -> {
+            String method = chain.request().method();
+            if ("GET".equals(method) || "HEAD".equals(method)) {
+                return chain.proceed(chain.request());
+            }
+            invalidate();
+            try {
+                return chain.proceed(chain.request());
+            } finally {
+                invalidate();
+            }
+        };
+    }
+
+    private synchronized void invalidate() {
+        flights.clear();
+    }
+
+    private String keyOf(Request request) {
+        return endpointSelector.current().getUrl() + " " + request.method() + " " + request.url();
+    }
+
+    /**
+     * 一次共享的网络调用。完成后 response 和 failure 二者之一非空。
+     */
+    private final class Flight {
+        final String key;
+        final CountDownLatch done = new CountDownLatch(1);
+        // 等待结果的异步调用，完成前由 CoalescingCallAdapterFactory.this 保护
+        final List<CoalescingCall> waiters = new ArrayList<>();
+        // 共用这次调用且尚未取消的调用方数量（同步和异步），降为0时取消网络请求
+        int participants = 1;
+        Call<Object> call;
+        Response<Object> response;
+        Throwable failure;
+
+        Flight(String key) {
+            this.key = key;
+        }
+
+        boolean isDone() {
+            return done.getCount() == 0;
+        }
+    }
+
+    // 找到还在进行、可以共用的调用，没有时返回null
+    private Flight join(String key) {
+        Flight flight = flights.get(key);
+        if (flight == null || flight.isDone()) return null;
+        coalescedCalls.incrementAndGet();
+        flight.participants++;
+        return flight;
+    }
+
+    private Flight start(String key, Call<Object> call) {
+        Flight flight = new Flight(key);
+        flight.call = call;
+        flights.put(key, flight);
+        networkCalls.incrementAndGet();
+        return flight;
+    }
+
+    private void complete(Flight flight, Response<Object> response, Throwable failure) {
+        List<CoalescingCall> waiters;
+        synchronized (this) {
+            flight.response = response;
+            flight.failure = failure;
+            // 完成后不再复用，下一次相同的请求重新发送
+            if (flights.get(flight.key) == flight) {
+                flights.remove(flight.key);
+            }
+            waiters = new ArrayList<>(flight.waiters);
+            flight.waiters.clear();
+            flight.done.countDown();
+        }
+        for (CoalescingCall waiter : waiters) {
+            waiter.deliver(flight);
+        }
+    }
+
+    private final class CoalescingCall implements Call<Object> {
+        private final Call<Object> delegate;
+        private volatile boolean executed;
+        private volatile boolean canceled;
+        private Callback<Object> callback;
+        private Flight flight;
+
+        CoalescingCall(Call<Object> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Response<Object> execute() throws IOException {
+            markExecuted();
+            String key = keyOf(delegate.request());
+            Flight shared;
+            synchronized (CoalescingCallAdapterFactory.this) {
+                shared = join(key);
+                if (shared == null) {
+                    flight = start(key, delegate);
+                }
+            }
+
+            if (shared == null) {
+                try {
+                    Response<Object> response = delegate.execute();
+                    complete(flight, response, null);
+                    return response;
+                } catch (IOException | RuntimeException e) {
+                    complete(flight, null, e);
+                    throw e;
+                }
+            }
+
+            try {
+                shared.done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待合并的请求时被中断");
+            }
+            if (shared.failure instanceof IOException) throw (IOException) shared.failure;
+            if (shared.failure instanceof RuntimeException) throw (RuntimeException) shared.failure;
+            return shared.response;
+        }
+
+        @Override
+        public void enqueue(Callback<Object> callback) {
+            markExecuted();
+            this.callback = callback;
+            String key = keyOf(delegate.request());
+
+            boolean owner = false;
+            synchronized (CoalescingCallAdapterFactory.this) {
+                flight = join(key);
+                if (flight == null) {
+                    flight = start(key, delegate);
+                    owner = true;
+                }
+                flight.waiters.add(this);
+            }
+
+            if (owner) {
+                Flight started = flight;
+                delegate.enqueue(new Callback<Object>() {
+                    @Override
+                    public void onResponse(Call<Object> call, Response<Object> response) {
+                        complete(started, response, null);
+                    }
+
+                    @Override
+                    public void onFailure(Call<Object> call, Throwable t) {
+                        complete(started, null, t);
+                    }
+                });
+            }
+        }
+
+        // 在主线程把共享结果交给调用方；调用方已取消时不再回调
+        void deliver(Flight completed) {
+            mainHandler.post(() -> {
+                if (canceled) return;
+                if (completed.response != null) {
+                    callback.onResponse(this, completed.response);
+                } else {
+                    callback.onFailure(this, completed.failure);
+                }
+            });
+        }
+
+        private void markExecuted() {
+            synchronized (this) {
+                if (executed) throw new IllegalStateException("Already executed.");
+                executed = true;
+            }
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return executed;
+        }
+
+        /**
+         * 取消只影响本调用；共享的网络请求在没有其他等待者时才真正取消。
+         */
+        @Override
+        public void cancel() {
+            Call<Object> toCancel = null;
+            synchronized (CoalescingCallAdapterFactory.this) {
+                if (canceled) return;
+                canceled = true;
+                if (flight == null) {
+                    toCancel = delegate;
+                } else if (!flight.isDone()) {
+                    flight.waiters.remove(this);
+                    if (--flight.participants == 0) {
+                        // 写请求清空过之后，同一个键可能已经是新的调用
+                        if (flights.get(flight.key) == flight) {
+                            flights.remove(flight.key);
+                        }
+                        toCancel = flight.call;
+                    }
+                }
+            }
+            if (toCancel != null) {
+                toCancel.cancel();
+            }
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Call<Object> clone() {
+            return new CoalescingCall(delegate.clone());
+        }
+
+        @Override
+        public Request request() {
+            return delegate.request();
+        }
+
+        @Override
+        public Timeout timeout() {
+            return delegate.timeout();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.library.management.api;
+
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import okhttp3.CacheControl;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 在多个服务器之间选择请求目标。
+ * 后台定时请求各服务器的 /api/health，按指数移动平均记录延迟和错误率；
+ * 正式请求的成败也计入错误率。BaseUrlInterceptor 按这里给出的顺序发送和故障转移。
+ * 应用在后台时暂停探测，不为没人看的界面耗电和流量。
+ */
+public class EndpointSelector {
+
+    private static final String TAG = "EndpointSelector";
+    private static final long PROBE_INTERVAL_MS = 15000;
+    private static final long PROBE_TIMEOUT_MS = 3000;
+    // 移动平均的权重，越大越看重最近一次结果
+    private static final double ALPHA = 0.3;
+    // 错误率折算成的延迟惩罚，错误率1相当于慢了这么多毫秒
+    private static final double ERROR_PENALTY_MS = 5000;
+    // 还没有测到延迟的服务器按这个值计算
+    private static final double UNKNOWN_LATENCY_MS = 1000;
+    // 其他服务器要比当前服务器好出这个比例才切换，避免来回切换
+    private static final double SWITCH_MARGIN = 0.8;
+
+    public static final class Endpoint {
+        private final HttpUrl url;
+        private double latencyMs = -1;
+        private double errorRate;
+        private long lastCheckedAt;
+
+        Endpoint(HttpUrl url) {
+            this.url = url;
+        }
+
+        public HttpUrl getUrl() {
+            return url;
+        }
+
+        public synchronized double getLatencyMs() {
+            return latencyMs;
+        }
+
+        public synchronized double getErrorRate() {
+            return errorRate;
+        }
+
+        public synchronized long getLastCheckedAt() {
+            return lastCheckedAt;
+        }
+
+        // latencyMs 小于0表示这次不计延迟（正式请求的耗时与响应大小有关，只计成败）
+        synchronized void record(boolean success, long latencyMs) {
+            errorRate = ALPHA * (success ? 0 : 1) + (1 - ALPHA) * errorRate;
+            if (success && latencyMs >= 0) {
+                this.latencyMs = this.latencyMs < 0 ? latencyMs : ALPHA * latencyMs + (1 - ALPHA) * this.latencyMs;
+            }
+            lastCheckedAt = System.currentTimeMillis();
+        }
+
+        synchronized double score() {
+            return (latencyMs < 0 ? UNKNOWN_LATENCY_MS : latencyMs) + errorRate * ERROR_PENALTY_MS;
+        }
+
+        @Override
+        public String toString() {
+            return url + " (" + Math.round(getLatencyMs()) + "ms, 错误率 " + Math.round(getErrorRate() * 100) + "%)";
+        }
+    }
+
+    private final ScheduledExecutorService prober = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "endpoint-probe");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 以下状态由 this 保护
+    private List<Endpoint> endpoints;
+    private Endpoint current;
+    private OkHttpClient probeClient;
+    private ScheduledFuture<?> probing;
+    private boolean active = true;
+
+    public EndpointSelector(List<String> urls) {
+        setEndpoints(urls);
+    }
+
+    /**
+     * 开始定时探测。探测客户端由传入的客户端派生，共用连接池和线程池；
+     * 去掉全部拦截器，探测请求不带幂等键和 CBOR 协商，也不计入流量统计和日志。
+     */
+    public synchronized void start(OkHttpClient client) {
+        if (probeClient != null) return;
+        OkHttpClient.Builder builder = client.newBuilder()
+                .cache(null)
+                .connectTimeout(PROBE_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .readTimeout(PROBE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        builder.interceptors().clear();
+        builder.networkInterceptors().clear();
+        probeClient = builder.build();
+        if (active) {
+            schedule();
+        }
+    }
+
+    /**
+     * 应用切到后台时传 false 暂停定时探测；回到前台时传 true，立即探测一次并恢复定时。
+     */
+    public synchronized void setActive(boolean active) {
+        if (this.active == active) return;
+        this.active = active;
+        if (probeClient == null) return;
+        if (active) {
+            schedule();
+        } else if (probing != null) {
+            probing.cancel(false);
+            probing = null;
+        }
+    }
+
+    private void schedule() {
+        probing = prober.scheduleWithFixedDelay(this::probeAll, 0, PROBE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 替换服务器列表，第一个为首选。地址没变的服务器保留已有的统计。
+     */
+    public synchronized void setEndpoints(List<String> urls) {
+        List<Endpoint> updated = new ArrayList<>();
+        for (String url : urls) {
+            HttpUrl parsed = HttpUrl.parse(url);
+            if (parsed == null) continue;
+            Endpoint existing = find(parsed);
+            updated.add(existing != null ? existing : new Endpoint(parsed));
+        }
+        if (updated.isEmpty()) {
+            throw new IllegalArgumentException("没有有效的服务器地址");
+        }
+        endpoints = Collections.unmodifiableList(updated);
+        current = updated.get(0);
+        if (probeClient != null && active) {
+            prober.execute(this::probeAll);
+        }
+    }
+
+    private Endpoint find(HttpUrl url) {
+        if (endpoints == null) return null;
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.url.equals(url)) return endpoint;
+        }
+        return null;
+    }
+
+    public synchronized List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    public synchronized Endpoint current() {
+        return current;
+    }
+
+    /**
+     * 本次请求依次尝试的服务器，当前服务器在前，其余按评分排序。
+     */
+    public synchronized List<Endpoint> candidates() {
+        List<Endpoint> ordered = new ArrayList<>(endpoints);
+        Collections.sort(ordered, (a, b) -> Double.compare(a.score(), b.score()));
+        Endpoint best = ordered.get(0);
+        if (best != current && best.score() < current.score() * SWITCH_MARGIN) {
+            Log.i(TAG, "切换服务器: " + current + " -> " + best);
+            current = best;
+        }
+        ordered.remove(current);
+        ordered.add(0, current);
+        return ordered;
+    }
+
+    /**
+     * 记录一次正式请求的结果；失败会降低该服务器的排序，下一个请求起就转到其他服务器。
+     */
+    public void record(Endpoint endpoint, boolean success) {
+        endpoint.record(success, -1);
+    }
+
+    private void probeAll() {
+        List<Endpoint> snapshot;
+        OkHttpClient client;
+        synchronized (this) {
+            snapshot = endpoints;
+            client = probeClient;
+        }
+        for (Endpoint endpoint : snapshot) {
+            probe(client, endpoint);
+        }
+    }
+
+    private void probe(OkHttpClient client, Endpoint endpoint) {
+        HttpUrl healthUrl = endpoint.url.resolve("api/health");
+        if (healthUrl == null) return;
+        Request request = new Request.Builder()
+                .url(healthUrl)
+                .cacheControl(CacheControl.FORCE_NETWORK)
+                .build();
+
+        long start = System.nanoTime();
+        try (Response response = client.newCall(request).execute()) {
+            long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            endpoint.record(response.isSuccessful(), latencyMs);
+        } catch (Exception e) {
+            endpoint.record(false, -1);
+            Log.d(TAG, "探测失败 " + endpoint.url + ": " + e.getMessage());
+        }
+    }
+}
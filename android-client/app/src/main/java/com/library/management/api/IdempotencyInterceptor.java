@@ -0,0 +1,29 @@
+package com.library.management.api;
+
+import java.io.IOException;
+import java.util.UUID;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 给没有 Idempotency-Key 的写请求补上随机键。
+ * 作为应用拦截器添加，OkHttp 在连接失败后自动重发时沿用同一个键，服务器不会重复执行。
+ */
+public class IdempotencyInterceptor implements Interceptor {
+    
+    public static final String HEADER = "Idempotency-Key";
+    
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String method = request.method();
+        if ("GET".equals(method) || "HEAD".equals(method) || request.header(HEADER) != null) {
+            return chain.proceed(request);
+        }
+        
+        return chain.proceed(request.newBuilder()
+                .header(HEADER, UUID.randomUUID().toString())
+                .build());
+    }
+}
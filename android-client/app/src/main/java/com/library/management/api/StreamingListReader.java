@@ -0,0 +1,191 @@
+package com.library.management.api;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * 边下载边解析 {success, data} 形式的列表响应，每解析出 chunkSize 条就在主线程交给调用方。
+ * 配合 @Streaming 使用，响应体不会整体读入内存，第一批数据在下载完成前就能显示。
+ * data 可以直接是数组，也可以是包含数组字段（如 books、borrows）的对象；
+ * 对象中带 nextCursor、hasMore 时（游标分页），读完后通过 onPage 交给调用方。
+ */
+public class StreamingListReader<T> {
+
+    public interface Listener<T> {
+        // 在主线程调用，items 按响应中的顺序
+        void onChunk(List<T> items);
+
+        // 游标分页响应在 onComplete 之前回调
+        default void onPage(String nextCursor, boolean hasMore) {}
+
+        void onComplete(int count);
+
+        void onError(String message);
+    }
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(2);
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Call<ResponseBody> call;
+    private final TypeAdapter<T> adapter;
+    private final String arrayField;
+    private final int chunkSize;
+    private final Listener<T> listener;
+    // 游标分页字段，只在后台线程读写
+    private boolean paged;
+    private String nextCursor;
+    private boolean hasMore;
+
+    private StreamingListReader(Call<ResponseBody> call, TypeAdapter<T> adapter, String arrayField,
+                                int chunkSize, Listener<T> listener) {
+        this.call = call;
+        this.adapter = adapter;
+        this.arrayField = arrayField;
+        this.chunkSize = chunkSize;
+        this.listener = listener;
+    }
+
+    /**
+     * 在后台线程执行 call 并逐批回调；返回的 call 可用于取消，取消后不再回调。
+     */
+    public static <T> Call<ResponseBody> read(Call<ResponseBody> call, Gson gson, Class<T> type,
+                                              String arrayField, int chunkSize, Listener<T> listener) {
+        StreamingListReader<T> reader =
+                new StreamingListReader<>(call, gson.getAdapter(type), arrayField, chunkSize, listener);
+        EXECUTOR.execute(reader::run);
+        return call;
+    }
+
+    private void run() {
+        try {
+            Response<ResponseBody> response = call.execute();
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                if (response.errorBody() != null) {
+                    response.errorBody().close();
+                }
+                post(() -> listener.onError("HTTP " + response.code()));
+                return;
+            }
+            // 服务器返回 CBOR 时同样逐项读取
+            try (JsonReader reader = CborConverterFactory.isCbor(body)
+                    ? new CborReader(body.source()) : new JsonReader(body.charStream())) {
+                readEnvelope(reader);
+            }
+        } catch (IOException | RuntimeException e) {
+            post(() -> listener.onError(e.getMessage()));
+        }
+    }
+
+    private void readEnvelope(JsonReader reader) throws IOException {
+        boolean success = true;
+        String message = null;
+        int count = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("data".equals(name)) {
+                count = readData(reader);
+            } else if ("success".equals(name) && reader.peek() == JsonToken.BOOLEAN) {
+                success = reader.nextBoolean();
+            } else if ("message".equals(name) && reader.peek() == JsonToken.STRING) {
+                message = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        int total = count;
+        String error = message != null ? message : "请求失败";
+        if (success) {
+            boolean page = paged;
+            String cursor = nextCursor;
+            boolean more = hasMore;
+            post(() -> {
+                if (page) {
+                    listener.onPage(cursor, more);
+                }
+                listener.onComplete(total);
+            });
+        } else {
+            post(() -> listener.onError(error));
+        }
+    }
+
+    private int readData(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+            return readArray(reader);
+        }
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return 0;
+        }
+
+        int count = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (arrayField.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                count = readArray(reader);
+            } else if ("nextCursor".equals(name) && reader.peek() == JsonToken.STRING) {
+                nextCursor = reader.nextString();
+            } else if ("hasMore".equals(name) && reader.peek() == JsonToken.BOOLEAN) {
+                paged = true;
+                hasMore = reader.nextBoolean();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return count;
+    }
+
+    private int readArray(JsonReader reader) throws IOException {
+        int count = 0;
+        List<T> chunk = new ArrayList<>(chunkSize);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            chunk.add(adapter.read(reader));
+            count++;
+            if (chunk.size() >= chunkSize) {
+                deliver(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        reader.endArray();
+        if (!chunk.isEmpty()) {
+            deliver(chunk);
+        }
+        return count;
+    }
+
+    private void deliver(List<T> chunk) throws IOException {
+        if (call.isCanceled()) {
+            // 调用方已不需要后续数据，停止下载
+            throw new IOException("Canceled");
+        }
+        post(() -> listener.onChunk(chunk));
+    }
+
+    private void post(Runnable runnable) {
+        mainHandler.post(() -> {
+            if (!call.isCanceled()) {
+                runnable.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,133 @@
+package com.library.management.api;
+
+import android.util.Log;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * 按接口统计响应在网络上传输的字节数和解压后的字节数，用来确认服务器的 gzip 压缩是否生效。
+ * networkInterceptor 看到的是压缩的原始响应，applicationInterceptor 看到的是 OkHttp 解压后的响应，
+ * 两者分别计数；字节数在响应体被读取时累加，读多少算多少。
+ */
+public class TransferStats {
+
+    private static final String TAG = "TransferStats";
+
+    public static final class Entry {
+        private final String endpoint;
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong networkResponses = new AtomicLong();
+        final AtomicLong gzipResponses = new AtomicLong();
+        final AtomicLong wireBytes = new AtomicLong();
+        final AtomicLong decodedBytes = new AtomicLong();
+
+        Entry(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public String getEndpoint() { return endpoint; }
+        public long getRequests() { return requests.get(); }
+        // 实际到达网络的次数，命中本地缓存的请求不计
+        public long getNetworkResponses() { return networkResponses.get(); }
+        public long getGzipResponses() { return gzipResponses.get(); }
+        public long getWireBytes() { return wireBytes.get(); }
+        public long getDecodedBytes() { return decodedBytes.get(); }
+
+        // 解压后与网络传输字节数之比，没有数据时为0
+        public double getRatio() {
+            long wire = wireBytes.get();
+            return wire == 0 ? 0 : (double) decodedBytes.get() / wire;
+        }
+
+        @Override
+        public String toString() {
+            return endpoint + ": " + getRequests() + " 次请求, " + getNetworkResponses() + " 次网络响应"
+                    + "（gzip " + getGzipResponses() + "）, 传输 " + getWireBytes() + "B, 解压后 " + getDecodedBytes()
+                    + "B, 压缩比 " + String.format(Locale.US, "%.1f", getRatio());
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Interceptor networkInterceptor = chain -> {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+        Entry entry = entryFor(request);
+        entry.networkResponses.incrementAndGet();
+        if ("gzip".equalsIgnoreCase(response.header("Content-Encoding"))) {
+            entry.gzipResponses.incrementAndGet();
+        }
+        return counting(response, entry.wireBytes);
+    };
+
+    private final Interceptor applicationInterceptor = chain -> {
+        Request request = chain.request();
+        Response response = chain.proceed(request);
+        Entry entry = entryFor(request);
+        entry.requests.incrementAndGet();
+        return counting(response, entry.decodedBytes);
+    };
+
+    // 加在 addNetworkInterceptor
+    public Interceptor networkInterceptor() {
+        return networkInterceptor;
+    }
+
+    // 加在 addInterceptor，放在改写服务器地址的拦截器之后
+    public Interceptor applicationInterceptor() {
+        return applicationInterceptor;
+    }
+
+    public List<Entry> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    public void log() {
+        for (Entry entry : entries.values()) {
+            Log.i(TAG, entry.toString());
+        }
+    }
+
+    public void reset() {
+        entries.clear();
+    }
+
+    // 路径中的数字ID合并成 :id，同一个接口的不同资源记在一起
+    private Entry entryFor(Request request) {
+        String endpoint = request.method() + " " + request.url().encodedPath().replaceAll("/\\d+(?=/|$)", "/:id");
+        return entries.computeIfAbsent(endpoint, Entry::new);
+    }
+
+    private static Response counting(Response response, AtomicLong counter) {
+        ResponseBody body = response.body();
+        if (body == null) {
+            return response;
+        }
+        BufferedSource source = Okio.buffer(new ForwardingSource(body.source()) {
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException {
+                long read = super.read(sink, byteCount);
+                if (read > 0) {
+                    counter.addAndGet(read);
+                }
+                return read;
+            }
+        });
+        return response.newBuilder()
+                .body(ResponseBody.create(source, body.contentType(), body.contentLength()))
+                .build();
+    }
+}
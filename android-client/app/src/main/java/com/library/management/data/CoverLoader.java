@@ -0,0 +1,414 @@
+package com.library.management.data;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.widget.ImageView;
+import com.library.management.R;
+import com.library.management.api.ApiClient;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.ByteString;
+import okio.Okio;
+
+/**
+ * 图书封面加载：内存 LRU（解码后的位图，占堆的 1/8）→ 磁盘 LRU（下载的图片）→ 网络。
+ * 按 ImageView 的大小降采样解码；被内存缓存淘汰且不再显示的位图放入复用池，下次解码时通过 inBitmap 复用。
+ * 相同地址和尺寸的请求合并为一个任务，ViewHolder 回收时取消，所有等待的 View 都取消后任务停止。
+ * 缩略图地址相对于当前服务器，下载时才拼上服务器地址，切换服务器后缓存仍然有效。
+ * 公开方法都在主线程调用。
+ */
+public class CoverLoader {
+
+    private static final String DISK_CACHE_DIR = "covers";
+    private static final long DISK_CACHE_SIZE = 20 * 1024 * 1024;
+    private static final int MEMORY_CACHE_DIVISOR = 8;
+    private static final int MAX_POOL_SIZE = 8;
+
+    private static CoverLoader instance;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+    private final ApiClient apiClient;
+    private final OkHttpClient client;
+    private final File diskDir;
+    private final int screenWidth;
+    private final LruCache<String, Bitmap> memoryCache;
+
+    // 以下只在主线程访问
+    private final Map<String, Job> jobs = new HashMap<>();
+    private final Map<ImageView, Job> viewJobs = new WeakHashMap<>();
+    private final Map<ImageView, Bitmap> shown = new WeakHashMap<>();
+    private final Map<Bitmap, Integer> useCounts = new WeakHashMap<>();
+    // 已被内存缓存淘汰但还在显示的位图，不再显示时放入复用池
+    private final Set<Bitmap> evictedInUse = Collections.newSetFromMap(new WeakHashMap<>());
+
+    // 解码线程也会访问，需要同步
+    private final List<Bitmap> pool = new ArrayList<>();
+    // 同一地址的下载同时只进行一次
+    private final Map<String, Object> downloadLocks = new ConcurrentHashMap<>();
+
+    /**
+     * 一次封面请求：服务器上的缩略图路径和解码尺寸，缓存键随之确定。
+     * 列表在提交时为每行生成一次，绑定时直接使用，不再拼接地址。
+     */
+    public static final class CoverRequest {
+        final String path;
+        final int width;
+        final int height;
+        final String key;
+
+        CoverRequest(String path, int width, int height) {
+            this.path = path;
+            this.width = width;
+            this.height = height;
+            this.key = path + '@' + width + 'x' + height;
+        }
+    }
+
+    // 测试中直接创建，得到独立的内存缓存；应用内通过 getInstance 共用一个
+    CoverLoader(Context context) {
+        // 与 API 共用连接池和线程池，但不经过 API 的拦截器和 HTTP 缓存，图片由磁盘缓存保存
+        apiClient = ApiClient.getInstance(context);
+        OkHttpClient.Builder builder = apiClient.getOkHttpClient().newBuilder().cache(null);
+        builder.interceptors().clear();
+        builder.networkInterceptors().clear();
+        client = builder.build();
+
+        diskDir = new File(context.getCacheDir(), DISK_CACHE_DIR);
+        diskDir.mkdirs();
+        screenWidth = context.getResources().getDisplayMetrics().widthPixels;
+
+        int maxKb = (int) (Runtime.getRuntime().maxMemory() / 1024 / MEMORY_CACHE_DIVISOR);
+        memoryCache = new LruCache<String, Bitmap>(maxKb) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return Math.max(1, bitmap.getAllocationByteCount() / 1024);
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (!evicted) return;
+                Integer count = useCounts.get(oldValue);
+                if (count != null && count > 0) {
+                    evictedInUse.add(oldValue);
+                } else {
+                    addToPool(oldValue);
+                }
+            }
+        };
+    }
+
+    public static synchronized CoverLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new CoverLoader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * 服务器 /api/covers 上按 width 缩放的缩略图，不直接下载外部原图；没有封面时返回null。
+     * v 随封面地址变化，封面不变时服务器返回的缩略图可以长期缓存。
+     */
+    public static CoverRequest thumbnail(int bookId, String coverUrl, int width, int height) {
+        if (coverUrl == null || coverUrl.isEmpty()) return null;
+        return new CoverRequest("api/covers/" + bookId + "?w=" + width + "&v=" + Integer.toHexString(coverUrl.hashCode()),
+                width, height);
+    }
+
+    // 详情页等尺寸不固定的地方用：按 view 当前的大小请求缩略图
+    public void loadBookCover(ImageView view, int bookId, String coverUrl) {
+        int height = targetSize(view.getHeight(), view.getLayoutParams() != null ? view.getLayoutParams().height : 0);
+        load(view, thumbnail(bookId, coverUrl, targetWidth(view), height));
+    }
+
+    /**
+     * 把封面显示到 view 上；request 为null时显示默认图标。同一个 view 之前未完成的加载会被取消。
+     */
+    public void load(ImageView view, CoverRequest request) {
+        cancel(view);
+        if (request == null) {
+            show(view, null);
+            return;
+        }
+
+        Bitmap cached = memoryCache.get(request.key);
+        if (cached != null) {
+            show(view, cached);
+            return;
+        }
+
+        show(view, null);
+        Job job = jobs.get(request.key);
+        if (job == null) {
+            job = new Job(request);
+            jobs.put(request.key, job);
+            job.future = executor.submit(job);
+        }
+        job.views.add(view);
+        viewJobs.put(view, job);
+    }
+
+    // 取消 view 未完成的加载；没有其他 View 等待同一个任务时停止下载和解码
+    public void cancel(ImageView view) {
+        Job job = viewJobs.remove(view);
+        if (job == null) return;
+        job.views.remove(view);
+        if (job.views.isEmpty()) {
+            jobs.remove(job.key);
+            job.cancel();
+        }
+    }
+
+    // ViewHolder 回收或页面销毁时调用：取消加载并释放正在显示的位图
+    public void clear(ImageView view) {
+        cancel(view);
+        show(view, null);
+    }
+
+    private int targetWidth(ImageView view) {
+        return targetSize(view.getWidth(), view.getLayoutParams() != null ? view.getLayoutParams().width : 0);
+    }
+
+    private int targetSize(int measured, int layoutSize) {
+        if (measured > 0) return measured;
+        if (layoutSize > 0) return layoutSize;
+        // 尺寸未确定（match_parent 尚未测量、wrap_content）时按屏幕宽度限制
+        return screenWidth;
+    }
+
+    private void show(ImageView view, Bitmap bitmap) {
+        Bitmap old = bitmap != null ? shown.put(view, bitmap) : shown.remove(view);
+        if (old == bitmap && bitmap != null) return;
+        if (bitmap != null) {
+            Integer count = useCounts.get(bitmap);
+            useCounts.put(bitmap, count != null ? count + 1 : 1);
+            view.setImageBitmap(bitmap);
+        } else {
+            view.setImageResource(R.drawable.ic_book);
+        }
+        if (old != null) {
+            release(old);
+        }
+    }
+
+    private void release(Bitmap bitmap) {
+        Integer count = useCounts.get(bitmap);
+        if (count != null && count > 1) {
+            useCounts.put(bitmap, count - 1);
+            return;
+        }
+        useCounts.remove(bitmap);
+        if (evictedInUse.remove(bitmap)) {
+            addToPool(bitmap);
+        }
+    }
+
+    private void deliver(Job job, Bitmap bitmap) {
+        if (jobs.get(job.key) == job) {
+            jobs.remove(job.key);
+        }
+        if (job.cancelled) {
+            if (bitmap != null) addToPool(bitmap);
+            return;
+        }
+        for (ImageView view : job.views) {
+            viewJobs.remove(view);
+            if (bitmap != null) {
+                show(view, bitmap);
+            }
+        }
+        job.views.clear();
+        // 先计入显示次数再放入缓存，放入时即被淘汰也不会进入复用池
+        if (bitmap != null) {
+            memoryCache.put(job.key, bitmap);
+        }
+    }
+
+    private void addToPool(Bitmap bitmap) {
+        if (!bitmap.isMutable() || bitmap.isRecycled()) return;
+        synchronized (pool) {
+            if (pool.size() >= MAX_POOL_SIZE) {
+                pool.remove(0);
+            }
+            pool.add(bitmap);
+        }
+    }
+
+    // 取出能容纳 bytes 的最小可复用位图
+    private Bitmap takeFromPool(int bytes) {
+        synchronized (pool) {
+            Bitmap best = null;
+            for (Bitmap candidate : pool) {
+                int size = candidate.getAllocationByteCount();
+                if (size >= bytes && (best == null || size < best.getAllocationByteCount())) {
+                    best = candidate;
+                }
+            }
+            if (best != null) {
+                pool.remove(best);
+            }
+            return best;
+        }
+    }
+
+    // ---------- 后台线程 ----------
+
+    private File fetch(Job job) throws IOException {
+        String path = job.request.path;
+        File file = new File(diskDir, ByteString.encodeUtf8(path).md5().hex());
+        Object lock = downloadLocks.computeIfAbsent(path, key -> new Object());
+        synchronized (lock) {
+            try {
+                if (file.exists()) {
+                    // 记录最近使用时间，磁盘缓存按它淘汰
+                    file.setLastModified(System.currentTimeMillis());
+                    return file;
+                }
+                if (job.cancelled) return null;
+
+                Request request = new Request.Builder()
+                        .url(apiClient.getBaseUrl() + path)
+                        .header("Accept", "image/*")
+                        .build();
+                Call call = client.newCall(request);
+                job.call = call;
+                if (job.cancelled) call.cancel();
+
+                File tmp = new File(diskDir, file.getName() + ".tmp");
+                try (Response response = call.execute()) {
+                    ResponseBody body = response.body();
+                    if (!response.isSuccessful() || body == null) return null;
+                    try (BufferedSink sink = Okio.buffer(Okio.sink(tmp))) {
+                        sink.writeAll(body.source());
+                    }
+                }
+                if (!tmp.renameTo(file)) {
+                    tmp.delete();
+                    return null;
+                }
+                trimDiskCache();
+                return file;
+            } finally {
+                downloadLocks.remove(path, lock);
+            }
+        }
+    }
+
+    private void trimDiskCache() {
+        synchronized (diskDir) {
+            File[] files = diskDir.listFiles();
+            if (files == null) return;
+            long total = 0;
+            for (File file : files) {
+                total += file.length();
+            }
+            if (total <= DISK_CACHE_SIZE) return;
+
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (File file : files) {
+                if (total <= DISK_CACHE_SIZE) break;
+                long length = file.length();
+                if (file.delete()) {
+                    total -= length;
+                }
+            }
+        }
+    }
+
+    private Bitmap decode(File file, int width, int height) {
+        String path = file.getPath();
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            // 不是图片，删掉以便下次重新下载
+            file.delete();
+            return null;
+        }
+
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= width && options.outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        // 封面不透明，RGB_565 比 ARGB_8888 少一半内存；可变位图才能作为 inBitmap 复用
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        options.inMutable = true;
+        int decodedWidth = (options.outWidth + sampleSize - 1) / sampleSize;
+        int decodedHeight = (options.outHeight + sampleSize - 1) / sampleSize;
+        options.inBitmap = takeFromPool(decodedWidth * decodedHeight * 2);
+
+        try {
+            return BitmapFactory.decodeFile(path, options);
+        } catch (IllegalArgumentException e) {
+            // 复用的位图不适用（格式不同等），不复用重新解码
+            options.inBitmap = null;
+            return BitmapFactory.decodeFile(path, options);
+        }
+    }
+
+    private final class Job implements Runnable {
+        final CoverRequest request;
+        final String key;
+        // 等待结果的 View，只在主线程访问
+        final List<ImageView> views = new ArrayList<>(1);
+        volatile boolean cancelled;
+        volatile Call call;
+        Future<?> future;
+
+        Job(CoverRequest request) {
+            this.request = request;
+            this.key = request.key;
+        }
+
+        @Override
+        public void run() {
+            Bitmap bitmap = null;
+            try {
+                File file = fetch(this);
+                if (file != null && !cancelled) {
+                    bitmap = decode(file, request.width, request.height);
+                }
+            } catch (IOException | RuntimeException e) {
+                // 加载失败保持默认图标
+            }
+            Bitmap result = bitmap;
+            mainHandler.post(() -> deliver(this, result));
+        }
+
+        void cancel() {
+            cancelled = true;
+            Call current = call;
+            if (current != null) {
+                current.cancel();
+            }
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,653 @@
+package com.library.management.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import com.library.management.model.Book;
+import com.library.management.model.Borrow;
+import com.library.management.model.Category;
+import com.library.management.model.DateCodec;
+import com.library.management.model.ModelTypeAdapterFactory;
+import com.library.management.model.Statistics;
+import com.library.management.model.SyncChanges;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 图书、分类、借阅记录在本机的副本。
+ * 每行保存服务器返回的原始JSON，另外抽出排序和关联要用的几列；界面先读这里，再由 SyncManager 增量同步。
+ * outbox 表保存尚未提交到服务器的写操作，它们的效果会乐观地叠加在副本上，直到服务器确认或拒绝。
+ */
+public class LocalStore extends SQLiteOpenHelper {
+
+    private static final String TAG = "LocalStore";
+    private static final String DATABASE_NAME = "library_replica.db";
+    private static final int DATABASE_VERSION = 2;
+
+    private static final String KEY_CURSOR = "cursor";
+    // 游标所属的服务器：各服务器的 change_log 序号互不相干，游标不能拿到另一台服务器上用
+    private static final String KEY_CURSOR_SERVER = "cursor_server";
+    private static final String KEY_INITIALIZED = "initialized";
+
+    // IN 查询每批的ID数量，避开 SQLite 的参数个数上限
+    private static final int ID_BATCH_SIZE = 500;
+
+    private static LocalStore instance;
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapterFactory(new ModelTypeAdapterFactory())
+            .create();
+    private final ExecutorService readExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // 读到已初始化后缓存下来，界面在主线程判断时不用每次查库
+    private volatile boolean initialized;
+
+    private LocalStore(Context context) {
+        super(context.getApplicationContext(), DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    public static synchronized LocalStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new LocalStore(context);
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        createReplicaTables(db);
+        createOutboxTable(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // 副本可以随时从服务器重建，升级时直接丢弃；待提交的操作必须保留
+        db.execSQL("DROP TABLE IF EXISTS books");
+        db.execSQL("DROP TABLE IF EXISTS categories");
+        db.execSQL("DROP TABLE IF EXISTS borrows");
+        db.execSQL("DROP TABLE IF EXISTS sync_state");
+        createReplicaTables(db);
+        createOutboxTable(db);
+    }
+
+    private static void createReplicaTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE books (id INTEGER PRIMARY KEY, category_id INTEGER, status TEXT, "
+                + "created_at TEXT, data TEXT NOT NULL)");
+        db.execSQL("CREATE INDEX idx_books_created_id ON books(created_at, id)");
+        db.execSQL("CREATE TABLE categories (id INTEGER PRIMARY KEY, parent_id INTEGER, level INTEGER, "
+                + "code TEXT, data TEXT NOT NULL)");
+        db.execSQL("CREATE TABLE borrows (id INTEGER PRIMARY KEY, book_id INTEGER, status TEXT, "
+                + "created_at TEXT, data TEXT NOT NULL)");
+        db.execSQL("CREATE INDEX idx_borrows_created ON borrows(created_at)");
+        db.execSQL("CREATE TABLE sync_state (key TEXT PRIMARY KEY, value TEXT)");
+    }
+
+    private static void createOutboxTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS outbox (id INTEGER PRIMARY KEY AUTOINCREMENT, op TEXT NOT NULL, "
+                + "idempotency_key TEXT NOT NULL, payload TEXT NOT NULL, attempts INTEGER NOT NULL DEFAULT 0, "
+                + "last_error TEXT, created_at INTEGER NOT NULL)");
+    }
+
+    /**
+     * 在后台线程执行读取，结果回到主线程。
+     */
+    public <T> void readAsync(Supplier<T> query, Consumer<T> callback) {
+        readExecutor.execute(() -> {
+            T result = query.get();
+            mainHandler.post(() -> callback.accept(result));
+        });
+    }
+
+    // ---------- 同步状态 ----------
+
+    public long getSyncCursor() {
+        String value = getState(KEY_CURSOR);
+        return value != null ? Long.parseLong(value) : 0;
+    }
+
+    // 发出当前游标的服务器，还没同步过时为null
+    public String getSyncServer() {
+        return getState(KEY_CURSOR_SERVER);
+    }
+
+    // 是否已经完整同步过一次；首次同步完成之前副本只有部分数据，界面不能单独依赖它
+    public boolean isInitialized() {
+        if (!initialized) {
+            initialized = "1".equals(getState(KEY_INITIALIZED));
+        }
+        return initialized;
+    }
+
+    private String getState(String key) {
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT value FROM sync_state WHERE key = ?", new String[]{key})) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    private void putState(SQLiteDatabase db, String key, String value) {
+        ContentValues values = new ContentValues();
+        values.put("key", key);
+        values.put("value", value);
+        db.insertWithOnConflict("sync_state", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * 在一个事务里应用 server 返回的一批增量变更并推进同步游标，之后把尚未提交的操作重新叠加上去。
+     */
+    public void applyChanges(SyncChanges changes, String server) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            if (changes.isReset()) {
+                clearReplica(db);
+            } else {
+                for (JsonObject row : changes.getCategories()) {
+                    putCategory(db, row);
+                }
+                for (JsonObject row : changes.getBooks()) {
+                    putBook(db, row);
+                }
+                for (JsonObject row : changes.getBorrows()) {
+                    putBorrow(db, row);
+                }
+
+                SyncChanges.Deleted deleted = changes.getDeleted();
+                deleteIds(db, "categories", deleted.getCategories());
+                deleteIds(db, "books", deleted.getBooks());
+                deleteIds(db, "borrows", deleted.getBorrows());
+
+                putState(db, KEY_CURSOR, String.valueOf(changes.getCursor()));
+                putState(db, KEY_CURSOR_SERVER, server);
+                if (!changes.hasMore()) {
+                    putState(db, KEY_INITIALIZED, "1");
+                }
+            }
+            // 服务器数据覆盖了乐观修改，按顺序重新叠加仍在排队的操作
+            for (OutboxEntry entry : getOutboxEntries(db)) {
+                applyOptimistic(db, entry);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (changes.isReset()) {
+            initialized = false;
+        }
+    }
+
+    /**
+     * 换了服务器后清空副本，重新完整同步；仍在排队的操作重新叠加上去。
+     */
+    public void resetReplica() {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            clearReplica(db);
+            for (OutboxEntry entry : getOutboxEntries(db)) {
+                applyOptimistic(db, entry);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        initialized = false;
+    }
+
+    private static void clearReplica(SQLiteDatabase db) {
+        db.delete("books", null, null);
+        db.delete("categories", null, null);
+        db.delete("borrows", null, null);
+        db.delete("sync_state", null, null);
+    }
+
+    private void putCategory(SQLiteDatabase db, JsonObject row) {
+        ContentValues values = rowValues(row);
+        values.put("parent_id", intOrNull(row, "parent_id"));
+        values.put("level", intOrNull(row, "level"));
+        values.put("code", stringOrNull(row, "code"));
+        db.insertWithOnConflict("categories", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private void putBook(SQLiteDatabase db, JsonObject row) {
+        ContentValues values = rowValues(row);
+        values.put("category_id", intOrNull(row, "category_id"));
+        values.put("status", stringOrNull(row, "status"));
+        values.put("created_at", stringOrNull(row, "created_at"));
+        db.insertWithOnConflict("books", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private void putBorrow(SQLiteDatabase db, JsonObject row) {
+        ContentValues values = rowValues(row);
+        values.put("book_id", intOrNull(row, "book_id"));
+        values.put("status", stringOrNull(row, "status"));
+        values.put("created_at", stringOrNull(row, "created_at"));
+        db.insertWithOnConflict("borrows", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private JsonObject getRow(SQLiteDatabase db, String table, int id) {
+        try (Cursor cursor = db.rawQuery("SELECT data FROM " + table + " WHERE id = ?",
+                new String[]{String.valueOf(id)})) {
+            return cursor.moveToFirst() ? gson.fromJson(cursor.getString(0), JsonObject.class) : null;
+        }
+    }
+
+    private ContentValues rowValues(JsonObject row) {
+        ContentValues values = new ContentValues();
+        values.put("id", row.get("id").getAsLong());
+        values.put("data", row.toString());
+        return values;
+    }
+
+    private static Integer intOrNull(JsonObject row, String name) {
+        JsonElement element = row.get(name);
+        if (element == null || element.isJsonNull()) return null;
+        try {
+            return element.getAsInt();
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String stringOrNull(JsonObject row, String name) {
+        JsonElement element = row.get(name);
+        return element == null || element.isJsonNull() ? null : element.getAsString();
+    }
+
+    private void deleteIds(SQLiteDatabase db, String table, List<Integer> ids) {
+        for (Integer id : ids) {
+            db.delete(table, "id = ?", new String[]{String.valueOf(id)});
+        }
+    }
+
+    // ---------- 待提交的操作 ----------
+
+    /**
+     * 保存一个待提交的操作并立即把它的效果应用到副本上。
+     */
+    public OutboxEntry addOutboxEntry(String op, JsonObject payload) {
+        String key = UUID.randomUUID().toString();
+        long createdAt = System.currentTimeMillis();
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            values.put("op", op);
+            values.put("idempotency_key", key);
+            values.put("payload", payload.toString());
+            values.put("created_at", createdAt);
+            long id = db.insertOrThrow("outbox", null, values);
+
+            OutboxEntry entry = new OutboxEntry(id, op, key, payload, 0, createdAt);
+            applyOptimistic(db, entry);
+            db.setTransactionSuccessful();
+            return entry;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // 最早排队的操作，队列为空时返回null
+    public OutboxEntry peekOutbox() {
+        List<OutboxEntry> entries = queryOutbox(getReadableDatabase(), "1");
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    public int getOutboxSize() {
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT COUNT(*) FROM outbox", null)) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+
+    private List<OutboxEntry> getOutboxEntries(SQLiteDatabase db) {
+        return queryOutbox(db, null);
+    }
+
+    private List<OutboxEntry> queryOutbox(SQLiteDatabase db, String limit) {
+        List<OutboxEntry> entries = new ArrayList<>();
+        try (Cursor cursor = db.query("outbox",
+                new String[]{"id", "op", "idempotency_key", "payload", "attempts", "created_at"},
+                null, null, null, null, "id", limit)) {
+            while (cursor.moveToNext()) {
+                entries.add(new OutboxEntry(cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                        gson.fromJson(cursor.getString(3), JsonObject.class), cursor.getInt(4), cursor.getLong(5)));
+            }
+        }
+        return entries;
+    }
+
+    public void recordOutboxFailure(long id, String error) {
+        getWritableDatabase().execSQL("UPDATE outbox SET attempts = attempts + 1, last_error = ? WHERE id = ?",
+                new Object[]{error, id});
+    }
+
+    /**
+     * 服务器已接受该操作：移除它和乐观插入的临时行，真实数据由下一次同步带回。
+     * 排在后面的、引用这条临时行的操作改用服务器分配的ID：归还临时借阅记录，或借阅临时新增的图书。
+     */
+    public void completeOutboxEntry(OutboxEntry entry, Integer serverId) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            removeOutboxEntry(db, entry);
+            if (serverId != null) {
+                for (OutboxEntry pending : getOutboxEntries(db)) {
+                    if (dependsOn(pending, entry)) {
+                        pending.getPayload().addProperty(referenceField(pending, entry), serverId);
+                        ContentValues values = new ContentValues();
+                        values.put("payload", pending.getPayload().toString());
+                        db.update("outbox", values, "id = ?", new String[]{String.valueOf(pending.getId())});
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * 服务器拒绝了该操作：连同直接或间接依赖它的操作一起丢弃（新书被拒时，借阅它的操作和之后的归还）。
+     * 乐观修改过的服务器数据无法逐行还原，把同步游标归零，下一次同步整体覆盖后再叠加剩余的操作。
+     */
+    public void rejectOutboxEntry(OutboxEntry entry) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            List<OutboxEntry> dropped = new ArrayList<>();
+            dropped.add(entry);
+            removeOutboxEntry(db, entry);
+            // 依赖的操作总是排在被依赖的操作之后，按队列顺序扫一遍即可覆盖间接依赖
+            for (OutboxEntry pending : getOutboxEntries(db)) {
+                for (OutboxEntry removed : dropped) {
+                    if (dependsOn(pending, removed)) {
+                        removeOutboxEntry(db, pending);
+                        dropped.add(pending);
+                        break;
+                    }
+                }
+            }
+            // 只有新增图书时没有改动服务器数据，临时行删掉即可
+            for (OutboxEntry removed : dropped) {
+                if (!OutboxEntry.OP_CREATE_BOOK.equals(removed.getOp())) {
+                    putState(db, KEY_CURSOR, "0");
+                    break;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private void removeOutboxEntry(SQLiteDatabase db, OutboxEntry entry) {
+        db.delete("outbox", "id = ?", new String[]{String.valueOf(entry.getId())});
+        String tempId = String.valueOf(entry.getTempId());
+        if (OutboxEntry.OP_BORROW.equals(entry.getOp())) {
+            db.delete("borrows", "id = ?", new String[]{tempId});
+        } else if (OutboxEntry.OP_CREATE_BOOK.equals(entry.getOp())) {
+            db.delete("books", "id = ?", new String[]{tempId});
+        }
+    }
+
+    // pending 引用了 entry 乐观插入的临时行
+    private static boolean dependsOn(OutboxEntry pending, OutboxEntry entry) {
+        String field = referenceField(pending, entry);
+        return field != null && pending.getPayload().get(field).getAsInt() == entry.getTempId();
+    }
+
+    // pending 中可能引用 entry 临时行的字段：归还引用借阅记录，借阅引用新增的图书；没有这种关系时返回null
+    private static String referenceField(OutboxEntry pending, OutboxEntry entry) {
+        if (OutboxEntry.OP_RETURN.equals(pending.getOp()) && OutboxEntry.OP_BORROW.equals(entry.getOp())) {
+            return "borrowId";
+        }
+        if (OutboxEntry.OP_BORROW.equals(pending.getOp()) && OutboxEntry.OP_CREATE_BOOK.equals(entry.getOp())) {
+            return "bookId";
+        }
+        return null;
+    }
+
+    private void applyOptimistic(SQLiteDatabase db, OutboxEntry entry) {
+        JsonObject payload = entry.getPayload();
+        String timestamp = DateCodec.formatTimestamp(entry.getCreatedAt());
+
+        switch (entry.getOp()) {
+            case OutboxEntry.OP_BORROW: {
+                int bookId = payload.get("bookId").getAsInt();
+                setBookStatus(db, bookId, "borrowed");
+
+                JsonObject borrow = new JsonObject();
+                borrow.addProperty("id", entry.getTempId());
+                borrow.addProperty("book_id", bookId);
+                borrow.add("borrower", payload.get("borrower"));
+                borrow.add("due_date", payload.get("dueDate"));
+                borrow.addProperty("borrow_date", timestamp);
+                borrow.addProperty("status", "borrowed");
+                borrow.addProperty("created_at", timestamp);
+                putBorrow(db, borrow);
+                break;
+            }
+            case OutboxEntry.OP_RETURN: {
+                JsonObject borrow = getRow(db, "borrows", payload.get("borrowId").getAsInt());
+                if (borrow == null) break;
+                borrow.addProperty("status", "returned");
+                borrow.addProperty("return_date", timestamp);
+                putBorrow(db, borrow);
+
+                Integer bookId = intOrNull(borrow, "book_id");
+                if (bookId != null) {
+                    setBookStatus(db, bookId, "available");
+                }
+                break;
+            }
+            case OutboxEntry.OP_CREATE_BOOK: {
+                JsonObject book = payload.deepCopy();
+                book.addProperty("id", entry.getTempId());
+                book.addProperty("status", "available");
+                book.addProperty("created_at", timestamp);
+                putBook(db, book);
+                break;
+            }
+            default:
+                Log.w(TAG, "未知的待提交操作: " + entry.getOp());
+        }
+    }
+
+    private void setBookStatus(SQLiteDatabase db, int bookId, String status) {
+        JsonObject book = getRow(db, "books", bookId);
+        if (book != null) {
+            book.addProperty("status", status);
+            putBook(db, book);
+        }
+    }
+
+    // ---------- 读取 ----------
+
+    // 完整目录，只用于重建搜索索引；列表界面用 getBooksPage 分页读取
+    public List<Book> getBooks() {
+        return queryBooks("SELECT data FROM books ORDER BY created_at DESC, id DESC", null, getCategoryNames());
+    }
+
+    /**
+     * 按 created_at、id 倒序分页读取，after 为上一页的最后一本（第一页传 null），走 (created_at, id) 索引。
+     * created_at 为空的行排在最后。
+     */
+    public List<Book> getBooksPage(Book after, int limit) {
+        String limitArg = String.valueOf(limit);
+        if (after == null) {
+            return queryBooks("SELECT data FROM books ORDER BY created_at DESC, id DESC LIMIT ?",
+                    new String[]{limitArg}, getCategoryNames());
+        }
+        String afterId = String.valueOf(after.getId());
+        if (after.getCreatedAt() == null) {
+            return queryBooks("SELECT data FROM books WHERE created_at IS NULL AND id < ? ORDER BY id DESC LIMIT ?",
+                    new String[]{afterId, limitArg}, getCategoryNames());
+        }
+        String createdAt = after.getCreatedAt();
+        return queryBooks("SELECT data FROM books WHERE created_at < ? OR (created_at = ? AND id < ?) "
+                        + "OR created_at IS NULL ORDER BY created_at DESC, id DESC LIMIT ?",
+                new String[]{createdAt, createdAt, afterId, limitArg}, getCategoryNames());
+    }
+
+    public List<Book> getBooks(Collection<Integer> ids) {
+        Map<Long, String> categoryNames = getCategoryNames();
+        List<Book> books = new ArrayList<>();
+        List<Integer> idList = new ArrayList<>(ids);
+        for (int start = 0; start < idList.size(); start += ID_BATCH_SIZE) {
+            List<Integer> batch = idList.subList(start, Math.min(start + ID_BATCH_SIZE, idList.size()));
+            StringBuilder placeholders = new StringBuilder();
+            String[] args = new String[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+                placeholders.append(i == 0 ? "?" : ",?");
+                args[i] = String.valueOf(batch.get(i));
+            }
+            books.addAll(queryBooks("SELECT data FROM books WHERE id IN (" + placeholders + ")", args,
+                    categoryNames));
+        }
+        return books;
+    }
+
+    // categoryNames 由调用方每次读取取一次，分批查询时不重复读分类表
+    private List<Book> queryBooks(String sql, String[] args, Map<Long, String> categoryNames) {
+        List<Book> books = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(sql, args)) {
+            while (cursor.moveToNext()) {
+                Book book = parse(cursor.getString(0), Book.class);
+                if (book == null) continue;
+                // 分类名称不随图书行同步，按本地分类表补上，分类改名后也能立即反映
+                String categoryName = categoryNames.get((long) book.getCategoryId());
+                if (categoryName != null) {
+                    book.setCategory(categoryName);
+                }
+                books.add(book);
+            }
+        }
+        return books;
+    }
+
+    private Map<Long, String> getCategoryNames() {
+        Map<Long, String> names = new HashMap<>();
+        for (Category category : getCategories()) {
+            names.put(category.getId(), category.getName());
+        }
+        return names;
+    }
+
+    public List<Category> getCategories() {
+        List<Category> categories = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT data FROM categories ORDER BY level, parent_id, code", null)) {
+            while (cursor.moveToNext()) {
+                Category category = parse(cursor.getString(0), Category.class);
+                if (category != null) {
+                    categories.add(category);
+                }
+            }
+        }
+        return categories;
+    }
+
+    public List<Borrow> getBorrows() {
+        Map<Integer, Book> books = new HashMap<>();
+        for (Book book : queryBooks("SELECT data FROM books WHERE id IN (SELECT book_id FROM borrows)", null,
+                getCategoryNames())) {
+            books.put(book.getId(), book);
+        }
+
+        List<Borrow> borrows = readBorrows();
+        for (Borrow borrow : borrows) {
+            borrow.setBook(books.get(borrow.getBookId()));
+        }
+        // 按解析好的毫秒数排序：服务器行和乐观插入的行时间字符串格式不同，按字符串排序会错位
+        Collections.sort(borrows, (a, b) -> {
+            int byTime = Long.compare(b.getCreatedAtMillis(), a.getCreatedAtMillis());
+            return byTime != 0 ? byTime : Integer.compare(b.getId(), a.getId());
+        });
+        return borrows;
+    }
+
+    private List<Borrow> readBorrows() {
+        List<Borrow> borrows = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT data FROM borrows", null)) {
+            while (cursor.moveToNext()) {
+                Borrow borrow = parse(cursor.getString(0), Borrow.class);
+                if (borrow != null) {
+                    borrows.add(borrow);
+                }
+            }
+        }
+        return borrows;
+    }
+
+    // 概览只需要计数，直接在副本上统计；借阅的逾期和天数用解析好的毫秒数比较
+    public Statistics getStatistics() {
+        Statistics stats = new Statistics();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT COUNT(*), SUM(status = 'borrowed'), SUM(status = 'available') FROM books", null)) {
+            if (cursor.moveToFirst()) {
+                stats.setTotalBooks(cursor.getInt(0));
+                stats.setBorrowedBooks(cursor.getInt(1));
+                stats.setAvailableBooks(cursor.getInt(2));
+            }
+        }
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT COUNT(*) FROM categories", null)) {
+            if (cursor.moveToFirst()) {
+                stats.setTotalCategories(cursor.getInt(0));
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        int active = 0;
+        int overdue = 0;
+        int returned = 0;
+        long borrowedMillis = 0;
+        List<Borrow> borrows = readBorrows();
+        for (Borrow borrow : borrows) {
+            if (borrow.isBorrowed()) {
+                active++;
+                if (borrow.isOverdue(now)) {
+                    overdue++;
+                }
+            } else if (borrow.getReturnDateMillis() != DateCodec.UNKNOWN
+                    && borrow.getBorrowDateMillis() != DateCodec.UNKNOWN) {
+                returned++;
+                borrowedMillis += borrow.getReturnDateMillis() - borrow.getBorrowDateMillis();
+            }
+        }
+        stats.setTotalBorrows(borrows.size());
+        stats.setActiveBorrows(active);
+        stats.setOverdueBorrows(overdue);
+        if (returned > 0) {
+            stats.setAverageBorrowDays((double) borrowedMillis / returned / DateCodec.DAY_MILLIS);
+        }
+        return stats;
+    }
+
+    private <T> T parse(String json, Class<T> type) {
+        try {
+            return gson.fromJson(json, type);
+        } catch (JsonSyntaxException e) {
+            Log.w(TAG, "无法解析本地数据: " + type.getSimpleName(), e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.library.management.data;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.library.management.api.ApiClient;
+import com.library.management.api.ApiService;
+import com.library.management.model.ApiResponse;
+import com.library.management.model.Book;
+import com.library.management.model.Borrow;
+import com.library.management.model.ModelTypeAdapterFactory;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * 借阅、归还、新增图书的写操作队列。
+ * 操作先写入 LocalStore 并乐观地应用到副本，再在后台按顺序提交到服务器；
+ * 网络错误或服务器5xx时按指数退避重试，每个操作带固定的 Idempotency-Key，重试不会重复执行。
+ * 幂等键只在记录了它的那台服务器上有效：主服务器已执行但响应丢失，之后的重试若转到备用服务器，
+ * 备用服务器会再执行一次。BaseUrlInterceptor 只在连接没建立时转移写请求，缩小了这个窗口，但不能消除。
+ */
+public class Outbox {
+
+    private static final String TAG = "Outbox";
+    private static final long INITIAL_BACKOFF_MS = 2000;
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000;
+
+    public interface Listener {
+        // 排队的操作已提交并同步回副本，界面可以重新读取
+        void onOutboxSynced();
+
+        // 服务器拒绝了操作（例如图书已被别人借出），本地的乐观修改会在下次同步时撤销
+        void onOperationRejected(OutboxEntry entry, String message);
+    }
+
+    private enum Outcome { SUCCESS, REJECTED, RETRY }
+
+    // 一次提交的结果；serverId 为服务器新分配的ID，message 为失败原因
+    private static final class Result {
+        final Outcome outcome;
+        final Integer serverId;
+        final String message;
+
+        Result(Outcome outcome, Integer serverId, String message) {
+            this.outcome = outcome;
+            this.serverId = serverId;
+            this.message = message;
+        }
+    }
+
+    private static Outbox instance;
+
+    private final LocalStore store;
+    private final ApiClient apiClient;
+    private final SyncManager syncManager;
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapterFactory(new ModelTypeAdapterFactory())
+            .create();
+    private final Random random = new Random();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // 只在 executor 线程上访问
+    private ScheduledFuture<?> pendingRetry;
+
+    private Outbox(Context context) {
+        syncManager = SyncManager.getInstance(context);
+        store = syncManager.getStore();
+        apiClient = ApiClient.getInstance(context);
+
+        // 网络恢复时不必等退避结束
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager != null) {
+            connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    executor.execute(() -> {
+                        if (pendingRetry != null) {
+                            pendingRetry.cancel(false);
+                            pendingRetry = null;
+                            drain();
+                        }
+                    });
+                }
+            });
+        }
+
+        // 上次退出时没提交完的操作
+        executor.execute(this::drain);
+    }
+
+    public static synchronized Outbox getInstance(Context context) {
+        if (instance == null) {
+            instance = new Outbox(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public void borrow(int bookId, String borrower, String dueDate, Runnable onQueued) {
+        JsonObject payload = new JsonObject();
+        payload.addProperty("bookId", bookId);
+        payload.addProperty("borrower", borrower);
+        payload.addProperty("dueDate", dueDate);
+        enqueue(OutboxEntry.OP_BORROW, payload, onQueued);
+    }
+
+    public void returnBorrow(int borrowId, Runnable onQueued) {
+        JsonObject payload = new JsonObject();
+        payload.addProperty("borrowId", borrowId);
+        enqueue(OutboxEntry.OP_RETURN, payload, onQueued);
+    }
+
+    public void createBook(Book book, Runnable onQueued) {
+        enqueue(OutboxEntry.OP_CREATE_BOOK, gson.toJsonTree(book).getAsJsonObject(), onQueued);
+    }
+
+    /**
+     * 持久化操作并应用到副本后在主线程回调 onQueued（可为null），随后尝试提交。
+     */
+    private void enqueue(String op, JsonObject payload, Runnable onQueued) {
+        executor.execute(() -> {
+            store.addOutboxEntry(op, payload);
+            if (onQueued != null) {
+                mainHandler.post(onQueued);
+            }
+            drain();
+        });
+    }
+
+    // 按顺序提交队列中的操作，遇到需要重试的操作时停下等待退避
+    private void drain() {
+        if (pendingRetry != null) return;
+
+        boolean processed = false;
+        OutboxEntry entry;
+        while ((entry = store.peekOutbox()) != null) {
+            Result result;
+            try {
+                result = send(entry);
+            } catch (IOException e) {
+                result = new Result(Outcome.RETRY, null, e.getMessage());
+            }
+
+            if (result.outcome == Outcome.SUCCESS) {
+                store.completeOutboxEntry(entry, result.serverId);
+                processed = true;
+            } else if (result.outcome == Outcome.REJECTED) {
+                store.rejectOutboxEntry(entry);
+                notifyRejected(entry, result.message);
+                processed = true;
+            } else {
+                store.recordOutboxFailure(entry.getId(), result.message);
+                scheduleRetry(entry.getAttempts() + 1, result.message);
+                break;
+            }
+        }
+
+        if (processed) {
+            syncManager.sync((changed, error) -> {
+                for (Listener listener : listeners) {
+                    listener.onOutboxSynced();
+                }
+            });
+        }
+    }
+
+    private void scheduleRetry(int attempts, String reason) {
+        long backoff = Math.min(INITIAL_BACKOFF_MS << Math.min(attempts - 1, 20), MAX_BACKOFF_MS);
+        // 加抖动，避免多台设备在网络恢复后同时重试
+        long delay = backoff / 2 + (long) (random.nextDouble() * backoff / 2);
+        Log.d(TAG, "提交失败，" + delay + "ms 后重试: " + reason);
+        pendingRetry = executor.schedule(() -> {
+            pendingRetry = null;
+            drain();
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private Result send(OutboxEntry entry) throws IOException {
+        ApiService apiService = apiClient.getApiService();
+        JsonObject payload = entry.getPayload();
+        String key = entry.getIdempotencyKey();
+
+        switch (entry.getOp()) {
+            case OutboxEntry.OP_BORROW:
+                if (payload.get("bookId").getAsInt() < 0) {
+                    // 借的是一本没有提交成功的新书，这条借阅也就无从提交
+                    return new Result(Outcome.REJECTED, null, "图书不存在");
+                }
+                return execute(apiService.createBorrow(
+                        gson.fromJson(payload, ApiService.BorrowRequest.class), key), Borrow::getId);
+            case OutboxEntry.OP_RETURN: {
+                int borrowId = payload.get("borrowId").getAsInt();
+                if (borrowId < 0) {
+                    // 对应的借阅没有提交成功，这条归还也就无从提交
+                    return new Result(Outcome.REJECTED, null, "借阅记录不存在");
+                }
+                return execute(apiService.returnBook(borrowId, key), null);
+            }
+            case OutboxEntry.OP_CREATE_BOOK:
+                return execute(apiService.createBook(gson.fromJson(payload, Book.class), key), Book::getId);
+            default:
+                return new Result(Outcome.REJECTED, null, "未知的操作: " + entry.getOp());
+        }
+    }
+
+    private <T> Result execute(Call<ApiResponse<T>> call, Function<T, Integer> idOf) throws IOException {
+        Response<ApiResponse<T>> response = call.execute();
+
+        if (response.isSuccessful() && response.body() != null && response.body().isSuccess()) {
+            T data = response.body().getData();
+            Integer serverId = data != null && idOf != null ? idOf.apply(data) : null;
+            return new Result(Outcome.SUCCESS, serverId, null);
+        }
+
+        int code = response.code();
+        // 4xx 是业务上的拒绝，重试也不会成功；超时和限流除外
+        boolean clientError = code >= 400 && code < 500 && code != 408 && code != 429;
+        Outcome outcome = clientError || response.isSuccessful() ? Outcome.REJECTED : Outcome.RETRY;
+        return new Result(outcome, null, errorMessage(response));
+    }
+
+    private String errorMessage(Response<?> response) {
+        if (response.body() instanceof ApiResponse) {
+            return ((ApiResponse<?>) response.body()).getMessage();
+        }
+        try {
+            if (response.errorBody() != null) {
+                ApiResponse<?> error = gson.fromJson(response.errorBody().charStream(), ApiResponse.class);
+                if (error != null && error.getMessage() != null) {
+                    return error.getMessage();
+                }
+            }
+        } catch (Exception e) {
+            // 错误响应不是JSON时使用状态码
+        }
+        return "HTTP " + response.code();
+    }
+
+    private void notifyRejected(OutboxEntry entry, String message) {
+        mainHandler.post(() -> {
+            for (Listener listener : listeners) {
+                listener.onOperationRejected(entry, message);
+            }
+        });
+    }
+}
@@ -0,0 +1,50 @@
+package com.library.management.data;
+
+import com.google.gson.JsonObject;
+
+/**
+ * 待提交到服务器的一次写操作。
+ */
+public class OutboxEntry {
+
+    public static final String OP_BORROW = "borrow";
+    public static final String OP_RETURN = "return";
+    public static final String OP_CREATE_BOOK = "create_book";
+
+    private final long id;
+    private final String op;
+    private final String idempotencyKey;
+    private final JsonObject payload;
+    private final int attempts;
+    private final long createdAt;
+
+    OutboxEntry(long id, String op, String idempotencyKey, JsonObject payload, int attempts, long createdAt) {
+        this.id = id;
+        this.op = op;
+        this.idempotencyKey = idempotencyKey;
+        this.payload = payload;
+        this.attempts = attempts;
+        this.createdAt = createdAt;
+    }
+
+    public long getId() { return id; }
+    public String getOp() { return op; }
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public JsonObject getPayload() { return payload; }
+    public int getAttempts() { return attempts; }
+    public long getCreatedAt() { return createdAt; }
+
+    // 乐观插入的借阅记录或图书在服务器分配ID之前使用的临时ID，取负数避免与服务器ID冲突
+    public int getTempId() {
+        return (int) -id;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxEntry{" +
+                "id=" + id +
+                ", op='" + op + '\'' +
+                ", attempts=" + attempts +
+                '}';
+    }
+}
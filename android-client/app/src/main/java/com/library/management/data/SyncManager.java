@@ -0,0 +1,193 @@
+package com.library.management.data;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.google.gson.JsonObject;
+import com.library.management.api.ApiClient;
+import com.library.management.model.ApiResponse;
+import com.library.management.model.SyncChanges;
+import com.library.management.search.BookSearchIndex;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import okhttp3.HttpUrl;
+import retrofit2.Response;
+
+/**
+ * 从服务器拉取上次同步之后的增量变更写入 LocalStore，并同步更新本地搜索索引。
+ * 游标只对发出它的服务器有效，故障转移到另一台服务器后清空副本重新完整同步。
+ */
+public class SyncManager {
+
+    private static final String TAG = "SyncManager";
+    private static final int BATCH_SIZE = 500;
+
+    public interface Listener {
+        // 在主线程回调；changed 表示副本有变化，error 为null表示同步成功
+        void onSyncFinished(boolean changed, String error);
+    }
+
+    private static SyncManager instance;
+
+    private final LocalStore store;
+    private final ApiClient apiClient;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // 以下字段由 this 保护
+    private final List<Listener> listeners = new ArrayList<>();
+    private boolean running;
+    private boolean rerun;
+
+    private SyncManager(Context context) {
+        store = LocalStore.getInstance(context);
+        apiClient = ApiClient.getInstance(context);
+    }
+
+    public static synchronized SyncManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new SyncManager(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public LocalStore getStore() {
+        return store;
+    }
+
+    /**
+     * 发起一次同步，listener 可为null。
+     * 同步进行中再次调用不会并发请求，而是在本轮结束后接着再拉一次，保证调用之前的写入能同步下来。
+     */
+    public void sync(Listener listener) {
+        synchronized (this) {
+            if (listener != null) {
+                listeners.add(listener);
+            }
+            if (running) {
+                rerun = true;
+                return;
+            }
+            running = true;
+        }
+        executor.execute(this::runSync);
+    }
+
+    private void runSync() {
+        boolean changed = false;
+        String error = null;
+        do {
+            synchronized (this) {
+                rerun = false;
+            }
+            try {
+                changed |= pullChanges();
+            } catch (Exception e) {
+                Log.w(TAG, "同步失败", e);
+                error = e.getMessage();
+            }
+        } while (error == null && shouldRerun());
+
+        List<Listener> finished;
+        synchronized (this) {
+            finished = new ArrayList<>(listeners);
+            listeners.clear();
+            running = false;
+        }
+        boolean result = changed;
+        String message = error;
+        mainHandler.post(() -> {
+            for (Listener listener : finished) {
+                listener.onSyncFinished(result, message);
+            }
+        });
+    }
+
+    private synchronized boolean shouldRerun() {
+        return rerun;
+    }
+
+    private boolean pullChanges() throws IOException {
+        long cursor = store.getSyncCursor();
+        boolean changed = false;
+        boolean categoriesChanged = false;
+        Set<Integer> upsertedBooks = new HashSet<>();
+        Set<Integer> deletedBooks = new HashSet<>();
+
+        boolean more = true;
+        while (more) {
+            Response<ApiResponse<SyncChanges>> response = apiClient.getApiService()
+                    .getChanges(cursor, BATCH_SIZE)
+                    .execute();
+            if (!response.isSuccessful() || response.body() == null || !response.body().isSuccess()
+                    || response.body().getData() == null) {
+                throw new IOException("获取同步数据失败: HTTP " + response.code());
+            }
+            SyncChanges changes = response.body().getData();
+            String server = serverOf(response);
+            if (cursor != 0 && !server.equals(store.getSyncServer())) {
+                // 游标是另一台服务器的序号，这一批的起点不对，丢弃后从头同步
+                Log.i(TAG, "同步服务器已切换到 " + server + "，重新完整同步");
+                store.resetReplica();
+                changed = true;
+                categoriesChanged = true;
+                cursor = 0;
+                continue;
+            }
+            store.applyChanges(changes, server);
+
+            if (changes.isReset()) {
+                // 副本已清空，从头拉取
+                changed = true;
+                categoriesChanged = true;
+                cursor = 0;
+                continue;
+            }
+            if (!changes.isEmpty()) {
+                changed = true;
+                categoriesChanged |= !changes.getCategories().isEmpty()
+                        || !changes.getDeleted().getCategories().isEmpty();
+            }
+            for (JsonObject row : changes.getBooks()) {
+                int id = row.get("id").getAsInt();
+                upsertedBooks.add(id);
+                deletedBooks.remove(id);
+            }
+            for (Integer id : changes.getDeleted().getBooks()) {
+                deletedBooks.add(id);
+                upsertedBooks.remove(id);
+            }
+            cursor = changes.getCursor();
+            more = changes.hasMore();
+        }
+
+        updateSearchIndex(changed, categoriesChanged, upsertedBooks, deletedBooks);
+        return changed;
+    }
+
+    // 实际应答的服务器；BaseUrlInterceptor 可能在请求中途转到了备用服务器
+    private static String serverOf(Response<?> response) {
+        HttpUrl url = response.raw().request().url();
+        return url.scheme() + "://" + url.host() + ":" + url.port();
+    }
+
+    private void updateSearchIndex(boolean changed, boolean categoriesChanged,
+                                   Set<Integer> upsertedBooks, Set<Integer> deletedBooks) {
+        BookSearchIndex index = BookSearchIndex.getInstance();
+        if (!index.isComplete() || categoriesChanged) {
+            // 首次同步，或分类名称变化影响了所有图书的显示，整体重建
+            index.rebuildAsync(store.getBooks(), null);
+        } else if (changed) {
+            for (Integer id : deletedBooks) {
+                index.remove(id);
+            }
+            index.putAll(store.getBooks(upsertedBooks));
+        }
+    }
+}
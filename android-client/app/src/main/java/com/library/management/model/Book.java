@@ -24,6 +24,9 @@ public class Book {
     @SerializedName("category_id")
     private int categoryId;
     
+    @SerializedName("category_name")
+    private String category;
+    
     @SerializedName("cover_url")
     private String coverUrl;
     
@@ -56,6 +59,8 @@ public class Book {
     
     private Borrow currentBorrow; // 当前借阅信息（如果已借出）
     
+    private transient String location; // getLocation() 的缓存，位置字段修改时清空
+    
     // 构造函数
     public Book() {}
     
@@ -98,6 +103,9 @@ public class Book {
     public int getCategoryId() { return categoryId; }
     public void setCategoryId(int categoryId) { this.categoryId = categoryId; }
     
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+    
     public String getCoverUrl() { return coverUrl; }
     public void setCoverUrl(String coverUrl) { this.coverUrl = coverUrl; }
     
@@ -105,19 +113,19 @@ public class Book {
     public void setDescription(String description) { this.description = description; }
     
     public String getRoom() { return room; }
-    public void setRoom(String room) { this.room = room; }
+    public void setRoom(String room) { this.room = room; location = null; }
     
     public String getShelf() { return shelf; }
-    public void setShelf(String shelf) { this.shelf = shelf; }
+    public void setShelf(String shelf) { this.shelf = shelf; location = null; }
     
     public int getRow() { return row; }
-    public void setRow(int row) { this.row = row; }
+    public void setRow(int row) { this.row = row; location = null; }
     
     public int getColumn() { return column; }
-    public void setColumn(int column) { this.column = column; }
+    public void setColumn(int column) { this.column = column; location = null; }
     
     public int getNumber() { return number; }
-    public void setNumber(int number) { this.number = number; }
+    public void setNumber(int number) { this.number = number; location = null; }
     
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
@@ -133,7 +141,10 @@ public class Book {
     
     // 辅助方法
     public String getLocation() {
-        return room + "-" + shelf + "-" + row + "-" + column + "-" + number;
+        if (location == null) {
+            location = room + "-" + shelf + "-" + row + "-" + column + "-" + number;
+        }
+        return location;
     }
     
     public boolean isAvailable() {
@@ -0,0 +1,52 @@
+package com.library.management.model;
+
+import com.google.gson.annotations.SerializedName;
+import java.util.List;
+
+public class BookPage {
+    @SerializedName("books")
+    private List<Book> books;
+    
+    // 下一页游标，最后一页为null
+    @SerializedName("nextCursor")
+    private String nextCursor;
+    
+    @SerializedName("hasMore")
+    private boolean hasMore;
+    
+    // 只有请求 include_total=true 时才返回
+    @SerializedName("total")
+    private Integer total;
+    
+    @SerializedName("limit")
+    private Integer limit;
+    
+    // 构造函数
+    public BookPage() {}
+    
+    // Getter和Setter方法
+    public List<Book> getBooks() { return books; }
+    public void setBooks(List<Book> books) { this.books = books; }
+    
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+    
+    public boolean hasMore() { return hasMore; }
+    public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+    
+    public Integer getTotal() { return total; }
+    public void setTotal(Integer total) { this.total = total; }
+    
+    public Integer getLimit() { return limit; }
+    public void setLimit(Integer limit) { this.limit = limit; }
+    
+    @Override
+    public String toString() {
+        return "BookPage{" +
+                "books=" + (books != null ? books.size() : 0) +
+                ", nextCursor='" + nextCursor + '\'' +
+                ", hasMore=" + hasMore +
+                ", total=" + total +
+                '}';
+    }
+}
@@ -31,13 +31,19 @@ public class Borrow {
     @SerializedName("book")
     private Book book;
     
+    // 设置日期字符串时由 DateCodec 解析一次，比较和排序直接用毫秒数；没有值时为 DateCodec.UNKNOWN
+    private transient long borrowDateMillis = DateCodec.UNKNOWN;
+    private transient long dueDateMillis = DateCodec.UNKNOWN;
+    private transient long returnDateMillis = DateCodec.UNKNOWN;
+    private transient long createdAtMillis = DateCodec.UNKNOWN;
+    
     // 构造函数
     public Borrow() {}
     
     public Borrow(int bookId, String borrower, String dueDate) {
         this.bookId = bookId;
         this.borrower = borrower;
-        this.dueDate = dueDate;
+        setDueDate(dueDate);
         this.status = "borrowed";
     }
     
@@ -52,19 +58,36 @@ public class Borrow {
     public void setBorrower(String borrower) { this.borrower = borrower; }
     
     public String getBorrowDate() { return borrowDate; }
-    public void setBorrowDate(String borrowDate) { this.borrowDate = borrowDate; }
+    public void setBorrowDate(String borrowDate) {
+        this.borrowDate = borrowDate;
+        this.borrowDateMillis = DateCodec.parse(borrowDate);
+    }
     
     public String getDueDate() { return dueDate; }
-    public void setDueDate(String dueDate) { this.dueDate = dueDate; }
+    public void setDueDate(String dueDate) {
+        this.dueDate = dueDate;
+        this.dueDateMillis = DateCodec.parse(dueDate);
+    }
     
     public String getReturnDate() { return returnDate; }
-    public void setReturnDate(String returnDate) { this.returnDate = returnDate; }
+    public void setReturnDate(String returnDate) {
+        this.returnDate = returnDate;
+        this.returnDateMillis = DateCodec.parse(returnDate);
+    }
     
     public String getStatus() { return status; }
     public void setStatus(String status) { this.status = status; }
     
     public String getCreatedAt() { return createdAt; }
-    public void setCreatedAt(String createdAt) { this.createdAt = createdAt; }
+    public void setCreatedAt(String createdAt) {
+        this.createdAt = createdAt;
+        this.createdAtMillis = DateCodec.parse(createdAt);
+    }
+    
+    public long getBorrowDateMillis() { return borrowDateMillis; }
+    public long getDueDateMillis() { return dueDateMillis; }
+    public long getReturnDateMillis() { return returnDateMillis; }
+    public long getCreatedAtMillis() { return createdAtMillis; }
     
     public Book getBook() { return book; }
     public void setBook(Book book) { this.book = book; }
@@ -79,16 +102,12 @@ public class Borrow {
     }
     
     public boolean isOverdue() {
-        if (!isBorrowed() || dueDate == null) {
-            return false;
-        }
-        // 简单的日期比较，实际应用中应该使用更精确的日期处理
-        try {
-            long dueDateMillis = java.sql.Timestamp.valueOf(dueDate.replace("T", " ").replace("Z", "")).getTime();
-            return System.currentTimeMillis() > dueDateMillis;
-        } catch (Exception e) {
-            return false;
-        }
+        return isOverdue(System.currentTimeMillis());
+    }
+    
+    // 与服务器 due_date < date('now') 相同：应还日期早于当天（UTC）才算逾期
+    public boolean isOverdue(long now) {
+        return isBorrowed() && dueDateMillis != DateCodec.UNKNOWN && dueDateMillis < DateCodec.startOfDay(now);
     }
     
     @Override
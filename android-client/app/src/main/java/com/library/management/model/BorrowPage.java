@@ -0,0 +1,84 @@
+package com.library.management.model;
+
+import com.google.gson.annotations.SerializedName;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * include=books 形式的借阅列表：借阅记录只带 book_id，引用的图书去重后放在 books 字典中。
+ * 第一次读取 borrows 时把 book_id 解析成字典里的 Book，借同一本书的记录共用一个实例。
+ */
+public class BorrowPage {
+    @SerializedName("borrows")
+    private List<Borrow> borrows;
+
+    @SerializedName("books")
+    private Map<Integer, Book> books;
+
+    @SerializedName("total")
+    private Integer total;
+
+    @SerializedName("page")
+    private Integer page;
+
+    @SerializedName("limit")
+    private Integer limit;
+
+    private transient boolean resolved;
+
+    // 构造函数
+    public BorrowPage() {}
+
+    // Getter和Setter方法
+    public synchronized List<Borrow> getBorrows() {
+        if (!resolved) {
+            resolveBooks();
+            resolved = true;
+        }
+        return borrows != null ? borrows : Collections.emptyList();
+    }
+
+    public synchronized void setBorrows(List<Borrow> borrows) {
+        this.borrows = borrows;
+        resolved = false;
+    }
+
+    public Map<Integer, Book> getBooks() {
+        return books != null ? books : Collections.emptyMap();
+    }
+
+    public synchronized void setBooks(Map<Integer, Book> books) {
+        this.books = books;
+        resolved = false;
+    }
+
+    public Integer getTotal() { return total; }
+    public void setTotal(Integer total) { this.total = total; }
+
+    public Integer getPage() { return page; }
+    public void setPage(Integer page) { this.page = page; }
+
+    public Integer getLimit() { return limit; }
+    public void setLimit(Integer limit) { this.limit = limit; }
+
+    private void resolveBooks() {
+        if (borrows == null || books == null) return;
+        for (Borrow borrow : borrows) {
+            // 字典里没有的（图书已被删除）保持为null
+            Book book = books.get(borrow.getBookId());
+            if (book != null) {
+                borrow.setBook(book);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BorrowPage{" +
+                "borrows=" + (borrows != null ? borrows.size() : 0) +
+                ", books=" + (books != null ? books.size() : 0) +
+                ", total=" + total +
+                '}';
+    }
+}
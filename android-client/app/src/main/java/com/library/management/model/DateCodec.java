@@ -0,0 +1,142 @@
+package com.library.management.model;
+
+/**
+ * 服务器时间字符串与 UTC 毫秒数之间的转换，无状态、线程安全。
+ * 支持 SQLite 的 "yyyy-MM-dd HH:mm:ss"、只有日期的 "yyyy-MM-dd" 和 ISO 8601（可带毫秒和时区）。
+ * 没有时区的时间按 UTC 处理，与服务器 CURRENT_TIMESTAMP 和 date('now') 一致。
+ */
+public final class DateCodec {
+
+    // 解析失败或没有值
+    public static final long UNKNOWN = Long.MIN_VALUE;
+
+    public static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private DateCodec() {}
+
+    public static long parse(String text) {
+        if (text == null || text.length() < 10) return UNKNOWN;
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31
+                || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return UNKNOWN;
+        }
+
+        long millis = daysFromCivil(year, month, day) * DAY_MILLIS;
+        int length = text.length();
+        if (length == 10) return millis;
+
+        char separator = text.charAt(10);
+        if ((separator != 'T' && separator != ' ') || length < 16 || text.charAt(13) != ':') return UNKNOWN;
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) return UNKNOWN;
+        millis += (hour * 60L + minute) * 60_000L;
+
+        int pos = 16;
+        if (pos < length && text.charAt(pos) == ':') {
+            int second = digits(text, pos + 1, 2);
+            if (second < 0 || second > 60) return UNKNOWN;
+            millis += second * 1000L;
+            pos += 3;
+            if (pos < length && text.charAt(pos) == '.') {
+                // 小数秒只取前三位
+                pos++;
+                int fraction = 0;
+                int scale = 100;
+                while (pos < length && Character.isDigit(text.charAt(pos))) {
+                    fraction += (text.charAt(pos) - '0') * scale;
+                    scale /= 10;
+                    pos++;
+                }
+                millis += fraction;
+            }
+        }
+
+        if (pos == length) return millis;
+        char zone = text.charAt(pos);
+        if (zone == 'Z' && pos + 1 == length) return millis;
+        if ((zone == '+' || zone == '-') && pos + 3 <= length) {
+            int offsetHour = digits(text, pos + 1, 2);
+            int minutePos = pos + 3 < length && text.charAt(pos + 3) == ':' ? pos + 4 : pos + 3;
+            int offsetMinute = minutePos < length ? digits(text, minutePos, 2) : 0;
+            if (offsetHour < 0 || offsetMinute < 0) return UNKNOWN;
+            long offset = (offsetHour * 60L + offsetMinute) * 60_000L;
+            return zone == '+' ? millis - offset : millis + offset;
+        }
+        return UNKNOWN;
+    }
+
+    // 与服务器 CURRENT_TIMESTAMP 相同的格式（UTC）
+    public static String formatTimestamp(long millis) {
+        long days = Math.floorDiv(millis, DAY_MILLIS);
+        long secondsOfDay = Math.floorMod(millis, DAY_MILLIS) / 1000;
+        char[] out = new char[19];
+        writeDate(out, days);
+        out[10] = ' ';
+        write2(out, 11, (int) (secondsOfDay / 3600));
+        out[13] = ':';
+        write2(out, 14, (int) (secondsOfDay / 60 % 60));
+        out[16] = ':';
+        write2(out, 17, (int) (secondsOfDay % 60));
+        return new String(out);
+    }
+
+    // "yyyy-MM-dd"（UTC）
+    public static String formatDate(long millis) {
+        char[] out = new char[10];
+        writeDate(out, Math.floorDiv(millis, DAY_MILLIS));
+        return new String(out);
+    }
+
+    // 所在 UTC 日期的零点
+    public static long startOfDay(long millis) {
+        return Math.floorDiv(millis, DAY_MILLIS) * DAY_MILLIS;
+    }
+
+    private static int digits(String text, int start, int count) {
+        if (start + count > text.length()) return -1;
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    // 公历日期到 1970-01-01 的天数
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    private static void writeDate(char[] out, long days) {
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        write2(out, 0, year / 100);
+        write2(out, 2, year % 100);
+        out[4] = '-';
+        write2(out, 5, month);
+        out[7] = '-';
+        write2(out, 8, day);
+    }
+
+    private static void write2(char[] out, int pos, int value) {
+        out[pos] = (char) ('0' + value / 10);
+        out[pos + 1] = (char) ('0' + value % 10);
+    }
+}
@@ -0,0 +1,690 @@
+package com.library.management.model;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * model 包中各类的手写 TypeAdapter，不经过 Gson 的反射：首次使用不用扫描字段，开启 R8 后也不受字段改名影响。
+ * 数字字段兼容字符串和空串（数据库里 row、column、number 等列是 VARCHAR，默认值为 ''），
+ * 状态字符串解析后换成常量，列表中大量重复的状态只保留一份。
+ * 新增或修改模型字段时需要同步修改这里对应的 read/write。
+ */
+public class ModelTypeAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> raw = type.getRawType();
+        TypeAdapter<?> adapter;
+        if (raw == Book.class) {
+            adapter = new BookAdapter(gson);
+        } else if (raw == Borrow.class) {
+            adapter = new BorrowAdapter(gson);
+        } else if (raw == Category.class) {
+            adapter = new CategoryAdapter();
+        } else if (raw == Statistics.class) {
+            adapter = new StatisticsAdapter(gson);
+        } else if (raw == Statistics.CategoryStat.class) {
+            adapter = new CategoryStatAdapter();
+        } else if (raw == BookPage.class) {
+            adapter = new BookPageAdapter(gson);
+        } else if (raw == BorrowPage.class) {
+            adapter = new BorrowPageAdapter(gson);
+        } else if (raw == SyncChanges.class) {
+            adapter = new SyncChangesAdapter(gson);
+        } else if (raw == SyncChanges.Deleted.class) {
+            adapter = new DeletedAdapter();
+        } else if (raw == ApiResponse.class) {
+            // ApiResponse<T> 的 data 按实际的类型参数解析
+            Type dataType = type.getType() instanceof ParameterizedType
+                    ? ((ParameterizedType) type.getType()).getActualTypeArguments()[0]
+                    : Object.class;
+            adapter = new ApiResponseAdapter<>(gson.getAdapter(TypeToken.get(dataType)));
+        } else {
+            return null;
+        }
+        return (TypeAdapter<T>) adapter.nullSafe();
+    }
+
+    // 状态只有少数几个取值，换成字符串常量
+    static String status(String value) {
+        if (value == null) return null;
+        switch (value) {
+            case "available": return "available";
+            case "borrowed": return "borrowed";
+            case "returned": return "returned";
+            case "maintenance": return "maintenance";
+            case "overdue": return "overdue";
+            default: return value;
+        }
+    }
+
+    static String readString(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case NULL:
+                in.nextNull();
+                return null;
+            case BOOLEAN:
+                return String.valueOf(in.nextBoolean());
+            case STRING:
+            case NUMBER:
+                return in.nextString();
+            default:
+                in.skipValue();
+                return null;
+        }
+    }
+
+    static int readInt(JsonReader in) throws IOException {
+        Long value = readLong(in);
+        return value != null ? value.intValue() : 0;
+    }
+
+    static Integer readNullableInt(JsonReader in) throws IOException {
+        Long value = readLong(in);
+        return value != null ? value.intValue() : null;
+    }
+
+    // 数字、数字字符串都接受；空串、null 和无法解析的值返回 null
+    static Long readLong(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case NUMBER:
+                try {
+                    return in.nextLong();
+                } catch (NumberFormatException e) {
+                    return (long) in.nextDouble();
+                }
+            case STRING:
+                return parseLong(in.nextString());
+            case BOOLEAN:
+                return in.nextBoolean() ? 1L : 0L;
+            case NULL:
+                in.nextNull();
+                return null;
+            default:
+                in.skipValue();
+                return null;
+        }
+    }
+
+    private static Long parseLong(String value) {
+        String trimmed = value.trim();
+        if (trimmed.isEmpty()) return null;
+        try {
+            return Long.parseLong(trimmed);
+        } catch (NumberFormatException e) {
+            try {
+                return (long) Double.parseDouble(trimmed);
+            } catch (NumberFormatException ignored) {
+                return null;
+            }
+        }
+    }
+
+    static double readDouble(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case NUMBER:
+                return in.nextDouble();
+            case STRING:
+                try {
+                    return Double.parseDouble(in.nextString().trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            default:
+                in.skipValue();
+                return 0;
+        }
+    }
+
+    // SQLite 没有布尔类型，也接受 0/1
+    static boolean readBoolean(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case BOOLEAN:
+                return in.nextBoolean();
+            case NUMBER:
+                return in.nextInt() != 0;
+            case STRING:
+                String value = in.nextString();
+                return "true".equals(value) || "1".equals(value);
+            default:
+                in.skipValue();
+                return false;
+        }
+    }
+
+    static <E> List<E> readList(JsonReader in, TypeAdapter<E> adapter) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_ARRAY) {
+            in.skipValue();
+            return null;
+        }
+        List<E> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            list.add(adapter.read(in));
+        }
+        in.endArray();
+        return list;
+    }
+
+    static List<Integer> readIntList(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_ARRAY) {
+            in.skipValue();
+            return null;
+        }
+        List<Integer> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            list.add(readInt(in));
+        }
+        in.endArray();
+        return list;
+    }
+
+    static <E> void writeList(JsonWriter out, String name, List<E> list, TypeAdapter<E> adapter) throws IOException {
+        out.name(name);
+        if (list == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginArray();
+        for (E item : list) {
+            adapter.write(out, item);
+        }
+        out.endArray();
+    }
+
+    static final class BookAdapter extends TypeAdapter<Book> {
+        private final Gson gson;
+        private TypeAdapter<Borrow> borrowAdapter;
+
+        BookAdapter(Gson gson) {
+            this.gson = gson;
+        }
+
+        // Book 和 Borrow 互相引用，用到时再取
+        private TypeAdapter<Borrow> borrowAdapter() {
+            if (borrowAdapter == null) {
+                borrowAdapter = gson.getAdapter(Borrow.class);
+            }
+            return borrowAdapter;
+        }
+
+        @Override
+        public Book read(JsonReader in) throws IOException {
+            Book book = new Book();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id": book.setId(readInt(in)); break;
+                    case "isbn": book.setIsbn(readString(in)); break;
+                    case "title": book.setTitle(readString(in)); break;
+                    case "author": book.setAuthor(readString(in)); break;
+                    case "publisher": book.setPublisher(readString(in)); break;
+                    case "publish_date": book.setPublishDate(readString(in)); break;
+                    case "category_id": book.setCategoryId(readInt(in)); break;
+                    case "category_name": book.setCategory(readString(in)); break;
+                    case "cover_url": book.setCoverUrl(readString(in)); break;
+                    case "description": book.setDescription(readString(in)); break;
+                    case "room": book.setRoom(readString(in)); break;
+                    case "shelf": book.setShelf(readString(in)); break;
+                    case "row": book.setRow(readInt(in)); break;
+                    case "column": book.setColumn(readInt(in)); break;
+                    case "number": book.setNumber(readInt(in)); break;
+                    case "status": book.setStatus(status(readString(in))); break;
+                    case "created_at": book.setCreatedAt(readString(in)); break;
+                    case "updated_at": book.setUpdatedAt(readString(in)); break;
+                    case "currentBorrow": book.setCurrentBorrow(borrowAdapter().read(in)); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return book;
+        }
+
+        @Override
+        public void write(JsonWriter out, Book book) throws IOException {
+            out.beginObject();
+            out.name("id").value(book.getId());
+            out.name("isbn").value(book.getIsbn());
+            out.name("title").value(book.getTitle());
+            out.name("author").value(book.getAuthor());
+            out.name("publisher").value(book.getPublisher());
+            out.name("publish_date").value(book.getPublishDate());
+            out.name("category_id").value(book.getCategoryId());
+            out.name("category_name").value(book.getCategory());
+            out.name("cover_url").value(book.getCoverUrl());
+            out.name("description").value(book.getDescription());
+            out.name("room").value(book.getRoom());
+            out.name("shelf").value(book.getShelf());
+            out.name("row").value(book.getRow());
+            out.name("column").value(book.getColumn());
+            out.name("number").value(book.getNumber());
+            out.name("status").value(book.getStatus());
+            out.name("created_at").value(book.getCreatedAt());
+            out.name("updated_at").value(book.getUpdatedAt());
+            out.name("currentBorrow");
+            borrowAdapter().write(out, book.getCurrentBorrow());
+            out.endObject();
+        }
+    }
+
+    static final class BorrowAdapter extends TypeAdapter<Borrow> {
+        private final TypeAdapter<Book> bookAdapter;
+
+        BorrowAdapter(Gson gson) {
+            this.bookAdapter = gson.getAdapter(Book.class);
+        }
+
+        @Override
+        public Borrow read(JsonReader in) throws IOException {
+            Borrow borrow = new Borrow();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id": borrow.setId(readInt(in)); break;
+                    case "book_id": borrow.setBookId(readInt(in)); break;
+                    case "borrower": borrow.setBorrower(readString(in)); break;
+                    case "borrow_date": borrow.setBorrowDate(readString(in)); break;
+                    case "due_date": borrow.setDueDate(readString(in)); break;
+                    case "return_date": borrow.setReturnDate(readString(in)); break;
+                    case "status": borrow.setStatus(status(readString(in))); break;
+                    case "created_at": borrow.setCreatedAt(readString(in)); break;
+                    case "book": borrow.setBook(bookAdapter.read(in)); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return borrow;
+        }
+
+        @Override
+        public void write(JsonWriter out, Borrow borrow) throws IOException {
+            out.beginObject();
+            out.name("id").value(borrow.getId());
+            out.name("book_id").value(borrow.getBookId());
+            out.name("borrower").value(borrow.getBorrower());
+            out.name("borrow_date").value(borrow.getBorrowDate());
+            out.name("due_date").value(borrow.getDueDate());
+            out.name("return_date").value(borrow.getReturnDate());
+            out.name("status").value(borrow.getStatus());
+            out.name("created_at").value(borrow.getCreatedAt());
+            out.name("book");
+            bookAdapter.write(out, borrow.getBook());
+            out.endObject();
+        }
+    }
+
+    static final class CategoryAdapter extends TypeAdapter<Category> {
+        @Override
+        public Category read(JsonReader in) throws IOException {
+            Category category = new Category();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id": category.setId(readLong(in)); break;
+                    case "name": category.setName(readString(in)); break;
+                    case "code": category.setCode(readString(in)); break;
+                    case "description": category.setDescription(readString(in)); break;
+                    case "parent_id": category.setParentId(readNullableInt(in)); break;
+                    case "level": category.setLevel(readInt(in)); break;
+                    case "book_count": category.setBookCount(readNullableInt(in)); break;
+                    case "created_at": category.setCreatedAt(readString(in)); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return category;
+        }
+
+        @Override
+        public void write(JsonWriter out, Category category) throws IOException {
+            out.beginObject();
+            out.name("id").value(category.getId());
+            out.name("name").value(category.getName());
+            out.name("code").value(category.getCode());
+            out.name("description").value(category.getDescription());
+            out.name("parent_id").value(category.getParentId());
+            out.name("level").value(category.getLevel());
+            out.name("book_count").value(category.getBookCount());
+            out.name("created_at").value(category.getCreatedAt());
+            out.endObject();
+        }
+    }
+
+    static final class CategoryStatAdapter extends TypeAdapter<Statistics.CategoryStat> {
+        @Override
+        public Statistics.CategoryStat read(JsonReader in) throws IOException {
+            Statistics.CategoryStat stat = new Statistics.CategoryStat();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "category": stat.setCategory(readString(in)); break;
+                    case "count": stat.setCount(readInt(in)); break;
+                    case "percentage": stat.setPercentage(readDouble(in)); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return stat;
+        }
+
+        @Override
+        public void write(JsonWriter out, Statistics.CategoryStat stat) throws IOException {
+            out.beginObject();
+            out.name("category").value(stat.getCategory());
+            out.name("count").value(stat.getCount());
+            out.name("percentage").value(stat.getPercentage());
+            out.endObject();
+        }
+    }
+
+    static final class StatisticsAdapter extends TypeAdapter<Statistics> {
+        private final TypeAdapter<Statistics.CategoryStat> categoryStatAdapter;
+        private final TypeAdapter<Borrow> borrowAdapter;
+
+        StatisticsAdapter(Gson gson) {
+            this.categoryStatAdapter = gson.getAdapter(Statistics.CategoryStat.class);
+            this.borrowAdapter = gson.getAdapter(Borrow.class);
+        }
+
+        @Override
+        public Statistics read(JsonReader in) throws IOException {
+            Statistics statistics = new Statistics();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "totalBooks": statistics.setTotalBooks(readInt(in)); break;
+                    case "borrowedBooks": statistics.setBorrowedBooks(readInt(in)); break;
+                    case "availableBooks": statistics.setAvailableBooks(readInt(in)); break;
+                    case "totalBorrows": statistics.setTotalBorrows(readInt(in)); break;
+                    case "currentBorrows": statistics.setActiveBorrows(readInt(in)); break;
+                    case "overdueBorrows": statistics.setOverdueBorrows(readInt(in)); break;
+                    case "totalCategories": statistics.setTotalCategories(readInt(in)); break;
+                    case "categories": statistics.setCategories(readList(in, categoryStatAdapter)); break;
+                    case "recentBorrows": statistics.setRecentBorrows(readList(in, borrowAdapter)); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return statistics;
+        }
+
+        @Override
+        public void write(JsonWriter out, Statistics statistics) throws IOException {
+            out.beginObject();
+            out.name("totalBooks").value(statistics.getTotalBooks());
+            out.name("borrowedBooks").value(statistics.getBorrowedBooks());
+            out.name("availableBooks").value(statistics.getAvailableBooks());
+            out.name("totalBorrows").value(statistics.getTotalBorrows());
+            out.name("currentBorrows").value(statistics.getActiveBorrows());
+            out.name("overdueBorrows").value(statistics.getOverdueBorrows());
+            out.name("totalCategories").value(statistics.getTotalCategories());
+            writeList(out, "categories", statistics.getCategories(), categoryStatAdapter);
+            writeList(out, "recentBorrows", statistics.getRecentBorrows(), borrowAdapter);
+            out.endObject();
+        }
+    }
+
+    static final class BookPageAdapter extends TypeAdapter<BookPage> {
+        private final TypeAdapter<Book> bookAdapter;
+
+        BookPageAdapter(Gson gson) {
+            this.bookAdapter = gson.getAdapter(Book.class);
+        }
+
+        @Override
+        public BookPage read(JsonReader in) throws IOException {
+            BookPage page = new BookPage();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "books": page.setBooks(readList(in, bookAdapter)); break;
+                    case "nextCursor": page.setNextCursor(readString(in)); break;
+                    case "hasMore": page.setHasMore(readBoolean(in)); break;
+                    case "total": page.setTotal(readNullableInt(in)); break;
+                    case "limit": page.setLimit(readNullableInt(in)); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return page;
+        }
+
+        @Override
+        public void write(JsonWriter out, BookPage page) throws IOException {
+            out.beginObject();
+            writeList(out, "books", page.getBooks(), bookAdapter);
+            out.name("nextCursor").value(page.getNextCursor());
+            out.name("hasMore").value(page.hasMore());
+            out.name("total").value(page.getTotal());
+            out.name("limit").value(page.getLimit());
+            out.endObject();
+        }
+    }
+
+    static final class BorrowPageAdapter extends TypeAdapter<BorrowPage> {
+        private final TypeAdapter<Borrow> borrowAdapter;
+        private final TypeAdapter<Book> bookAdapter;
+
+        BorrowPageAdapter(Gson gson) {
+            this.borrowAdapter = gson.getAdapter(Borrow.class);
+            this.bookAdapter = gson.getAdapter(Book.class);
+        }
+
+        @Override
+        public BorrowPage read(JsonReader in) throws IOException {
+            BorrowPage page = new BorrowPage();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "borrows": page.setBorrows(readList(in, borrowAdapter)); break;
+                    case "books": page.setBooks(readBookMap(in)); break;
+                    case "total": page.setTotal(readNullableInt(in)); break;
+                    case "page": page.setPage(readNullableInt(in)); break;
+                    case "limit": page.setLimit(readNullableInt(in)); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return page;
+        }
+
+        private Map<Integer, Book> readBookMap(JsonReader in) throws IOException {
+            if (in.peek() != JsonToken.BEGIN_OBJECT) {
+                in.skipValue();
+                return null;
+            }
+            Map<Integer, Book> books = new HashMap<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                Long id = parseLong(in.nextName());
+                Book book = bookAdapter.read(in);
+                if (id != null) {
+                    books.put(id.intValue(), book);
+                }
+            }
+            in.endObject();
+            return books;
+        }
+
+        @Override
+        public void write(JsonWriter out, BorrowPage page) throws IOException {
+            out.beginObject();
+            writeList(out, "borrows", page.getBorrows(), borrowAdapter);
+            out.name("books").beginObject();
+            for (Map.Entry<Integer, Book> entry : page.getBooks().entrySet()) {
+                out.name(String.valueOf(entry.getKey()));
+                bookAdapter.write(out, entry.getValue());
+            }
+            out.endObject();
+            out.name("total").value(page.getTotal());
+            out.name("page").value(page.getPage());
+            out.name("limit").value(page.getLimit());
+            out.endObject();
+        }
+    }
+
+    static final class SyncChangesAdapter extends TypeAdapter<SyncChanges> {
+        // 行数据保留为原始JSON，交给 Gson 内置的 JsonElement 解析（不涉及反射）
+        private final TypeAdapter<JsonElement> jsonAdapter;
+        private final TypeAdapter<SyncChanges.Deleted> deletedAdapter;
+
+        SyncChangesAdapter(Gson gson) {
+            this.jsonAdapter = gson.getAdapter(JsonElement.class);
+            this.deletedAdapter = gson.getAdapter(SyncChanges.Deleted.class);
+        }
+
+        @Override
+        public SyncChanges read(JsonReader in) throws IOException {
+            SyncChanges changes = new SyncChanges();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "books": changes.setBooks(readRows(in)); break;
+                    case "categories": changes.setCategories(readRows(in)); break;
+                    case "borrows": changes.setBorrows(readRows(in)); break;
+                    case "deleted": changes.setDeleted(deletedAdapter.read(in)); break;
+                    case "cursor": {
+                        Long cursor = readLong(in);
+                        changes.setCursor(cursor != null ? cursor : 0);
+                        break;
+                    }
+                    case "hasMore": changes.setHasMore(readBoolean(in)); break;
+                    case "reset": changes.setReset(readBoolean(in)); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return changes;
+        }
+
+        private List<JsonObject> readRows(JsonReader in) throws IOException {
+            if (in.peek() != JsonToken.BEGIN_ARRAY) {
+                in.skipValue();
+                return null;
+            }
+            List<JsonObject> rows = new ArrayList<>();
+            in.beginArray();
+            while (in.hasNext()) {
+                JsonElement row = jsonAdapter.read(in);
+                if (row != null && row.isJsonObject()) {
+                    rows.add(row.getAsJsonObject());
+                }
+            }
+            in.endArray();
+            return rows;
+        }
+
+        @Override
+        public void write(JsonWriter out, SyncChanges changes) throws IOException {
+            out.beginObject();
+            writeRows(out, "books", changes.getBooks());
+            writeRows(out, "categories", changes.getCategories());
+            writeRows(out, "borrows", changes.getBorrows());
+            out.name("deleted");
+            deletedAdapter.write(out, changes.getDeleted());
+            out.name("cursor").value(changes.getCursor());
+            out.name("hasMore").value(changes.hasMore());
+            out.name("reset").value(changes.isReset());
+            out.endObject();
+        }
+
+        private void writeRows(JsonWriter out, String name, List<JsonObject> rows) throws IOException {
+            out.name(name).beginArray();
+            for (JsonObject row : rows) {
+                jsonAdapter.write(out, row);
+            }
+            out.endArray();
+        }
+    }
+
+    static final class DeletedAdapter extends TypeAdapter<SyncChanges.Deleted> {
+        @Override
+        public SyncChanges.Deleted read(JsonReader in) throws IOException {
+            SyncChanges.Deleted deleted = new SyncChanges.Deleted();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "books": deleted.setBooks(readIntList(in)); break;
+                    case "categories": deleted.setCategories(readIntList(in)); break;
+                    case "borrows": deleted.setBorrows(readIntList(in)); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return deleted;
+        }
+
+        @Override
+        public void write(JsonWriter out, SyncChanges.Deleted deleted) throws IOException {
+            out.beginObject();
+            writeIds(out, "books", deleted.getBooks());
+            writeIds(out, "categories", deleted.getCategories());
+            writeIds(out, "borrows", deleted.getBorrows());
+            out.endObject();
+        }
+
+        private void writeIds(JsonWriter out, String name, List<Integer> ids) throws IOException {
+            out.name(name).beginArray();
+            for (Integer id : ids) {
+                out.value(id);
+            }
+            out.endArray();
+        }
+    }
+
+    static final class ApiResponseAdapter<T> extends TypeAdapter<ApiResponse<T>> {
+        private final TypeAdapter<T> dataAdapter;
+
+        ApiResponseAdapter(TypeAdapter<T> dataAdapter) {
+            this.dataAdapter = dataAdapter;
+        }
+
+        @Override
+        public ApiResponse<T> read(JsonReader in) throws IOException {
+            ApiResponse<T> response = new ApiResponse<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "success": response.setSuccess(readBoolean(in)); break;
+                    case "message": response.setMessage(readString(in)); break;
+                    case "data": response.setData(dataAdapter.read(in)); break;
+                    case "total": response.setTotal(readNullableInt(in)); break;
+                    case "page": response.setPage(readNullableInt(in)); break;
+                    case "limit": response.setLimit(readNullableInt(in)); break;
+                    default: in.skipValue(); break;
+                }
+            }
+            in.endObject();
+            return response;
+        }
+
+        @Override
+        public void write(JsonWriter out, ApiResponse<T> response) throws IOException {
+            out.beginObject();
+            out.name("success").value(response.isSuccess());
+            out.name("message").value(response.getMessage());
+            out.name("data");
+            dataAdapter.write(out, response.getData());
+            out.name("total").value(response.getTotal());
+            out.name("page").value(response.getPage());
+            out.name("limit").value(response.getLimit());
+            out.endObject();
+        }
+    }
+}
@@ -13,6 +13,22 @@ public class Statistics {
     @SerializedName("availableBooks")
     private int availableBooks;
     
+    @SerializedName("totalBorrows")
+    private int totalBorrows;
+    
+    // 服务器字段名为 currentBorrows
+    @SerializedName("currentBorrows")
+    private int activeBorrows;
+    
+    @SerializedName("overdueBorrows")
+    private int overdueBorrows;
+    
+    @SerializedName("totalCategories")
+    private int totalCategories;
+    
+    // 已归还记录的平均借阅天数，只在本地副本上统计，服务器不返回时为null
+    private transient Double averageBorrowDays;
+    
     @SerializedName("categories")
     private List<CategoryStat> categories;
     
@@ -32,6 +48,21 @@ public class Statistics {
     public int getAvailableBooks() { return availableBooks; }
     public void setAvailableBooks(int availableBooks) { this.availableBooks = availableBooks; }
     
+    public int getTotalBorrows() { return totalBorrows; }
+    public void setTotalBorrows(int totalBorrows) { this.totalBorrows = totalBorrows; }
+    
+    public int getActiveBorrows() { return activeBorrows; }
+    public void setActiveBorrows(int activeBorrows) { this.activeBorrows = activeBorrows; }
+    
+    public int getOverdueBorrows() { return overdueBorrows; }
+    public void setOverdueBorrows(int overdueBorrows) { this.overdueBorrows = overdueBorrows; }
+    
+    public int getTotalCategories() { return totalCategories; }
+    public void setTotalCategories(int totalCategories) { this.totalCategories = totalCategories; }
+    
+    public Double getAverageBorrowDays() { return averageBorrowDays; }
+    public void setAverageBorrowDays(Double averageBorrowDays) { this.averageBorrowDays = averageBorrowDays; }
+    
     public List<CategoryStat> getCategories() { return categories; }
     public void setCategories(List<CategoryStat> categories) { this.categories = categories; }
     
@@ -0,0 +1,86 @@
+package com.library.management.model;
+
+import com.google.gson.JsonObject;
+import com.google.gson.annotations.SerializedName;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * /api/sync/changes 返回的一批增量变更。行数据保留原始JSON，直接存入本地副本。
+ */
+public class SyncChanges {
+    @SerializedName("books")
+    private List<JsonObject> books;
+
+    @SerializedName("categories")
+    private List<JsonObject> categories;
+
+    @SerializedName("borrows")
+    private List<JsonObject> borrows;
+
+    @SerializedName("deleted")
+    private Deleted deleted;
+
+    // 本批最后一条变更的序号，下次同步从这里继续
+    @SerializedName("cursor")
+    private long cursor;
+
+    @SerializedName("hasMore")
+    private boolean hasMore;
+
+    // 服务器数据被重置过，本地副本需要清空后从头同步
+    @SerializedName("reset")
+    private boolean reset;
+
+    // 构造函数
+    public SyncChanges() {}
+
+    // Getter方法
+    public List<JsonObject> getBooks() { return orEmpty(books); }
+    public List<JsonObject> getCategories() { return orEmpty(categories); }
+    public List<JsonObject> getBorrows() { return orEmpty(borrows); }
+    public Deleted getDeleted() { return deleted != null ? deleted : new Deleted(); }
+    public long getCursor() { return cursor; }
+    public boolean hasMore() { return hasMore; }
+    public boolean isReset() { return reset; }
+
+    // Setter方法，供 ModelTypeAdapterFactory 解析时使用
+    void setBooks(List<JsonObject> books) { this.books = books; }
+    void setCategories(List<JsonObject> categories) { this.categories = categories; }
+    void setBorrows(List<JsonObject> borrows) { this.borrows = borrows; }
+    void setDeleted(Deleted deleted) { this.deleted = deleted; }
+    void setCursor(long cursor) { this.cursor = cursor; }
+    void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+    void setReset(boolean reset) { this.reset = reset; }
+
+    public boolean isEmpty() {
+        Deleted removed = getDeleted();
+        return getBooks().isEmpty() && getCategories().isEmpty() && getBorrows().isEmpty()
+                && removed.getBooks().isEmpty() && removed.getCategories().isEmpty()
+                && removed.getBorrows().isEmpty();
+    }
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list != null ? list : Collections.<T>emptyList();
+    }
+
+    // 已在服务器删除的行ID
+    public static class Deleted {
+        @SerializedName("books")
+        private List<Integer> books;
+
+        @SerializedName("categories")
+        private List<Integer> categories;
+
+        @SerializedName("borrows")
+        private List<Integer> borrows;
+
+        public List<Integer> getBooks() { return orEmpty(books); }
+        public List<Integer> getCategories() { return orEmpty(categories); }
+        public List<Integer> getBorrows() { return orEmpty(borrows); }
+
+        void setBooks(List<Integer> books) { this.books = books; }
+        void setCategories(List<Integer> categories) { this.categories = categories; }
+        void setBorrows(List<Integer> borrows) { this.borrows = borrows; }
+    }
+}
@@ -0,0 +1,318 @@
+package com.library.management.search;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.library.management.model.Book;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 内存中的图书倒排索引，用于离线即时筛选。
+ *
+ * 索引书名、作者、ISBN 以及书名和作者的拼音首字母：每个字段按相邻两个字符（bigram）建倒排表，
+ * 汉字额外按单字建倒排表以支持单字查询。查询时对查询串的 bigram 倒排表求交集，再用 contains 校验候选结果。
+ * 文档按加入顺序分配递增的槽位，倒排表天然有序；删除只标记槽位，墓碑过多时在后台重建。
+ * 用完整目录重建期间的增删会记下来，新索引替换旧索引前按顺序补上，不会被快照覆盖。
+ */
+public class BookSearchIndex {
+    
+    public static final int DEFAULT_LIMIT = 500;
+    
+    // 字段之间的分隔符，不会参与 bigram
+    private static final char FIELD_SEPARATOR = '\u0001';
+    
+    private static BookSearchIndex instance;
+    
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    
+    private final Object lock = new Object();
+    private Shard shard = new Shard();
+    private boolean compacting;
+    private volatile boolean complete;
+    // 每个进行中的重建各有一份记录，保存它取快照之后发生的增删
+    private final List<List<Change>> pendingRebuilds = new ArrayList<>();
+    
+    public static synchronized BookSearchIndex getInstance() {
+        if (instance == null) {
+            instance = new BookSearchIndex();
+        }
+        return instance;
+    }
+    
+    private BookSearchIndex() {}
+    
+    /**
+     * 索引是否已覆盖完整的图书目录。只有完整时本地结果才能替代服务器搜索。
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+    
+    public int size() {
+        synchronized (lock) {
+            return shard.slotById.size();
+        }
+    }
+    
+    /**
+     * 在后台线程用完整目录重建索引，完成后在主线程回调 onReady（可为null）。
+     */
+    public void rebuildAsync(List<Book> books, Runnable onReady) {
+        List<Book> snapshot = new ArrayList<>(books);
+        List<Change> changes = new ArrayList<>();
+        synchronized (lock) {
+            pendingRebuilds.add(changes);
+        }
+        executor.execute(() -> {
+            Shard rebuilt = new Shard();
+            for (Book book : snapshot) {
+                rebuilt.put(book);
+            }
+            synchronized (lock) {
+                // 快照之后的增删比快照新，按发生顺序补到新索引上
+                for (Change change : changes) {
+                    change.applyTo(rebuilt);
+                }
+                pendingRebuilds.remove(changes);
+                shard = rebuilt;
+            }
+            complete = true;
+            if (onReady != null) {
+                mainHandler.post(onReady);
+            }
+        });
+    }
+    
+    // 新增或更新单本图书
+    public void put(Book book) {
+        if (book == null) return;
+        synchronized (lock) {
+            shard.put(book);
+            record(new Change(book, 0));
+        }
+        compactIfNeeded();
+    }
+    
+    public void putAll(Collection<Book> books) {
+        if (books == null || books.isEmpty()) return;
+        synchronized (lock) {
+            for (Book book : books) {
+                shard.put(book);
+                record(new Change(book, 0));
+            }
+        }
+        compactIfNeeded();
+    }
+    
+    public void remove(int bookId) {
+        synchronized (lock) {
+            shard.remove(bookId);
+            record(new Change(null, bookId));
+        }
+        compactIfNeeded();
+    }
+    
+    // 调用时必须持有 lock
+    private void record(Change change) {
+        for (List<Change> changes : pendingRebuilds) {
+            changes.add(change);
+        }
+    }
+    
+    /**
+     * 查询包含 query 的图书（忽略大小写和空白），也可以用拼音首字母查询中文书名和作者。
+     * 结果按加入索引的顺序返回，最多 limit 条。
+     */
+    public List<Book> search(String query, int limit) {
+        String normalized = normalize(query);
+        synchronized (lock) {
+            return shard.search(normalized, limit);
+        }
+    }
+    
+    private void compactIfNeeded() {
+        synchronized (lock) {
+            if (compacting || shard.removed < 1024 || shard.removed < shard.docs.size() / 2) return;
+            compacting = true;
+        }
+        // 在锁内重建，期间的增删不会丢失；重建很少发生，短暂阻塞查询可以接受
+        executor.execute(() -> {
+            synchronized (lock) {
+                Shard compacted = new Shard();
+                for (Book book : shard.liveBooks()) {
+                    compacted.put(book);
+                }
+                shard = compacted;
+                compacting = false;
+            }
+        });
+    }
+    
+    static String normalize(String text) {
+        if (text == null) return "";
+        StringBuilder builder = new StringBuilder(text.length());
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (!Character.isWhitespace(c) && c != FIELD_SEPARATOR) {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+    
+    private static int bigramKey(char a, char b) {
+        return (a << 16) | b;
+    }
+    
+    private static int unigramKey(char c) {
+        return c << 16;
+    }
+    
+    // 重建期间的一次增删：book 不为 null 时是新增或更新，否则删除 removedId
+    private static final class Change {
+        final Book book;
+        final int removedId;
+        
+        Change(Book book, int removedId) {
+            this.book = book;
+            this.removedId = removedId;
+        }
+        
+        void applyTo(Shard target) {
+            if (book != null) {
+                target.put(book);
+            } else {
+                target.remove(removedId);
+            }
+        }
+    }
+    
+    private static final class Doc {
+        final Book book;
+        final String text;
+        
+        Doc(Book book, String text) {
+            this.book = book;
+            this.text = text;
+        }
+    }
+    
+    private static final class Shard {
+        // 槽位 -> 文档，null 表示已删除
+        final List<Doc> docs = new ArrayList<>();
+        final Map<Integer, Integer> slotById = new HashMap<>();
+        final Map<Integer, IntList> postings = new HashMap<>();
+        int removed;
+        
+        void put(Book book) {
+            remove(book.getId());
+            
+            String text = normalize(book.getTitle()) + FIELD_SEPARATOR
+                    + normalize(book.getAuthor()) + FIELD_SEPARATOR
+                    + normalize(book.getIsbn()) + FIELD_SEPARATOR
+                    + PinyinInitials.of(book.getTitle()) + FIELD_SEPARATOR
+                    + PinyinInitials.of(book.getAuthor());
+            
+            int slot = docs.size();
+            docs.add(new Doc(book, text));
+            slotById.put(book.getId(), slot);
+            
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == FIELD_SEPARATOR) continue;
+                if (PinyinInitials.isCjk(c)) {
+                    addPosting(unigramKey(c), slot);
+                }
+                if (i + 1 < text.length() && text.charAt(i + 1) != FIELD_SEPARATOR) {
+                    addPosting(bigramKey(c, text.charAt(i + 1)), slot);
+                }
+            }
+        }
+        
+        private void addPosting(int key, int slot) {
+            IntList list = postings.get(key);
+            if (list == null) {
+                list = new IntList();
+                postings.put(key, list);
+            }
+            // 同一文档中重复出现的 gram 只记一次；槽位递增，只需和最后一个比较
+            if (list.size() == 0 || list.last() != slot) {
+                list.add(slot);
+            }
+        }
+        
+        void remove(int bookId) {
+            Integer slot = slotById.remove(bookId);
+            if (slot != null) {
+                docs.set(slot, null);
+                removed++;
+            }
+        }
+        
+        List<Book> liveBooks() {
+            List<Book> books = new ArrayList<>(slotById.size());
+            for (Doc doc : docs) {
+                if (doc != null) {
+                    books.add(doc.book);
+                }
+            }
+            return books;
+        }
+        
+        List<Book> search(String query, int limit) {
+            List<Book> results = new ArrayList<>();
+            if (query.isEmpty()) return results;
+            
+            if (query.length() == 1 && !PinyinInitials.isCjk(query.charAt(0))) {
+                // 单个字母或数字几乎命中所有图书，直接顺序扫描到够数为止
+                for (Doc doc : docs) {
+                    if (doc != null && doc.text.indexOf(query.charAt(0)) >= 0) {
+                        results.add(doc.book);
+                        if (results.size() >= limit) break;
+                    }
+                }
+                return results;
+            }
+            
+            IntList[] lists;
+            if (query.length() == 1) {
+                IntList list = postings.get(unigramKey(query.charAt(0)));
+                if (list == null) return results;
+                lists = new IntList[] { list };
+            } else {
+                lists = new IntList[query.length() - 1];
+                for (int i = 0; i < lists.length; i++) {
+                    IntList list = postings.get(bigramKey(query.charAt(i), query.charAt(i + 1)));
+                    if (list == null) return results;
+                    lists[i] = list;
+                }
+                // 从最短的倒排表开始求交集
+                Arrays.sort(lists, Comparator.comparingInt(IntList::size));
+            }
+            
+            IntList candidates = lists[0];
+            for (int i = 1; i < lists.length && candidates.size() > 0; i++) {
+                candidates = IntList.intersect(candidates, lists[i]);
+            }
+            
+            // bigram 都命中不代表按顺序连续出现，再做一次子串校验
+            for (int i = 0; i < candidates.size() && results.size() < limit; i++) {
+                Doc doc = docs.get(candidates.get(i));
+                if (doc != null && doc.text.contains(query)) {
+                    results.add(doc.book);
+                }
+            }
+            return results;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.library.management.search;
+
+import java.util.Arrays;
+
+/**
+ * 可增长的 int 数组，用作倒排表，避免 List&lt;Integer&gt; 的装箱开销。
+ */
+final class IntList {
+    
+    private int[] values;
+    private int size;
+    
+    IntList() {
+        this(4);
+    }
+    
+    IntList(int capacity) {
+        values = new int[Math.max(capacity, 1)];
+    }
+    
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+    
+    int get(int index) {
+        return values[index];
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    int last() {
+        return values[size - 1];
+    }
+    
+    // 两个升序列表求交集
+    static IntList intersect(IntList a, IntList b) {
+        IntList result = new IntList(Math.min(a.size, b.size));
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            int x = a.values[i];
+            int y = b.values[j];
+            if (x == y) {
+                result.add(x);
+                i++;
+                j++;
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return result;
+    }
+}
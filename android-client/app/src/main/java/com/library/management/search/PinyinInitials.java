@@ -0,0 +1,64 @@
+package com.library.management.search;
+
+import java.text.Collator;
+import java.util.Locale;
+
+/**
+ * 汉字拼音首字母转换。
+ * 利用中文排序规则按拼音排序的特点，与每个声母分组的第一个汉字比较来确定首字母，不需要内置拼音字典。
+ */
+public final class PinyinInitials {
+    
+    // 每个首字母分组中排序最靠前的汉字（没有以 i、u、v 开头的拼音）
+    private static final String BOUNDARY_CHARS = "阿芭擦搭蛾发噶哈击喀垃妈拿哦啪期然撒塌挖昔压匝";
+    private static final char[] INITIALS = "abcdefghjklmnopqrstwxyz".toCharArray();
+    
+    private static final char CJK_START = '一';
+    private static final char CJK_END = '龥';
+    
+    private static final Collator COLLATOR = Collator.getInstance(Locale.CHINA);
+    // 已查过的汉字首字母缓存，0 表示尚未计算
+    private static final char[] CACHE = new char[CJK_END - CJK_START + 1];
+    
+    private PinyinInitials() {}
+    
+    public static boolean isCjk(char c) {
+        return c >= CJK_START && c <= CJK_END;
+    }
+    
+    // 返回文本中每个汉字的拼音首字母，非汉字字符被忽略，例如 "三体 II" -> "st"
+    public static String of(String text) {
+        if (text == null || text.isEmpty()) return "";
+        StringBuilder builder = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isCjk(c)) {
+                char initial = initialOf(c);
+                if (initial != 0) {
+                    builder.append(initial);
+                }
+            }
+        }
+        return builder.toString();
+    }
+    
+    private static synchronized char initialOf(char c) {
+        int index = c - CJK_START;
+        char cached = CACHE[index];
+        if (cached != 0) {
+            return cached == ' ' ? 0 : cached;
+        }
+        
+        String value = String.valueOf(c);
+        char result = 0;
+        for (int i = BOUNDARY_CHARS.length() - 1; i >= 0; i--) {
+            if (COLLATOR.compare(value, String.valueOf(BOUNDARY_CHARS.charAt(i))) >= 0) {
+                result = INITIALS[i];
+                break;
+            }
+        }
+        // 用空格标记"已计算但没有首字母"
+        CACHE[index] = result == 0 ? ' ' : result;
+        return result;
+    }
+}
@@ -17,6 +17,7 @@ import com.google.android.material.textfield.TextInputLayout;
 import com.library.management.R;
 import com.library.management.api.ApiClient;
 import com.library.management.api.ApiService;
+import com.library.management.data.Outbox;
 import com.library.management.model.ApiResponse;
 import com.library.management.model.Book;
 import com.library.management.model.Category;
@@ -186,6 +187,7 @@ public class AddBookActivity extends AppCompatActivity {
         }
     }
     
+    // 新增图书写入待提交队列后即可返回，由 Outbox 在后台提交
     private void saveBook() {
         if (!validateInput()) {
             return;
@@ -194,30 +196,11 @@ public class AddBookActivity extends AppCompatActivity {
         Book book = createBookFromInput();
         showLoading(true);
         
-        Call<ApiResponse<Book>> call = apiService.createBook(book);
-        call.enqueue(new Callback<ApiResponse<Book>>() {
-            @Override
-            public void onResponse(Call<ApiResponse<Book>> call, Response<ApiResponse<Book>> response) {
-                showLoading(false);
-                if (response.isSuccessful() && response.body() != null) {
-                    ApiResponse<Book> apiResponse = response.body();
-                    if (apiResponse.isSuccess()) {
-                        Toast.makeText(AddBookActivity.this, "图书添加成功", Toast.LENGTH_SHORT).show();
-                        setResult(RESULT_OK);
-                        finish();
-                    } else {
-                        Toast.makeText(AddBookActivity.this, "添加失败: " + apiResponse.getMessage(), Toast.LENGTH_SHORT).show();
-                    }
-                } else {
-                    Toast.makeText(AddBookActivity.this, "添加失败", Toast.LENGTH_SHORT).show();
-                }
-            }
-            
-            @Override
-            public void onFailure(Call<ApiResponse<Book>> call, Throwable t) {
-                showLoading(false);
-                Toast.makeText(AddBookActivity.this, "网络错误: " + t.getMessage(), Toast.LENGTH_SHORT).show();
-            }
+        Outbox.getInstance(this).createBook(book, () -> {
+            showLoading(false);
+            Toast.makeText(AddBookActivity.this, "图书已保存，正在提交", Toast.LENGTH_SHORT).show();
+            setResult(RESULT_OK);
+            finish();
         });
     }
     
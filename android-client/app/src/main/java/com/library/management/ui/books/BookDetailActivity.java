@@ -6,6 +6,7 @@ import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.Button;
+import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -17,6 +18,9 @@ import com.google.android.material.card.MaterialCardView;
 import com.library.management.R;
 import com.library.management.api.ApiClient;
 import com.library.management.api.ApiService;
+import com.library.management.data.CoverLoader;
+import com.library.management.data.Outbox;
+import com.library.management.data.OutboxEntry;
 import com.library.management.model.ApiResponse;
 import com.library.management.model.Book;
 import retrofit2.Call;
@@ -39,9 +43,29 @@ public class BookDetailActivity extends AppCompatActivity {
     private Button btnBorrow;
     private Button btnReturn;
     private ProgressBar progressBar;
+    private ImageView ivCover;
     
     private Book currentBook;
     private ApiService apiService;
+    private Outbox outbox;
+    private final Outbox.Listener outboxListener = new Outbox.Listener() {
+        @Override
+        public void onOutboxSynced() {
+            // 提交完成，重新读取服务器上的借阅信息
+            if (currentBook != null && currentBook.getId() > 0) {
+                loadBookFromApi(currentBook.getId());
+            }
+        }
+        
+        @Override
+        public void onOperationRejected(OutboxEntry entry, String message) {
+            if (OutboxEntry.OP_BORROW.equals(entry.getOp())) {
+                showError("借阅失败: " + message);
+            } else if (OutboxEntry.OP_RETURN.equals(entry.getOp())) {
+                showError("归还失败: " + message);
+            }
+        }
+    };
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -52,12 +76,14 @@ public class BookDetailActivity extends AppCompatActivity {
         setupToolbar();
         setupClickListeners();
         
-        apiService = ApiClient.getInstance().getApiService();
+        apiService = ApiClient.getInstance(this).getApiService();
+        outbox = Outbox.getInstance(this);
         
         loadBookData();
     }
     
     private void initViews() {
+        ivCover = findViewById(R.id.iv_cover);
         tvTitle = findViewById(R.id.tv_title);
         tvAuthor = findViewById(R.id.tv_author);
         tvIsbn = findViewById(R.id.tv_isbn);
@@ -144,6 +170,7 @@ public class BookDetailActivity extends AppCompatActivity {
         tvIsbn.setText(book.getIsbn());
         tvCategory.setText(book.getCategory());
         tvLocation.setText(book.getLocation());
+        CoverLoader.getInstance(this).loadBookCover(ivCover, book.getId(), book.getCoverUrl());
         
         updateStatusDisplay(book);
         updateButtonsVisibility(book);
@@ -206,34 +233,16 @@ public class BookDetailActivity extends AppCompatActivity {
                 .show();
     }
     
+    // 借阅和归还都写入待提交队列，与列表页共用同一条提交路径，离线时也能操作；服务器拒绝时由 outboxListener 提示
     private void borrowBook(int bookId, String borrower, String dueDate) {
         showLoading(true);
-        
-        ApiService.BorrowRequest request = new ApiService.BorrowRequest(bookId, borrower, dueDate);
-        Call<ApiResponse<Void>> call = apiService.createBorrow(request);
-        call.enqueue(new Callback<ApiResponse<Void>>() {
-            @Override
-            public void onResponse(Call<ApiResponse<Void>> call, Response<ApiResponse<Void>> response) {
-                showLoading(false);
-                if (response.isSuccessful() && response.body() != null) {
-                    ApiResponse<Void> apiResponse = response.body();
-                    if (apiResponse.isSuccess()) {
-                        Toast.makeText(BookDetailActivity.this, "借阅成功", Toast.LENGTH_SHORT).show();
-                        // 重新加载图书信息
-                        loadBookFromApi(currentBook.getId());
-                    } else {
-                        showError("借阅失败: " + apiResponse.getMessage());
-                    }
-                } else {
-                    showError("借阅失败");
-                }
-            }
-            
-            @Override
-            public void onFailure(Call<ApiResponse<Void>> call, Throwable t) {
-                showLoading(false);
-                showError("网络错误: " + t.getMessage());
-            }
+        outbox.borrow(bookId, borrower, dueDate, () -> {
+            if (isDestroyed()) return;
+            showLoading(false);
+            Toast.makeText(this, "借阅已保存，正在提交", Toast.LENGTH_SHORT).show();
+            currentBook.setStatus("borrowed");
+            displayBookInfo(currentBook);
+            setResult(RESULT_OK);
         });
     }
     
@@ -241,32 +250,14 @@ public class BookDetailActivity extends AppCompatActivity {
         if (currentBook == null || currentBook.getCurrentBorrow() == null) return;
         
         showLoading(true);
-        
-        int borrowId = currentBook.getCurrentBorrow().getId();
-        Call<ApiResponse<Void>> call = apiService.returnBorrow(borrowId);
-        call.enqueue(new Callback<ApiResponse<Void>>() {
-            @Override
-            public void onResponse(Call<ApiResponse<Void>> call, Response<ApiResponse<Void>> response) {
-                showLoading(false);
-                if (response.isSuccessful() && response.body() != null) {
-                    ApiResponse<Void> apiResponse = response.body();
-                    if (apiResponse.isSuccess()) {
-                        Toast.makeText(BookDetailActivity.this, "归还成功", Toast.LENGTH_SHORT).show();
-                        // 重新加载图书信息
-                        loadBookFromApi(currentBook.getId());
-                    } else {
-                        showError("归还失败: " + apiResponse.getMessage());
-                    }
-                } else {
-                    showError("归还失败");
-                }
-            }
-            
-            @Override
-            public void onFailure(Call<ApiResponse<Void>> call, Throwable t) {
-                showLoading(false);
-                showError("网络错误: " + t.getMessage());
-            }
+        outbox.returnBorrow(currentBook.getCurrentBorrow().getId(), () -> {
+            if (isDestroyed()) return;
+            showLoading(false);
+            Toast.makeText(this, "归还已保存，正在提交", Toast.LENGTH_SHORT).show();
+            currentBook.setStatus("available");
+            currentBook.setCurrentBorrow(null);
+            displayBookInfo(currentBook);
+            setResult(RESULT_OK);
         });
     }
     
@@ -304,6 +295,25 @@ public class BookDetailActivity extends AppCompatActivity {
         return super.onOptionsItemSelected(item);
     }
     
+    @Override
+    protected void onResume() {
+        super.onResume();
+        outbox.addListener(outboxListener);
+    }
+    
+    @Override
+    protected void onPause() {
+        super.onPause();
+        outbox.removeListener(outboxListener);
+    }
+    
+    @Override
+    protected void onDestroy() {
+        // 取消未完成的封面加载，释放位图供复用
+        CoverLoader.getInstance(this).clear(ivCover);
+        super.onDestroy();
+    }
+    
     private void editBook() {
         // TODO: 实现编辑图书功能
         Toast.makeText(this, "编辑功能开发中", Toast.LENGTH_SHORT).show();
@@ -1,8 +1,12 @@
 package com.library.management.ui.books;
 
-import android.content.Intent;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.LruCache;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -14,12 +18,21 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
+import com.google.android.material.textfield.TextInputEditText;
 import com.library.management.R;
 import com.library.management.api.ApiClient;
 import com.library.management.api.ApiService;
+import com.library.management.api.StreamingListReader;
+import com.library.management.data.LocalStore;
+import com.library.management.data.Outbox;
+import com.library.management.data.OutboxEntry;
+import com.library.management.data.SyncManager;
 import com.library.management.model.ApiResponse;
 import com.library.management.model.Book;
+import com.library.management.model.BookPage;
+import com.library.management.search.BookSearchIndex;
 import com.library.management.ui.books.adapter.BookAdapter;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -29,18 +42,77 @@ import static android.app.Activity.RESULT_OK;
 
 public class BooksFragment extends Fragment implements BookAdapter.OnBookClickListener {
     
+    private static final int PAGE_SIZE = 50;
+    // 距离列表末尾还剩多少条时开始预取下一页
+    private static final int PREFETCH_DISTANCE = 20;
+    // 输入停顿多久后才发起搜索请求
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+    // 缓存最近多少个搜索词的第一页结果
+    private static final int SEARCH_CACHE_SIZE = 20;
+    // 本地副本未就绪时按游标流式加载的每页条数，以及第一页先显示的条数
+    private static final int STREAM_PAGE_SIZE = 500;
+    private static final int STREAM_FIRST_CHUNK = PAGE_SIZE;
+    
     private RecyclerView recyclerView;
+    private LinearLayoutManager layoutManager;
     private SwipeRefreshLayout swipeRefreshLayout;
     private FloatingActionButton fabAddBook;
+    private TextInputEditText etSearch;
     private BookAdapter bookAdapter;
     private ApiClient apiClient;
-    private List<Book> bookList;
+    private SyncManager syncManager;
+    private LocalStore localStore;
+    private Outbox outbox;
+    
+    // 游标分页状态
+    private String nextCursor;
+    private boolean hasMore = true;
+    private Call<ApiResponse<BookPage>> pageCall;
+    private Call<ResponseBody> streamCall;
+    
+    // 本地副本分页：列表显示副本数据时，按 (created_at, id) 键集每次读 PAGE_SIZE 条
+    private boolean localPaging;
+    private boolean localPageLoading;
+    private int localLoaded;
+    private Book localLast;
+    // 每次重新读取第一页时递增，丢弃过期的读取结果
+    private int localGeneration;
+    // 暂停期间 outbox 监听已移除，恢复时要从本地副本补一次刷新；视图创建后的第一次 onResume 不需要
+    private boolean refreshOnResume;
+    
+    // 搜索状态
+    private String currentQuery = "";
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private final Runnable searchRunnable = this::loadBooks;
+    private final LruCache<String, BookPage> searchCache = new LruCache<>(SEARCH_CACHE_SIZE);
+    // 本地索引覆盖完整目录后，搜索不再访问网络
+    private final BookSearchIndex searchIndex = BookSearchIndex.getInstance();
+    private final SyncManager.Listener syncListener = this::onSyncFinished;
+    private final Outbox.Listener outboxListener = new Outbox.Listener() {
+        @Override
+        public void onOutboxSynced() {
+            if (getView() == null) return;
+            searchCache.evictAll();
+            showLocalBooks();
+        }
+        
+        @Override
+        public void onOperationRejected(OutboxEntry entry, String message) {
+            if (OutboxEntry.OP_BORROW.equals(entry.getOp())) {
+                showError("借阅失败: " + message);
+            } else if (OutboxEntry.OP_CREATE_BOOK.equals(entry.getOp())) {
+                showError("添加图书失败: " + message);
+            }
+        }
+    };
     
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         apiClient = ApiClient.getInstance(requireContext());
-        bookList = new ArrayList<>();
+        syncManager = SyncManager.getInstance(requireContext());
+        localStore = syncManager.getStore();
+        outbox = Outbox.getInstance(requireContext());
     }
     
     @Override
@@ -52,6 +124,9 @@ public class BooksFragment extends Fragment implements BookAdapter.OnBookClickLi
         setupRecyclerView();
         setupSwipeRefresh();
         setupFab();
+        setupSearch();
+        // 只在创建视图时加载一次；之后的变化由同步和 outbox 回调刷新
+        refreshOnResume = false;
         loadBooks();
         
         return root;
@@ -61,12 +136,33 @@ public class BooksFragment extends Fragment implements BookAdapter.OnBookClickLi
         recyclerView = root.findViewById(R.id.recycler_view_books);
         swipeRefreshLayout = root.findViewById(R.id.swipe_refresh_layout);
         fabAddBook = root.findViewById(R.id.fab_add_book);
+        etSearch = root.findViewById(R.id.et_search);
     }
     
     private void setupRecyclerView() {
-        bookAdapter = new BookAdapter(bookList, this);
-        recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        bookAdapter = new BookAdapter(requireContext(), this);
+        layoutManager = new LinearLayoutManager(getContext());
+        recyclerView.setLayoutManager(layoutManager);
         recyclerView.setAdapter(bookAdapter);
+        
+        // 滚动接近末尾时提前加载下一页；布局后可见范围变化时 dy 为0，同样要检查
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy < 0) return;
+                maybeLoadNextPage();
+            }
+        });
+        // 每次提交后等布局完成再检查，第一页填不满屏幕时不用等用户滚动
+        bookAdapter.setOnListCommittedListener(() -> recyclerView.post(this::maybeLoadNextPage));
+    }
+    
+    private void maybeLoadNextPage() {
+        if (getView() == null || !hasMore) return;
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        if (lastVisible >= bookAdapter.getItemCount() - PREFETCH_DISTANCE) {
+            loadNextPage();
+        }
     }
     
     private void setupSwipeRefresh() {
@@ -85,41 +181,278 @@ public class BooksFragment extends Fragment implements BookAdapter.OnBookClickLi
         });
     }
     
+    private void setupSearch() {
+        etSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+            
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+            
+            @Override
+            public void afterTextChanged(Editable s) {
+                onSearchQueryChanged(s.toString().trim());
+            }
+        });
+    }
+    
+    private void onSearchQueryChanged(String query) {
+        if (query.equals(currentQuery)) return;
+        currentQuery = query;
+        searchHandler.removeCallbacks(searchRunnable);
+        
+        if (!query.isEmpty() && searchIndex.isComplete()) {
+            cancelPageCall();
+            swipeRefreshLayout.setRefreshing(false);
+            showLocalResults(query);
+            return;
+        }
+        
+        // 最近搜过的词（例如退格回到上一个词）直接用缓存结果
+        BookPage cached = query.isEmpty() ? null : searchCache.get(query);
+        if (cached != null) {
+            cancelPageCall();
+            swipeRefreshLayout.setRefreshing(false);
+            showFirstPage(cached);
+            return;
+        }
+        searchHandler.postDelayed(searchRunnable, SEARCH_DEBOUNCE_MS);
+    }
+    
+    private void showLocalResults(String query) {
+        stopLocalPaging();
+        nextCursor = null;
+        hasMore = false;
+        bookAdapter.setBooks(searchIndex.search(query, BookSearchIndex.DEFAULT_LIMIT));
+        recyclerView.scrollToPosition(0);
+    }
+    
+    private void cancelPageCall() {
+        if (pageCall != null) {
+            pageCall.cancel();
+            pageCall = null;
+        }
+        if (streamCall != null) {
+            streamCall.cancel();
+            streamCall = null;
+        }
+    }
+    
+    private void showFirstPage(BookPage page) {
+        stopLocalPaging();
+        nextCursor = page.getNextCursor();
+        hasMore = page.hasMore();
+        bookAdapter.setBooks(page.getBooks());
+        recyclerView.scrollToPosition(0);
+    }
+    
+    // 刷新：本地副本可用时先显示本地数据，否则从服务器第一页重新加载；两种情况都在后台同步增量
     private void loadBooks() {
+        searchHandler.removeCallbacks(searchRunnable);
+        cancelPageCall();
         swipeRefreshLayout.setRefreshing(true);
+        if (!showLocalBooks()) {
+            stopLocalPaging();
+            nextCursor = null;
+            hasMore = true;
+            if (currentQuery.isEmpty()) {
+                streamPage(true);
+            } else {
+                loadPage(true);
+            }
+        }
+        syncManager.sync(syncListener);
+    }
+    
+    // 从本地副本显示当前查询的结果，副本还没有完整同步过或本地索引未就绪时返回false
+    private boolean showLocalBooks() {
+        if (!localStore.isInitialized()) return false;
         
-        apiClient.getApiService().getBooks(null, null, null, null, null)
-                .enqueue(new Callback<ApiResponse<List<Book>>>() {
+        String query = currentQuery;
+        if (!query.isEmpty()) {
+            if (!searchIndex.isComplete()) return false;
+            showLocalResults(query);
+            return true;
+        }
+        // 重新读取时保留已经滚动加载的条数，同步后列表不会缩回第一页
+        int limit = localPaging ? Math.max(PAGE_SIZE, localLoaded) : PAGE_SIZE;
+        int generation = ++localGeneration;
+        localPageLoading = true;
+        localStore.readAsync(() -> localStore.getBooksPage(null, limit), books -> {
+            // 读取期间视图已销毁、查询已改变或已有更新的读取
+            if (getView() == null || generation != localGeneration || !query.equals(currentQuery)) return;
+            // 副本就绪后不再需要还在下载的服务器数据
+            cancelPageCall();
+            localPageLoading = false;
+            localPaging = true;
+            nextCursor = null;
+            onLocalPage(books, limit, true);
+            bookAdapter.setBooks(books);
+        });
+        return true;
+    }
+    
+    private void loadNextLocalPage() {
+        if (localPageLoading || !hasMore || localLast == null) return;
+        Book after = localLast;
+        int generation = localGeneration;
+        localPageLoading = true;
+        localStore.readAsync(() -> localStore.getBooksPage(after, PAGE_SIZE), books -> {
+            if (getView() == null || generation != localGeneration) return;
+            localPageLoading = false;
+            onLocalPage(books, PAGE_SIZE, false);
+            bookAdapter.appendBooks(books);
+        });
+    }
+    
+    private void onLocalPage(List<Book> books, int limit, boolean firstPage) {
+        if (firstPage) {
+            localLoaded = 0;
+            localLast = null;
+        }
+        localLoaded += books.size();
+        if (!books.isEmpty()) {
+            localLast = books.get(books.size() - 1);
+        }
+        hasMore = books.size() == limit;
+    }
+    
+    // 列表改为显示服务器数据或本地搜索结果，作废还没返回的副本读取
+    private void stopLocalPaging() {
+        localPaging = false;
+        localPageLoading = false;
+        localLoaded = 0;
+        localLast = null;
+        localGeneration++;
+    }
+    
+    private void onSyncFinished(boolean changed, String error) {
+        if (getView() == null) return;
+        // 服务器分页请求还在进行时由它结束刷新状态
+        if (pageCall == null && streamCall == null) {
+            swipeRefreshLayout.setRefreshing(false);
+        }
+        if (changed) {
+            searchCache.evictAll();
+            showLocalBooks();
+        }
+    }
+    
+    // 本地副本还没同步完成时，按游标从服务器流式加载整个目录，每页较大，滚动到末尾时再取下一页。
+    // 第一页解析出一屏就先显示；其余数据每页只提交一次，不为每一批重新计算差异
+    private void streamPage(boolean firstPage) {
+        boolean[] shown = { !firstPage };
+        List<Book> pending = new ArrayList<>();
+        Call<ResponseBody> call = apiClient.getApiService()
+                .streamBooksPage(firstPage ? null : nextCursor, STREAM_PAGE_SIZE, null, null, null,
+                        ApiService.BOOK_LIST_FIELDS);
+        streamCall = call;
+        
+        StreamingListReader.read(call, apiClient.getGson(), Book.class, "books", STREAM_FIRST_CHUNK,
+                new StreamingListReader.Listener<Book>() {
+                    @Override
+                    public void onChunk(List<Book> books) {
+                        if (call != streamCall) return;
+                        if (!shown[0]) {
+                            shown[0] = true;
+                            swipeRefreshLayout.setRefreshing(false);
+                            bookAdapter.setBooks(books);
+                            recyclerView.scrollToPosition(0);
+                        } else {
+                            pending.addAll(books);
+                        }
+                        searchIndex.putAll(books);
+                    }
+                    
+                    @Override
+                    public void onPage(String cursor, boolean more) {
+                        if (call != streamCall) return;
+                        nextCursor = cursor;
+                        hasMore = more && cursor != null;
+                    }
+                    
                     @Override
-                    public void onResponse(Call<ApiResponse<List<Book>>> call, 
-                                         Response<ApiResponse<List<Book>>> response) {
+                    public void onComplete(int count) {
+                        if (call != streamCall) return;
+                        streamCall = null;
                         swipeRefreshLayout.setRefreshing(false);
-                        
-                        if (response.isSuccessful() && response.body() != null && response.body().isSuccess()) {
-                            List<Book> books = response.body().getData();
-                            updateBookList(books);
+                        if (!shown[0]) {
+                            // 空目录
+                            bookAdapter.setBooks(null);
                         } else {
-                            showError("获取图书列表失败");
+                            bookAdapter.appendBooks(pending);
                         }
                     }
                     
                     @Override
-                    public void onFailure(Call<ApiResponse<List<Book>>> call, Throwable t) {
+                    public void onError(String message) {
+                        if (call != streamCall) return;
+                        streamCall = null;
                         swipeRefreshLayout.setRefreshing(false);
-                        showError("网络连接失败: " + t.getMessage());
+                        // 本页未提交的数据丢弃，nextCursor 没有前进，继续滚动时重新请求本页
+                        showError("获取图书列表失败: " + message);
                     }
                 });
     }
     
-    private void updateBookList(List<Book> books) {
-        if (getActivity() == null) return;
+    private void loadNextPage() {
+        if (localPaging) {
+            loadNextLocalPage();
+            return;
+        }
+        if (pageCall != null || streamCall != null || !hasMore || nextCursor == null) return;
+        if (currentQuery.isEmpty()) {
+            streamPage(false);
+        } else {
+            loadPage(false);
+        }
+    }
+    
+    private void loadPage(boolean firstPage) {
+        String query = currentQuery;
+        Call<ApiResponse<BookPage>> call = apiClient.getApiService()
+                .getBooksPage(firstPage ? null : nextCursor, PAGE_SIZE,
+                        query.isEmpty() ? null : query, null, null, null, ApiService.BOOK_LIST_FIELDS);
+        pageCall = call;
         
-        getActivity().runOnUiThread(() -> {
-            bookList.clear();
-            if (books != null) {
-                bookList.addAll(books);
+        call.enqueue(new Callback<ApiResponse<BookPage>>() {
+            @Override
+            public void onResponse(Call<ApiResponse<BookPage>> call, 
+                                 Response<ApiResponse<BookPage>> response) {
+                // 已被新的刷新取代
+                if (call != pageCall) return;
+                pageCall = null;
+                swipeRefreshLayout.setRefreshing(false);
+                
+                if (response.isSuccessful() && response.body() != null && response.body().isSuccess()
+                        && response.body().getData() != null) {
+                    BookPage page = response.body().getData();
+                    // 服务器返回的是最新数据，顺带更新本地索引
+                    searchIndex.putAll(page.getBooks());
+                    if (firstPage) {
+                        if (!query.isEmpty()) {
+                            searchCache.put(query, page);
+                        }
+                        showFirstPage(page);
+                    } else {
+                        nextCursor = page.getNextCursor();
+                        hasMore = page.hasMore();
+                        bookAdapter.appendBooks(page.getBooks());
+                    }
+                } else {
+                    showError("获取图书列表失败");
+                }
+            }
+            
+            @Override
+            public void onFailure(Call<ApiResponse<BookPage>> call, Throwable t) {
+                if (call != pageCall) return;
+                pageCall = null;
+                swipeRefreshLayout.setRefreshing(false);
+                if (!call.isCanceled()) {
+                    showError("网络连接失败: " + t.getMessage());
+                }
             }
-            bookAdapter.notifyDataSetChanged();
         });
     }
     
@@ -153,47 +486,51 @@ public class BooksFragment extends Fragment implements BookAdapter.OnBookClickLi
         dialog.show(getParentFragmentManager(), "BorrowDialog");
     }
     
+    // 借阅先写入待提交队列并立即反映在列表上，网络断开时也能继续借阅
     private void borrowBook(int bookId, String borrower, String dueDate) {
-        ApiService apiService = ApiClient.getInstance().getApiService();
-        ApiService.BorrowRequest request = new ApiService.BorrowRequest(bookId, borrower, dueDate);
-        
-        Call<ApiResponse<Void>> call = apiService.createBorrow(request);
-        call.enqueue(new Callback<ApiResponse<Void>>() {
-            @Override
-            public void onResponse(Call<ApiResponse<Void>> call, Response<ApiResponse<Void>> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    ApiResponse<Void> apiResponse = response.body();
-                    if (apiResponse.isSuccess()) {
-                        Toast.makeText(getContext(), "借阅成功", Toast.LENGTH_SHORT).show();
-                        loadBooks(); // 刷新图书列表
-                    } else {
-                        Toast.makeText(getContext(), "借阅失败: " + apiResponse.getMessage(), Toast.LENGTH_SHORT).show();
-                    }
-                } else {
-                    Toast.makeText(getContext(), "借阅失败", Toast.LENGTH_SHORT).show();
-                }
-            }
-            
-            @Override
-            public void onFailure(Call<ApiResponse<Void>> call, Throwable t) {
-                Toast.makeText(getContext(), "网络错误: " + t.getMessage(), Toast.LENGTH_SHORT).show();
-            }
+        outbox.borrow(bookId, borrower, dueDate, () -> {
+            if (getView() == null) return;
+            Toast.makeText(getContext(), "借阅已保存，正在提交", Toast.LENGTH_SHORT).show();
+            searchCache.evictAll(); // 图书状态已变化，缓存的搜索结果作废
+            showLocalBooks();
         });
     }
     
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        searchHandler.removeCallbacks(searchRunnable);
+        cancelPageCall();
+    }
+    
     @Override
     public void onResume() {
         super.onResume();
-        // 页面恢复时刷新数据
-        loadBooks();
+        outbox.addListener(outboxListener);
+        if (refreshOnResume) {
+            refreshOnResume = false;
+            // 只重新读本地副本，不重新请求服务器
+            searchCache.evictAll();
+            showLocalBooks();
+        }
+    }
+    
+    @Override
+    public void onPause() {
+        super.onPause();
+        outbox.removeListener(outboxListener);
+        refreshOnResume = true;
     }
     
     @Override
     public void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
         if ((requestCode == 1001 || requestCode == 1002) && resultCode == RESULT_OK) {
-            // 刷新图书列表
-            loadBooks();
+            // 本地副本可用时由随后的 onResume 刷新，否则从服务器重新加载
+            searchCache.evictAll();
+            if (!localStore.isInitialized()) {
+                loadBooks();
+            }
         }
     }
 }
\ No newline at end of file
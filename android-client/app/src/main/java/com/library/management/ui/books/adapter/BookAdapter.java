@@ -1,34 +1,77 @@
 package com.library.management.ui.books.adapter;
 
+import android.content.Context;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
+import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.library.management.R;
+import com.library.management.data.CoverLoader;
 import com.library.management.model.Book;
+import java.util.ArrayList;
 import java.util.List;
 
-public class BookAdapter extends RecyclerView.Adapter<BookAdapter.BookViewHolder> {
+/**
+ * 提交新列表后在后台线程计算差异，只刷新有变化的行；行ID使用图书ID。
+ * 每本图书在提交时转换成 BookRow，显示文字和封面请求只生成一次，绑定时不分配对象。
+ */
+public class BookAdapter extends ListAdapter<BookRow, BookAdapter.BookViewHolder> {
+    
+    private static final DiffUtil.ItemCallback<BookRow> DIFF_CALLBACK = new DiffUtil.ItemCallback<BookRow>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull BookRow oldItem, @NonNull BookRow newItem) {
+            return oldItem.id == newItem.id;
+        }
+        
+        @Override
+        public boolean areContentsTheSame(@NonNull BookRow oldItem, @NonNull BookRow newItem) {
+            return oldItem.sameContent(newItem);
+        }
+    };
     
-    private List<Book> bookList;
     private OnBookClickListener listener;
+    // 最近一次提交的列表；上一次差异还在计算时 getCurrentList() 仍是旧列表，追加要基于这里
+    private List<BookRow> submitted = new ArrayList<>();
+    // 状态文字颜色，创建第一个 ViewHolder 时取一次
+    private int availableColor;
+    private int borrowedColor;
+    private boolean colorsResolved;
+    private final CoverLoader coverLoader;
+    // item_book 里封面的固定尺寸，缩略图按它请求
+    private final int coverWidth;
+    private final int coverHeight;
+    // 每次提交的列表生效后回调，例如检查是否需要继续加载下一页
+    private Runnable onListCommitted;
     
     public interface OnBookClickListener {
         void onBookClick(Book book);
         void onBorrowClick(Book book);
     }
     
-    public BookAdapter(List<Book> bookList, OnBookClickListener listener) {
-        this.bookList = bookList;
+    public BookAdapter(Context context, OnBookClickListener listener) {
+        super(DIFF_CALLBACK);
         this.listener = listener;
+        this.coverLoader = CoverLoader.getInstance(context);
+        this.coverWidth = context.getResources().getDimensionPixelSize(R.dimen.cover_thumb_width);
+        this.coverHeight = context.getResources().getDimensionPixelSize(R.dimen.cover_thumb_height);
+        setHasStableIds(true);
     }
     
     @NonNull
     @Override
     public BookViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (!colorsResolved) {
+            availableColor = ContextCompat.getColor(parent.getContext(), android.R.color.holo_green_dark);
+            borrowedColor = ContextCompat.getColor(parent.getContext(), android.R.color.holo_red_dark);
+            colorsResolved = true;
+        }
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_book, parent, false);
         return new BookViewHolder(view);
@@ -36,16 +79,50 @@ public class BookAdapter extends RecyclerView.Adapter<BookAdapter.BookViewHolder
     
     @Override
     public void onBindViewHolder(@NonNull BookViewHolder holder, int position) {
-        Book book = bookList.get(position);
-        holder.bind(book);
+        holder.bind(getItem(position));
     }
     
+    // 行被回收时取消未完成的封面加载，并释放位图供复用
     @Override
-    public int getItemCount() {
-        return bookList.size();
+    public void onViewRecycled(@NonNull BookViewHolder holder) {
+        coverLoader.clear(holder.ivCover);
+    }
+    
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).id;
+    }
+    
+    public void setOnListCommittedListener(Runnable onListCommitted) {
+        this.onListCommitted = onListCommitted;
+    }
+    
+    // 刷新或第一页：替换全部数据，未变化的行不重新绑定
+    public void setBooks(List<Book> books) {
+        submitted = new ArrayList<>(books != null ? books.size() : 0);
+        addRows(submitted, books);
+        submitList(submitted, onListCommitted);
+    }
+    
+    // 后续页：追加到末尾，差异计算结果只有新增的区间
+    public void appendBooks(List<Book> books) {
+        if (books == null || books.isEmpty()) return;
+        List<BookRow> merged = new ArrayList<>(submitted.size() + books.size());
+        merged.addAll(submitted);
+        addRows(merged, books);
+        submitted = merged;
+        submitList(merged, onListCommitted);
+    }
+    
+    private void addRows(List<BookRow> rows, List<Book> books) {
+        if (books == null) return;
+        for (Book book : books) {
+            rows.add(new BookRow(book, coverWidth, coverHeight));
+        }
     }
     
     class BookViewHolder extends RecyclerView.ViewHolder {
+        private ImageView ivCover;
         private TextView tvTitle;
         private TextView tvAuthor;
         private TextView tvIsbn;
@@ -57,6 +134,7 @@ public class BookAdapter extends RecyclerView.Adapter<BookAdapter.BookViewHolder
         public BookViewHolder(@NonNull View itemView) {
             super(itemView);
             
+            ivCover = itemView.findViewById(R.id.iv_book_cover);
             tvTitle = itemView.findViewById(R.id.tv_book_title);
             tvAuthor = itemView.findViewById(R.id.tv_book_author);
             tvIsbn = itemView.findViewById(R.id.tv_book_isbn);
@@ -68,34 +146,35 @@ public class BookAdapter extends RecyclerView.Adapter<BookAdapter.BookViewHolder
             itemView.setOnClickListener(v -> {
                 int position = getAdapterPosition();
                 if (position != RecyclerView.NO_POSITION && listener != null) {
-                    listener.onBookClick(bookList.get(position));
+                    listener.onBookClick(getItem(position).book);
                 }
             });
             
             btnBorrow.setOnClickListener(v -> {
                 int position = getAdapterPosition();
                 if (position != RecyclerView.NO_POSITION && listener != null) {
-                    listener.onBorrowClick(bookList.get(position));
+                    listener.onBorrowClick(getItem(position).book);
                 }
             });
         }
         
-        public void bind(Book book) {
-            tvTitle.setText(book.getTitle());
-            tvAuthor.setText("作者: " + (book.getAuthor() != null ? book.getAuthor() : "未知"));
-            tvIsbn.setText("ISBN: " + (book.getIsbn() != null ? book.getIsbn() : "无"));
-            tvCategory.setText("分类: " + (book.getCategory() != null ? book.getCategory() : "未分类"));
-            tvLocation.setText("位置: " + book.getLocation());
+        public void bind(BookRow row) {
+            tvTitle.setText(row.title);
+            tvAuthor.setText(row.author);
+            tvIsbn.setText(row.isbn);
+            tvCategory.setText(row.category);
+            tvLocation.setText(row.location);
+            coverLoader.load(ivCover, row.cover);
             
             // 设置状态显示
-            if (book.isAvailable()) {
+            if (row.available) {
                 tvStatus.setText("可借阅");
-                tvStatus.setTextColor(itemView.getContext().getResources().getColor(android.R.color.holo_green_dark));
+                tvStatus.setTextColor(availableColor);
                 btnBorrow.setEnabled(true);
                 btnBorrow.setText("借阅");
             } else {
                 tvStatus.setText("已借出");
-                tvStatus.setTextColor(itemView.getContext().getResources().getColor(android.R.color.holo_red_dark));
+                tvStatus.setTextColor(borrowedColor);
                 btnBorrow.setEnabled(false);
                 btnBorrow.setText("已借出");
             }
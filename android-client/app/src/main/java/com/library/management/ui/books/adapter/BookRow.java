@@ -0,0 +1,46 @@
+package com.library.management.ui.books.adapter;
+
+import com.library.management.data.CoverLoader;
+import com.library.management.model.Book;
+import java.util.Objects;
+
+/**
+ * 图书列表一行要显示的内容，在提交列表时算好一次，绑定时直接设置，不再拼接字符串。
+ */
+final class BookRow {
+    final Book book;
+    final long id;
+    final String title;
+    final String author;
+    final String isbn;
+    final String category;
+    final String location;
+    final String coverUrl;
+    // 按列表项固定的封面尺寸生成，没有封面时为null
+    final CoverLoader.CoverRequest cover;
+    final boolean available;
+
+    BookRow(Book book, int coverWidth, int coverHeight) {
+        this.book = book;
+        this.id = book.getId();
+        this.title = book.getTitle();
+        this.author = "作者: " + (book.getAuthor() != null ? book.getAuthor() : "未知");
+        this.isbn = "ISBN: " + (book.getIsbn() != null ? book.getIsbn() : "无");
+        this.category = "分类: " + (book.getCategory() != null ? book.getCategory() : "未分类");
+        this.location = "位置: " + book.getLocation();
+        this.coverUrl = book.getCoverUrl();
+        this.cover = CoverLoader.thumbnail(book.getId(), coverUrl, coverWidth, coverHeight);
+        this.available = book.isAvailable();
+    }
+
+    // 显示内容相同即可复用已绑定的行
+    boolean sameContent(BookRow other) {
+        return available == other.available
+                && Objects.equals(title, other.title)
+                && author.equals(other.author)
+                && isbn.equals(other.isbn)
+                && category.equals(other.category)
+                && location.equals(other.location)
+                && Objects.equals(coverUrl, other.coverUrl);
+    }
+}
@@ -8,21 +8,34 @@ import android.widget.ImageButton;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.library.management.R;
 import com.library.management.model.Borrow;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 
-public class BorrowAdapter extends RecyclerView.Adapter<BorrowAdapter.BorrowViewHolder> {
-    private List<Borrow> borrows;
+/**
+ * 提交新列表后在后台线程计算差异，只刷新有变化的行；行ID使用借阅记录ID。
+ * 每条记录在提交时转换成 BorrowRow，逾期判断只做一次，绑定时不创建对象、不创建监听器。
+ */
+public class BorrowAdapter extends ListAdapter<BorrowRow, BorrowAdapter.BorrowViewHolder> {
+    private static final DiffUtil.ItemCallback<BorrowRow> DIFF_CALLBACK = new DiffUtil.ItemCallback<BorrowRow>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull BorrowRow oldItem, @NonNull BorrowRow newItem) {
+            return oldItem.id == newItem.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull BorrowRow oldItem, @NonNull BorrowRow newItem) {
+            return oldItem.sameContent(newItem);
+        }
+    };
+
     private OnBorrowClickListener listener;
-    private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
 
     public interface OnBorrowClickListener {
         void onBorrowClick(Borrow borrow);
@@ -30,9 +43,10 @@ public class BorrowAdapter extends RecyclerView.Adapter<BorrowAdapter.BorrowView
         void onDeleteClick(Borrow borrow);
     }
 
-    public BorrowAdapter(List<Borrow> borrows, OnBorrowClickListener listener) {
-        this.borrows = borrows;
+    public BorrowAdapter(OnBorrowClickListener listener) {
+        super(DIFF_CALLBACK);
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -45,13 +59,24 @@ public class BorrowAdapter extends RecyclerView.Adapter<BorrowAdapter.BorrowView
 
     @Override
     public void onBindViewHolder(@NonNull BorrowViewHolder holder, int position) {
-        Borrow borrow = borrows.get(position);
-        holder.bind(borrow);
+        holder.bind(getItem(position));
     }
 
     @Override
-    public int getItemCount() {
-        return borrows.size();
+    public long getItemId(int position) {
+        return getItem(position).id;
+    }
+
+    // 替换全部数据，未变化的行不重新绑定
+    public void setBorrows(List<Borrow> borrows) {
+        long now = System.currentTimeMillis();
+        List<BorrowRow> rows = new ArrayList<>(borrows != null ? borrows.size() : 0);
+        if (borrows != null) {
+            for (Borrow borrow : borrows) {
+                rows.add(new BorrowRow(borrow, now));
+            }
+        }
+        submitList(rows);
     }
 
     class BorrowViewHolder extends RecyclerView.ViewHolder {
@@ -76,70 +101,61 @@ public class BorrowAdapter extends RecyclerView.Adapter<BorrowAdapter.BorrowView
             tvOverdue = itemView.findViewById(R.id.tv_overdue);
             btnReturn = itemView.findViewById(R.id.btn_return);
             btnDelete = itemView.findViewById(R.id.btn_delete);
-        }
 
-        public void bind(Borrow borrow) {
-            // 显示图书信息
-            tvBookTitle.setText(borrow.getBook().getTitle());
-            tvBookAuthor.setText(borrow.getBook().getAuthor());
-            
-            // 显示借阅信息
-            tvBorrower.setText(borrow.getBorrower());
-            tvBorrowDate.setText(borrow.getBorrowDate());
-            tvDueDate.setText(borrow.getDueDate());
-            
-            // 显示状态
-            boolean isReturned = borrow.getReturnDate() != null;
-            if (isReturned) {
-                tvStatus.setText("已归还");
-                tvStatus.setBackgroundResource(R.drawable.status_available);
-                btnReturn.setVisibility(View.GONE);
-                tvOverdue.setVisibility(View.GONE);
-            } else {
-                tvStatus.setText("借阅中");
-                tvStatus.setBackgroundResource(R.drawable.status_borrowed);
-                btnReturn.setVisibility(View.VISIBLE);
-                
-                // 检查是否逾期
-                checkOverdue(borrow);
-            }
-            
-            // 设置点击事件
+            // 点击事件只设置一次，按当前位置取记录
             itemView.setOnClickListener(v -> {
-                if (listener != null) {
+                Borrow borrow = borrowAt(getAdapterPosition());
+                if (borrow != null) {
                     listener.onBorrowClick(borrow);
                 }
             });
-            
+
             btnReturn.setOnClickListener(v -> {
-                if (listener != null) {
+                Borrow borrow = borrowAt(getAdapterPosition());
+                if (borrow != null) {
                     listener.onReturnClick(borrow);
                 }
             });
-            
+
             btnDelete.setOnClickListener(v -> {
-                if (listener != null) {
+                Borrow borrow = borrowAt(getAdapterPosition());
+                if (borrow != null) {
                     listener.onDeleteClick(borrow);
                 }
             });
+
+            tvOverdue.setText("逾期");
+            tvOverdue.setBackgroundResource(R.drawable.status_unavailable);
         }
-        
-        private void checkOverdue(Borrow borrow) {
-            try {
-                Date dueDate = dateFormat.parse(borrow.getDueDate());
-                Date currentDate = new Date();
-                
-                if (dueDate != null && currentDate.after(dueDate)) {
-                    // 逾期
-                    tvOverdue.setVisibility(View.VISIBLE);
-                    tvOverdue.setText("逾期");
-                    tvOverdue.setBackgroundResource(R.drawable.status_unavailable);
-                } else {
-                    tvOverdue.setVisibility(View.GONE);
-                }
-            } catch (ParseException e) {
-                tvOverdue.setVisibility(View.GONE);
+
+        public void bind(BorrowRow row) {
+            // 显示图书信息
+            tvBookTitle.setText(row.bookTitle);
+            tvBookAuthor.setText(row.bookAuthor);
+
+            // 显示借阅信息
+            tvBorrower.setText(row.borrower);
+            tvBorrowDate.setText(row.borrowDate);
+            tvDueDate.setText(row.dueDate);
+
+            // 显示状态
+            if (row.returned) {
+                tvStatus.setText("已归还");
+                tvStatus.setBackgroundResource(R.drawable.status_available);
+                btnReturn.setVisibility(View.GONE);
+            } else {
+                tvStatus.setText("借阅中");
+                tvStatus.setBackgroundResource(R.drawable.status_borrowed);
+                btnReturn.setVisibility(View.VISIBLE);
             }
+            tvOverdue.setVisibility(row.overdue ? View.VISIBLE : View.GONE);
+        }
+    }
+
+    private Borrow borrowAt(int position) {
+        if (position == RecyclerView.NO_POSITION || listener == null) {
+            return null;
         }
+        return getItem(position).borrow;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,44 @@
+package com.library.management.ui.borrows;
+
+import com.library.management.model.Book;
+import com.library.management.model.Borrow;
+import java.util.Objects;
+
+/**
+ * 借阅列表一行要显示的内容和逾期状态，在提交列表时算好一次，绑定时不再判断。
+ */
+final class BorrowRow {
+    final Borrow borrow;
+    final long id;
+    final String bookTitle;
+    final String bookAuthor;
+    final String borrower;
+    final String borrowDate;
+    final String dueDate;
+    final boolean returned;
+    final boolean overdue;
+
+    BorrowRow(Borrow borrow, long now) {
+        Book book = borrow.getBook();
+        this.borrow = borrow;
+        this.id = borrow.getId();
+        this.bookTitle = book != null ? book.getTitle() : null;
+        this.bookAuthor = book != null ? book.getAuthor() : null;
+        this.borrower = borrow.getBorrower();
+        this.borrowDate = borrow.getBorrowDate();
+        this.dueDate = borrow.getDueDate();
+        this.returned = borrow.getReturnDate() != null;
+        this.overdue = !returned && borrow.isOverdue(now);
+    }
+
+    // 显示内容相同即可复用已绑定的行
+    boolean sameContent(BorrowRow other) {
+        return returned == other.returned
+                && overdue == other.overdue
+                && Objects.equals(bookTitle, other.bookTitle)
+                && Objects.equals(bookAuthor, other.bookAuthor)
+                && Objects.equals(borrower, other.borrower)
+                && Objects.equals(borrowDate, other.borrowDate)
+                && Objects.equals(dueDate, other.dueDate);
+    }
+}
@@ -17,22 +17,47 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 import com.library.management.R;
 import com.library.management.api.ApiClient;
 import com.library.management.api.ApiService;
+import com.library.management.data.LocalStore;
+import com.library.management.data.Outbox;
+import com.library.management.data.OutboxEntry;
+import com.library.management.data.SyncManager;
 import com.library.management.model.ApiResponse;
 import com.library.management.model.Borrow;
+import com.library.management.model.BorrowPage;
 
-import java.util.ArrayList;
-import java.util.List;
 
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
 
 public class BorrowsFragment extends Fragment implements BorrowAdapter.OnBorrowClickListener {
+    // 副本首次同步完成之前从服务器取的借阅记录条数
+    private static final int SERVER_PAGE_SIZE = 50;
+    
     private RecyclerView recyclerView;
     private BorrowAdapter adapter;
     private SwipeRefreshLayout swipeRefreshLayout;
     private ApiService apiService;
-    private List<Borrow> borrows;
+    private SyncManager syncManager;
+    private LocalStore localStore;
+    private Outbox outbox;
+    private Call<ApiResponse<BorrowPage>> pageCall;
+    
+    private final Outbox.Listener outboxListener = new Outbox.Listener() {
+        @Override
+        public void onOutboxSynced() {
+            if (getView() != null) {
+                showLocalBorrows();
+            }
+        }
+
+        @Override
+        public void onOperationRejected(OutboxEntry entry, String message) {
+            if (OutboxEntry.OP_RETURN.equals(entry.getOp())) {
+                showError("归还失败: " + message);
+            }
+        }
+    };
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
@@ -43,8 +68,10 @@ public class BorrowsFragment extends Fragment implements BorrowAdapter.OnBorrowC
         setupRecyclerView();
         setupSwipeRefresh();
         
-        apiService = ApiClient.getApiService();
-        borrows = new ArrayList<>();
+        apiService = ApiClient.getInstance(requireContext()).getApiService();
+        syncManager = SyncManager.getInstance(requireContext());
+        localStore = syncManager.getStore();
+        outbox = Outbox.getInstance(requireContext());
         
         loadBorrows();
         
@@ -57,7 +84,7 @@ public class BorrowsFragment extends Fragment implements BorrowAdapter.OnBorrowC
     }
 
     private void setupRecyclerView() {
-        adapter = new BorrowAdapter(borrows, this);
+        adapter = new BorrowAdapter(this);
         recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         recyclerView.setAdapter(adapter);
     }
@@ -66,35 +93,72 @@ public class BorrowsFragment extends Fragment implements BorrowAdapter.OnBorrowC
         swipeRefreshLayout.setOnRefreshListener(this::loadBorrows);
     }
 
+    // 先显示本地副本，再同步增量，有变化时重新显示；副本还没同步完成时先从服务器取第一页
     private void loadBorrows() {
         swipeRefreshLayout.setRefreshing(true);
+        if (localStore.isInitialized()) {
+            showLocalBorrows();
+        } else {
+            loadServerBorrows();
+        }
         
-        apiService.getBorrows(null, null, null, null).enqueue(new Callback<ApiResponse<List<Borrow>>>() {
+        syncManager.sync((changed, error) -> {
+            if (getView() == null) return;
+            swipeRefreshLayout.setRefreshing(false);
+            
+            if (changed) {
+                showLocalBorrows();
+            } else if (error != null && !localStore.isInitialized()) {
+                showError("网络连接失败: " + error);
+            }
+        });
+    }
+
+    // 借阅记录只带 book_id，图书由 BorrowPage 去重，借同一本书的记录共用一个 Book
+    private void loadServerBorrows() {
+        if (pageCall != null) return;
+        Call<ApiResponse<BorrowPage>> call = apiService.getBorrowPage(1, SERVER_PAGE_SIZE, null, null,
+                ApiService.BORROW_PAGE_FIELDS, ApiService.BORROW_PAGE_BOOK_FIELDS);
+        pageCall = call;
+        call.enqueue(new Callback<ApiResponse<BorrowPage>>() {
             @Override
-            public void onResponse(Call<ApiResponse<List<Borrow>>> call, Response<ApiResponse<List<Borrow>>> response) {
-                swipeRefreshLayout.setRefreshing(false);
-                
-                if (response.isSuccessful() && response.body() != null) {
-                    ApiResponse<List<Borrow>> apiResponse = response.body();
-                    if (apiResponse.isSuccess()) {
-                        borrows.clear();
-                        borrows.addAll(apiResponse.getData());
-                        adapter.notifyDataSetChanged();
-                    } else {
-                        showError(apiResponse.getMessage());
-                    }
-                } else {
-                    showError("加载借阅记录失败");
+            public void onResponse(Call<ApiResponse<BorrowPage>> call, Response<ApiResponse<BorrowPage>> response) {
+                if (call != pageCall) return;
+                pageCall = null;
+                // 副本已经就绪时以副本为准
+                if (getView() == null || localStore.isInitialized()) return;
+                ApiResponse<BorrowPage> body = response.body();
+                if (response.isSuccessful() && body != null && body.isSuccess() && body.getData() != null) {
+                    adapter.setBorrows(body.getData().getBorrows());
                 }
             }
-
+            
             @Override
-            public void onFailure(Call<ApiResponse<List<Borrow>>> call, Throwable t) {
-                swipeRefreshLayout.setRefreshing(false);
-                showError("网络连接失败: " + t.getMessage());
+            public void onFailure(Call<ApiResponse<BorrowPage>> call, Throwable t) {
+                // 网络错误由同步的回调提示
+                if (call == pageCall) {
+                    pageCall = null;
+                }
             }
         });
     }
+    
+    private void cancelPageCall() {
+        if (pageCall != null) {
+            pageCall.cancel();
+            pageCall = null;
+        }
+    }
+    
+    private void showLocalBorrows() {
+        if (!localStore.isInitialized()) return;
+        cancelPageCall();
+        
+        localStore.readAsync(localStore::getBorrows, result -> {
+            if (getView() == null) return;
+            adapter.setBorrows(result);
+        });
+    }
 
     @Override
     public void onBorrowClick(Borrow borrow) {
@@ -150,27 +214,12 @@ public class BorrowsFragment extends Fragment implements BorrowAdapter.OnBorrowC
         builder.show();
     }
 
+    // 归还先写入待提交队列并立即反映在列表上，由 Outbox 在后台提交
     private void returnBook(Borrow borrow) {
-        apiService.returnBook(borrow.getId()).enqueue(new Callback<ApiResponse<Borrow>>() {
-            @Override
-            public void onResponse(Call<ApiResponse<Borrow>> call, Response<ApiResponse<Borrow>> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    ApiResponse<Borrow> apiResponse = response.body();
-                    if (apiResponse.isSuccess()) {
-                        Toast.makeText(getContext(), "图书归还成功", Toast.LENGTH_SHORT).show();
-                        loadBorrows();
-                    } else {
-                        showError(apiResponse.getMessage());
-                    }
-                } else {
-                    showError("归还图书失败");
-                }
-            }
-
-            @Override
-            public void onFailure(Call<ApiResponse<Borrow>> call, Throwable t) {
-                showError("网络连接失败: " + t.getMessage());
-            }
+        outbox.returnBorrow(borrow.getId(), () -> {
+            if (getView() == null) return;
+            Toast.makeText(getContext(), "图书归还成功", Toast.LENGTH_SHORT).show();
+            showLocalBorrows();
         });
     }
 
@@ -198,6 +247,24 @@ public class BorrowsFragment extends Fragment implements BorrowAdapter.OnBorrowC
         });
     }
 
+    @Override
+    public void onResume() {
+        super.onResume();
+        outbox.addListener(outboxListener);
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        outbox.removeListener(outboxListener);
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        cancelPageCall();
+    }
+    
     private void showError(String message) {
         Toast.makeText(getContext(), message, Toast.LENGTH_SHORT).show();
     }
@@ -19,11 +19,11 @@ import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.library.management.R;
 import com.library.management.api.ApiClient;
 import com.library.management.api.ApiService;
+import com.library.management.data.LocalStore;
+import com.library.management.data.SyncManager;
 import com.library.management.model.ApiResponse;
 import com.library.management.model.Category;
 
-import java.util.ArrayList;
-import java.util.List;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -35,7 +35,8 @@ public class CategoriesFragment extends Fragment implements CategoryAdapter.OnCa
     private SwipeRefreshLayout swipeRefreshLayout;
     private FloatingActionButton fabAdd;
     private ApiService apiService;
-    private List<Category> categories;
+    private SyncManager syncManager;
+    private LocalStore localStore;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
@@ -47,8 +48,9 @@ public class CategoriesFragment extends Fragment implements CategoryAdapter.OnCa
         setupSwipeRefresh();
         setupFab();
         
-        apiService = ApiClient.getApiService();
-        categories = new ArrayList<>();
+        apiService = ApiClient.getInstance(requireContext()).getApiService();
+        syncManager = SyncManager.getInstance(requireContext());
+        localStore = syncManager.getStore();
         
         loadCategories();
         
@@ -62,7 +64,7 @@ public class CategoriesFragment extends Fragment implements CategoryAdapter.OnCa
     }
 
     private void setupRecyclerView() {
-        adapter = new CategoryAdapter(categories, this);
+        adapter = new CategoryAdapter(this);
         recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
         recyclerView.setAdapter(adapter);
     }
@@ -75,33 +77,29 @@ public class CategoriesFragment extends Fragment implements CategoryAdapter.OnCa
         fabAdd.setOnClickListener(v -> showAddCategoryDialog());
     }
 
+    // 先显示本地副本，再同步增量，有变化时重新显示
     private void loadCategories() {
         swipeRefreshLayout.setRefreshing(true);
+        showLocalCategories();
         
-        apiService.getCategories().enqueue(new Callback<ApiResponse<List<Category>>>() {
-            @Override
-            public void onResponse(Call<ApiResponse<List<Category>>> call, Response<ApiResponse<List<Category>>> response) {
-                swipeRefreshLayout.setRefreshing(false);
-                
-                if (response.isSuccessful() && response.body() != null) {
-                    ApiResponse<List<Category>> apiResponse = response.body();
-                    if (apiResponse.isSuccess()) {
-                        categories.clear();
-                        categories.addAll(apiResponse.getData());
-                        adapter.notifyDataSetChanged();
-                    } else {
-                        showError(apiResponse.getMessage());
-                    }
-                } else {
-                    showError("加载分类失败");
-                }
+        syncManager.sync((changed, error) -> {
+            if (getView() == null) return;
+            swipeRefreshLayout.setRefreshing(false);
+            
+            if (changed) {
+                showLocalCategories();
+            } else if (error != null && !localStore.isInitialized()) {
+                showError("网络连接失败: " + error);
             }
+        });
+    }
 
-            @Override
-            public void onFailure(Call<ApiResponse<List<Category>>> call, Throwable t) {
-                swipeRefreshLayout.setRefreshing(false);
-                showError("网络连接失败: " + t.getMessage());
-            }
+    private void showLocalCategories() {
+        if (!localStore.isInitialized()) return;
+        
+        localStore.readAsync(localStore::getCategories, result -> {
+            if (getView() == null) return;
+            adapter.submitList(result);
         });
     }
 
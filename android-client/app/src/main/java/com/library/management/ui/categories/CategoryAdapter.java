@@ -7,15 +7,34 @@ import android.widget.ImageButton;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.library.management.R;
 import com.library.management.model.Category;
 
-import java.util.List;
+import java.util.Objects;
+
+/**
+ * 提交新列表后在后台线程计算差异，只刷新有变化的行；行ID使用分类ID。
+ */
+public class CategoryAdapter extends ListAdapter<Category, CategoryAdapter.CategoryViewHolder> {
+    private static final DiffUtil.ItemCallback<Category> DIFF_CALLBACK = new DiffUtil.ItemCallback<Category>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Category oldItem, @NonNull Category newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+
+        // 只比较列表行显示的字段
+        @Override
+        public boolean areContentsTheSame(@NonNull Category oldItem, @NonNull Category newItem) {
+            return Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription())
+                    && Objects.equals(oldItem.getBookCount(), newItem.getBookCount());
+        }
+    };
 
-public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.CategoryViewHolder> {
-    private List<Category> categories;
     private OnCategoryClickListener listener;
 
     public interface OnCategoryClickListener {
@@ -23,9 +42,10 @@ public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.Catego
         void onDeleteClick(Category category);
     }
 
-    public CategoryAdapter(List<Category> categories, OnCategoryClickListener listener) {
-        this.categories = categories;
+    public CategoryAdapter(OnCategoryClickListener listener) {
+        super(DIFF_CALLBACK);
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -38,13 +58,14 @@ public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.Catego
 
     @Override
     public void onBindViewHolder(@NonNull CategoryViewHolder holder, int position) {
-        Category category = categories.get(position);
+        Category category = getItem(position);
         holder.bind(category);
     }
 
     @Override
-    public int getItemCount() {
-        return categories.size();
+    public long getItemId(int position) {
+        Long id = getItem(position).getId();
+        return id != null ? id : RecyclerView.NO_ID;
     }
 
     class CategoryViewHolder extends RecyclerView.ViewHolder {
@@ -88,4 +109,5 @@ public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.Catego
                 }
             });
         }
-    }
\ No newline at end of file
+    }
+}
@@ -12,6 +12,8 @@ import androidx.fragment.app.Fragment;
 import androidx.cardview.widget.CardView;
 import com.library.management.R;
 import com.library.management.api.ApiClient;
+import com.library.management.data.LocalStore;
+import com.library.management.data.SyncManager;
 import com.library.management.model.ApiResponse;
 import com.library.management.model.Statistics;
 import retrofit2.Call;
@@ -30,11 +32,15 @@ public class HomeFragment extends Fragment {
     private CardView cardStatistics;
     
     private ApiClient apiClient;
+    private SyncManager syncManager;
+    private LocalStore localStore;
     
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         apiClient = ApiClient.getInstance(requireContext());
+        syncManager = SyncManager.getInstance(requireContext());
+        localStore = syncManager.getStore();
     }
     
     @Override
@@ -68,7 +74,20 @@ public class HomeFragment extends Fragment {
         cardStatistics.setOnClickListener(v -> navigateToStatistics());
     }
     
+    // 本地副本可用时直接在副本上统计并在后台同步增量，否则向服务器请求统计数据
     private void loadStatistics() {
+        if (localStore.isInitialized()) {
+            showLocalStatistics();
+            syncManager.sync((changed, error) -> {
+                if (changed && getView() != null) {
+                    showLocalStatistics();
+                }
+            });
+            return;
+        }
+        
+        // 顺带初始化本地副本，下次打开即可离线显示
+        syncManager.sync(null);
         apiClient.getApiService().getStatistics().enqueue(new Callback<ApiResponse<Statistics>>() {
             @Override
             public void onResponse(Call<ApiResponse<Statistics>> call, Response<ApiResponse<Statistics>> response) {
@@ -87,6 +106,14 @@ public class HomeFragment extends Fragment {
         });
     }
     
+    private void showLocalStatistics() {
+        localStore.readAsync(localStore::getStatistics, stats -> {
+            if (getView() != null) {
+                updateStatisticsUI(stats);
+            }
+        });
+    }
+    
     private void updateStatisticsUI(Statistics stats) {
         if (getActivity() == null) return;
         
@@ -3,6 +3,7 @@ package com.library.management.ui.settings;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -15,11 +16,6 @@ import androidx.fragment.app.Fragment;
 import com.google.android.material.textfield.TextInputEditText;
 import com.library.management.R;
 import com.library.management.api.ApiClient;
-import com.library.management.api.ApiService;
-import com.library.management.model.ApiResponse;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
 
 public class SettingsFragment extends Fragment {
     
@@ -65,8 +61,8 @@ public class SettingsFragment extends Fragment {
     }
     
     private void loadSettings() {
-        String serverUrl = sharedPreferences.getString(KEY_SERVER_URL, DEFAULT_SERVER_URL);
-        etServerUrl.setText(serverUrl);
+        // 显示 ApiClient 实际使用的服务器列表
+        etServerUrl.setText(TextUtils.join(", ", ApiClient.getInstance(requireContext()).getServerUrls()));
     }
     
     private void saveSettings() {
@@ -88,7 +84,7 @@ public class SettingsFragment extends Fragment {
         editor.apply();
         
         // 更新ApiClient的服务器地址
-        ApiClient.getInstance().updateServerUrl(serverUrl);
+        ApiClient.getInstance(requireContext()).updateServerUrl(serverUrl);
         
         Toast.makeText(getContext(), "设置已保存", Toast.LENGTH_SHORT).show();
     }
@@ -108,34 +104,40 @@ public class SettingsFragment extends Fragment {
         
         showLoading(true);
         
-        // 临时更新服务器地址进行测试
-        ApiClient testClient = new ApiClient();
-        testClient.updateServerUrl(serverUrl);
-        ApiService apiService = testClient.getApiService();
-        
-        // 测试连接 - 尝试获取统计信息
-        Call<ApiResponse<Object>> call = apiService.getStatistics();
-        call.enqueue(new Callback<ApiResponse<Object>>() {
-            @Override
-            public void onResponse(Call<ApiResponse<Object>> call, Response<ApiResponse<Object>> response) {
-                showLoading(false);
-                if (response.isSuccessful()) {
-                    showConnectionResult(true, "连接成功");
-                } else {
-                    showConnectionResult(false, "连接失败: HTTP " + response.code());
+        // 用共享的客户端逐个测试输入的地址，不影响当前使用的服务器
+        String[] urls = splitUrls(serverUrl);
+        int[] remaining = { urls.length };
+        for (String url : urls) {
+            ApiClient.getInstance(requireContext()).testConnection(url, new ApiClient.ConnectionCallback() {
+                @Override
+                public void onSuccess() {
+                    if (!isAdded()) return;
+                    showLoading(--remaining[0] > 0);
+                    showConnectionResult(true, url);
                 }
-            }
-            
-            @Override
-            public void onFailure(Call<ApiResponse<Object>> call, Throwable t) {
-                showLoading(false);
-                showConnectionResult(false, "连接失败: " + t.getMessage());
-            }
-        });
+                
+                @Override
+                public void onError(String error) {
+                    if (!isAdded()) return;
+                    showLoading(--remaining[0] > 0);
+                    showConnectionResult(false, url + " " + error);
+                }
+            });
+        }
     }
     
-    private boolean isValidUrl(String url) {
-        return url.startsWith("http://") || url.startsWith("https://");
+    private static String[] splitUrls(String value) {
+        return value.trim().split("[,\\s]+");
+    }
+    
+    // 可以填写多个地址，每个都要有效
+    private boolean isValidUrl(String value) {
+        for (String url : splitUrls(value)) {
+            if (!url.startsWith("http://") && !url.startsWith("https://")) {
+                return false;
+            }
+        }
+        return true;
     }
     
     private void showLoading(boolean show) {
@@ -146,7 +148,7 @@ public class SettingsFragment extends Fragment {
     
     private void showConnectionResult(boolean success, String message) {
         if (success) {
-            Toast.makeText(getContext(), getString(R.string.connection_success), Toast.LENGTH_SHORT).show();
+            Toast.makeText(getContext(), getString(R.string.connection_success) + ": " + message, Toast.LENGTH_SHORT).show();
         } else {
             Toast.makeText(getContext(), getString(R.string.connection_failed) + ": " + message, Toast.LENGTH_LONG).show();
         }
@@ -15,6 +15,8 @@ import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 import com.library.management.R;
 import com.library.management.api.ApiClient;
 import com.library.management.api.ApiService;
+import com.library.management.data.LocalStore;
+import com.library.management.data.SyncManager;
 import com.library.management.model.ApiResponse;
 import com.library.management.model.Statistics;
 
@@ -36,6 +38,8 @@ public class StatisticsFragment extends Fragment {
     private TextView tvAverageBorrowDays;
     
     private ApiService apiService;
+    private SyncManager syncManager;
+    private LocalStore localStore;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
@@ -45,7 +49,9 @@ public class StatisticsFragment extends Fragment {
         initViews(view);
         setupSwipeRefresh();
         
-        apiService = ApiClient.getApiService();
+        apiService = ApiClient.getInstance(requireContext()).getApiService();
+        syncManager = SyncManager.getInstance(requireContext());
+        localStore = syncManager.getStore();
         
         loadStatistics();
         
@@ -70,8 +76,20 @@ public class StatisticsFragment extends Fragment {
         swipeRefreshLayout.setOnRefreshListener(this::loadStatistics);
     }
 
+    // 本地副本可用时直接在副本上统计并在后台同步增量，否则向服务器请求统计数据
     private void loadStatistics() {
         swipeRefreshLayout.setRefreshing(true);
+        if (localStore.isInitialized()) {
+            showLocalStatistics();
+            syncManager.sync((changed, error) -> {
+                if (getView() == null) return;
+                swipeRefreshLayout.setRefreshing(false);
+                if (changed) {
+                    showLocalStatistics();
+                }
+            });
+            return;
+        }
         
         apiService.getStatistics().enqueue(new Callback<ApiResponse<Statistics>>() {
             @Override
@@ -98,6 +116,14 @@ public class StatisticsFragment extends Fragment {
         });
     }
 
+    private void showLocalStatistics() {
+        localStore.readAsync(localStore::getStatistics, stats -> {
+            if (getView() != null) {
+                updateStatistics(stats);
+            }
+        });
+    }
+
     private void updateStatistics(Statistics statistics) {
         // 图书统计
         tvTotalBooks.setText(String.valueOf(statistics.getTotalBooks()));
@@ -121,8 +147,9 @@ public class StatisticsFragment extends Fragment {
             (double) (statistics.getTotalBorrows() - statistics.getActiveBorrows()) / statistics.getTotalBorrows() * 100 : 0;
         tvReturnRate.setText(String.format("%.1f%%", returnRate));
         
-        // 平均借阅天数（这里使用模拟数据，实际应该从API获取）
-        tvAverageBorrowDays.setText("15.5");
+        // 平均借阅天数只在本地副本上统计
+        Double averageDays = statistics.getAverageBorrowDays();
+        tvAverageBorrowDays.setText(averageDays != null ? String.format("%.1f", averageDays) : "-");
     }
 
     private void showError(String message) {
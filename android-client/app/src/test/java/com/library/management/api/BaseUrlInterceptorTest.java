@@ -0,0 +1,148 @@
+package com.library.management.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 故障转移规则：读请求在连接失败或 5xx 时转到下一个服务器；
+ * 写请求只在连接没有建立时转移，请求可能已经到达服务器后不换一台重发。
+ */
+public class BaseUrlInterceptorTest {
+
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private MockWebServer primary;
+    private MockWebServer backup;
+
+    @Before
+    public void setUp() throws IOException {
+        primary = new MockWebServer();
+        backup = new MockWebServer();
+        primary.start();
+        backup.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        primary.shutdown();
+        backup.shutdown();
+    }
+
+    // OkHttp 自己不重试，失败后是否换服务器完全由 BaseUrlInterceptor 决定
+    private static OkHttpClient client(EndpointSelector selector) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(new BaseUrlInterceptor(selector))
+                .retryOnConnectionFailure(false)
+                .build();
+    }
+
+    private static EndpointSelector selector(String first, String second) {
+        return new EndpointSelector(Arrays.asList(first, second));
+    }
+
+    // 已关闭的端口，连接会被拒绝
+    private String refusedUrl() throws IOException {
+        MockWebServer closed = new MockWebServer();
+        closed.start();
+        String url = closed.url("/").toString();
+        closed.shutdown();
+        return url;
+    }
+
+    private static Request get(String path) {
+        return new Request.Builder().url(BaseUrlInterceptor.PLACEHOLDER.resolve(path)).build();
+    }
+
+    private static Request post(String path) {
+        return new Request.Builder()
+                .url(BaseUrlInterceptor.PLACEHOLDER.resolve(path))
+                .post(RequestBody.create("{}", JSON))
+                .build();
+    }
+
+    @Test
+    public void readFailsOverWhenConnectionRefused() throws Exception {
+        EndpointSelector selector = selector(refusedUrl(), backup.url("/").toString());
+        backup.enqueue(new MockResponse().setBody("ok"));
+
+        try (Response response = client(selector).newCall(get("api/books?page=1")).execute()) {
+            assertEquals(200, response.code());
+            assertEquals("ok", response.body().string());
+        }
+        assertEquals("/api/books?page=1", backup.takeRequest().getPath());
+        assertTrue(selector.getEndpoints().get(0).getErrorRate() > 0);
+    }
+
+    @Test
+    public void writeFailsOverWhenConnectionRefused() throws Exception {
+        EndpointSelector selector = selector(refusedUrl(), backup.url("/").toString());
+        backup.enqueue(new MockResponse().setResponseCode(201));
+
+        try (Response response = client(selector).newCall(post("api/borrows")).execute()) {
+            assertEquals(201, response.code());
+        }
+        assertEquals("POST", backup.takeRequest().getMethod());
+    }
+
+    @Test
+    public void writeDoesNotFailOverAfterRequestWasSent() {
+        EndpointSelector selector = selector(primary.url("/").toString(), backup.url("/").toString());
+        primary.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        backup.enqueue(new MockResponse().setResponseCode(201));
+
+        assertThrows(IOException.class, () -> client(selector).newCall(post("api/borrows")).execute());
+        assertEquals(1, primary.getRequestCount());
+        assertEquals(0, backup.getRequestCount());
+    }
+
+    @Test
+    public void readFailsOverOnServerError() throws Exception {
+        EndpointSelector selector = selector(primary.url("/").toString(), backup.url("/").toString());
+        primary.enqueue(new MockResponse().setResponseCode(503));
+        backup.enqueue(new MockResponse().setBody("ok"));
+
+        try (Response response = client(selector).newCall(get("api/books")).execute()) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(1, primary.getRequestCount());
+        assertEquals(1, backup.getRequestCount());
+    }
+
+    @Test
+    public void writeReturnsServerErrorWithoutFailover() throws Exception {
+        EndpointSelector selector = selector(primary.url("/").toString(), backup.url("/").toString());
+        primary.enqueue(new MockResponse().setResponseCode(503));
+
+        try (Response response = client(selector).newCall(post("api/borrows")).execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(0, backup.getRequestCount());
+    }
+
+    @Test
+    public void fullUrlsAreNotRewritten() throws Exception {
+        EndpointSelector selector = selector(refusedUrl(), refusedUrl());
+        backup.enqueue(new MockResponse().setBody("ok"));
+
+        Request direct = new Request.Builder().url(backup.url("/api/health")).build();
+        try (Response response = client(selector).newCall(direct).execute()) {
+            assertEquals(200, response.code());
+        }
+        assertEquals("/api/health", backup.takeRequest().getPath());
+    }
+}
@@ -0,0 +1,103 @@
+package com.library.management.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 服务器选择：延迟和错误率按指数移动平均计分，其他服务器的分数要低于当前服务器的 SWITCH_MARGIN 倍才切换。
+ * 不调用 start()，不会发出探测请求，统计直接通过 Endpoint.record 写入。
+ */
+public class EndpointSelectorTest {
+
+    private static final String PRIMARY = "http://primary.test/";
+    private static final String BACKUP = "http://backup.test/";
+
+    private EndpointSelector selector;
+    private EndpointSelector.Endpoint primary;
+    private EndpointSelector.Endpoint backup;
+
+    @Before
+    public void setUp() {
+        selector = new EndpointSelector(Arrays.asList(PRIMARY, BACKUP));
+        primary = selector.getEndpoints().get(0);
+        backup = selector.getEndpoints().get(1);
+    }
+
+    @Test
+    public void firstEndpointIsPreferredBeforeAnyMeasurement() {
+        assertSame(primary, selector.current());
+        assertEquals(Arrays.asList(primary, backup), selector.candidates());
+    }
+
+    @Test
+    public void slightlyFasterBackupDoesNotTakeOver() {
+        primary.record(true, 100);
+        backup.record(true, 90);
+
+        // 90 不低于 100 × 0.8，留在首选服务器
+        assertSame(primary, selector.candidates().get(0));
+        assertSame(primary, selector.current());
+    }
+
+    @Test
+    public void switchesWhenBackupBeatsMargin() {
+        primary.record(true, 100);
+        backup.record(true, 90);
+        // 移动平均：0.3 × 10 + 0.7 × 90 = 66，低于 80
+        backup.record(true, 10);
+
+        List<EndpointSelector.Endpoint> candidates = selector.candidates();
+        assertSame(backup, candidates.get(0));
+        assertSame(primary, candidates.get(1));
+        assertSame(backup, selector.current());
+    }
+
+    @Test
+    public void doesNotSwitchBackWithinMargin() {
+        primary.record(true, 100);
+        backup.record(true, 90);
+        backup.record(true, 10);
+        selector.candidates();
+
+        // 首选服务器变快到 0.3 × 40 + 0.7 × 100 = 82，仍不低于 66 × 0.8，不来回切换
+        primary.record(true, 40);
+        assertSame(backup, selector.candidates().get(0));
+    }
+
+    @Test
+    public void failedRequestMovesTrafficToBackup() {
+        primary.record(true, 100);
+        backup.record(true, 150);
+        assertSame(primary, selector.candidates().get(0));
+
+        // 一次失败：错误率 0.3，折算成 1500ms 的惩罚
+        selector.record(primary, false);
+        assertEquals(0.3, primary.getErrorRate(), 1e-9);
+        assertSame(backup, selector.candidates().get(0));
+    }
+
+    @Test
+    public void errorRateDecaysWithSuccesses() {
+        selector.record(primary, false);
+        for (int i = 0; i < 10; i++) {
+            selector.record(primary, true);
+        }
+        // 0.3 × 0.7^10
+        assertEquals(0.3 * Math.pow(0.7, 10), primary.getErrorRate(), 1e-9);
+    }
+
+    @Test
+    public void settingSameEndpointsKeepsStatistics() {
+        primary.record(true, 100);
+        selector.setEndpoints(Arrays.asList(BACKUP, PRIMARY));
+
+        assertSame(backup, selector.current());
+        assertSame(primary, selector.getEndpoints().get(1));
+        assertEquals(100, primary.getLatencyMs(), 1e-9);
+    }
+}
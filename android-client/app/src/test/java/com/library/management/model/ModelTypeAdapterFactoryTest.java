@@ -0,0 +1,263 @@
+package com.library.management.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * 手写的 TypeAdapter 和模型字段对照。每个非 transient 字段都用反射填上不同的非默认值，
+ * 经适配器写出再读回后逐字段比较；模型新增字段而适配器没有跟着改时，这里会报出字段名。
+ */
+public class ModelTypeAdapterFactoryTest {
+
+    // 工厂负责的全部模型，新增模型时也要加到这里
+    private static final List<Class<?>> MODELS = Arrays.<Class<?>>asList(
+            Book.class, Borrow.class, Category.class, Statistics.class, Statistics.CategoryStat.class,
+            BookPage.class, BorrowPage.class, SyncChanges.class, SyncChanges.Deleted.class,
+            ApiResponse.class);
+
+    // 嵌套模型只填两层，Book 和 Borrow 互相引用
+    private static final int MAX_DEPTH = 2;
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapterFactory(new ModelTypeAdapterFactory())
+            .create();
+    private int seed;
+
+    @Test
+    public void bookRoundTrip() throws Exception {
+        assertRoundTrip(fill(Book.class, 0), Book.class);
+    }
+
+    @Test
+    public void borrowRoundTrip() throws Exception {
+        assertRoundTrip(fill(Borrow.class, 0), Borrow.class);
+    }
+
+    @Test
+    public void categoryRoundTrip() throws Exception {
+        assertRoundTrip(fill(Category.class, 0), Category.class);
+    }
+
+    @Test
+    public void statisticsRoundTrip() throws Exception {
+        assertRoundTrip(fill(Statistics.class, 0), Statistics.class);
+    }
+
+    @Test
+    public void categoryStatRoundTrip() throws Exception {
+        assertRoundTrip(fill(Statistics.CategoryStat.class, 0), Statistics.CategoryStat.class);
+    }
+
+    @Test
+    public void bookPageRoundTrip() throws Exception {
+        assertRoundTrip(fill(BookPage.class, 0), BookPage.class);
+    }
+
+    @Test
+    public void borrowPageRoundTrip() throws Exception {
+        BorrowPage page = fill(BorrowPage.class, 0);
+        // 写出时 getBorrows() 会按 book_id 从字典关联图书，字典的键要和借阅记录对得上
+        Borrow borrow = page.getBorrows().get(0);
+        Map<Integer, Book> books = new LinkedHashMap<>();
+        books.put(borrow.getBookId(), fill(Book.class, 1));
+        page.setBooks(books);
+        assertRoundTrip(page, BorrowPage.class);
+    }
+
+    @Test
+    public void syncChangesRoundTrip() throws Exception {
+        assertRoundTrip(fill(SyncChanges.class, 0), SyncChanges.class);
+    }
+
+    @Test
+    public void deletedRoundTrip() throws Exception {
+        assertRoundTrip(fill(SyncChanges.Deleted.class, 0), SyncChanges.Deleted.class);
+    }
+
+    @Test
+    public void apiResponseRoundTrip() throws Exception {
+        ApiResponse<Book> response = fill(ApiResponse.class, 0);
+        setField(ApiResponse.class.getDeclaredField("data"), response, fill(Book.class, 1));
+        assertRoundTrip(response, new TypeToken<ApiResponse<Book>>() {}.getType());
+    }
+
+    @Test
+    public void nullFieldsStayNull() {
+        Book book = gson.fromJson(gson.toJson(new Book(), Book.class), Book.class);
+        assertNull(book.getTitle());
+        assertNull(book.getCurrentBorrow());
+    }
+
+    @Test
+    public void everyModelHasAnAdapter() {
+        for (Class<?> model : MODELS) {
+            assertNotNull(model.getName(), new ModelTypeAdapterFactory().create(gson, TypeToken.get(model)));
+            // 模型字段里引用的其他模型也必须在上面的列表里
+            for (Field field : persistentFields(model)) {
+                for (Class<?> referenced : referencedClasses(field.getGenericType())) {
+                    if (isModel(referenced)) {
+                        assertTrue(field + " 引用的 " + referenced.getName() + " 不在 MODELS 中",
+                                MODELS.contains(referenced));
+                    }
+                }
+            }
+        }
+    }
+
+    private void assertRoundTrip(Object original, Type type) throws Exception {
+        JsonElement json = gson.toJsonTree(original, type);
+        assertKeys(original, json, original.getClass().getSimpleName());
+        Object copy = gson.fromJson(json, type);
+        assertSameFields(original.getClass().getSimpleName(), original, copy);
+    }
+
+    // 写出的键和 @SerializedName 一致，没有注解的字段用字段名；值为null的字段不写出
+    private void assertKeys(Object model, JsonElement json, String path) throws IllegalAccessException {
+        assertTrue(path + " 没有写成对象", json.isJsonObject());
+        JsonObject object = json.getAsJsonObject();
+        for (Field field : persistentFields(model.getClass())) {
+            field.setAccessible(true);
+            Object value = field.get(model);
+            if (value == null) continue;
+            String name = jsonName(field);
+            if (!object.has(name)) fail(path + "." + field.getName() + " 没有写出（键 " + name + "）");
+            if (isModel(value.getClass())) {
+                assertKeys(value, object.get(name), path + "." + field.getName());
+            }
+        }
+    }
+
+    private void assertSameFields(String path, Object expected, Object actual) throws Exception {
+        if (expected == null || actual == null) {
+            assertEquals(path, expected, actual);
+            return;
+        }
+        if (isModel(expected.getClass())) {
+            assertEquals(path, expected.getClass(), actual.getClass());
+            for (Field field : persistentFields(expected.getClass())) {
+                field.setAccessible(true);
+                assertSameFields(path + "." + field.getName(), field.get(expected), field.get(actual));
+            }
+        } else if (expected instanceof List) {
+            List<?> left = (List<?>) expected;
+            List<?> right = (List<?>) actual;
+            assertEquals(path + " 的长度", left.size(), right.size());
+            for (int i = 0; i < left.size(); i++) {
+                assertSameFields(path + "[" + i + "]", left.get(i), right.get(i));
+            }
+        } else if (expected instanceof Map) {
+            Map<?, ?> left = (Map<?, ?>) expected;
+            Map<?, ?> right = (Map<?, ?>) actual;
+            assertEquals(path + " 的键", left.keySet(), right.keySet());
+            for (Map.Entry<?, ?> entry : left.entrySet()) {
+                assertSameFields(path + "[" + entry.getKey() + "]", entry.getValue(), right.get(entry.getKey()));
+            }
+        } else {
+            assertEquals(path, expected, actual);
+        }
+    }
+
+    // 每个字段取不同的非默认值，读漏或写漏的字段读回来都不会相等
+    @SuppressWarnings("unchecked")
+    private <T> T fill(Class<?> model, int depth) throws Exception {
+        java.lang.reflect.Constructor<?> constructor = model.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        Object instance = constructor.newInstance();
+        for (Field field : persistentFields(model)) {
+            if (!(field.getGenericType() instanceof Class) && !(field.getGenericType() instanceof ParameterizedType)) {
+                continue; // ApiResponse.data 这样的类型变量由调用方填
+            }
+            setField(field, instance, value(field.getName(), field.getGenericType(), depth));
+        }
+        return (T) instance;
+    }
+
+    private Object value(String name, Type type, int depth) throws Exception {
+        int n = ++seed;
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            Type[] args = parameterized.getActualTypeArguments();
+            if (parameterized.getRawType() == List.class) {
+                Object element = value(name, args[0], depth);
+                return element != null ? new ArrayList<>(Collections.singletonList(element)) : null;
+            }
+            if (parameterized.getRawType() == Map.class) {
+                Map<Object, Object> map = new LinkedHashMap<>();
+                map.put(value(name, args[0], depth), value(name, args[1], depth));
+                return map;
+            }
+            throw new AssertionError("不支持的字段类型 " + type);
+        }
+        Class<?> cls = (Class<?>) type;
+        if (cls == int.class || cls == Integer.class) return n;
+        if (cls == long.class || cls == Long.class) return n * 1000L;
+        if (cls == double.class || cls == Double.class) return n + 0.5;
+        if (cls == boolean.class || cls == Boolean.class) return true;
+        if (cls == String.class) return name + "-" + n;
+        if (cls == JsonObject.class) {
+            JsonObject row = new JsonObject();
+            row.addProperty("id", n);
+            row.addProperty(name, "value-" + n);
+            return row;
+        }
+        if (isModel(cls)) return depth < MAX_DEPTH ? fill(cls, depth + 1) : null;
+        throw new AssertionError("不支持的字段类型 " + type);
+    }
+
+    private static void setField(Field field, Object target, Object value) throws IllegalAccessException {
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private static List<Field> persistentFields(Class<?> model) {
+        List<Field> fields = new ArrayList<>();
+        for (Field field : model.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) continue;
+            fields.add(field);
+        }
+        return fields;
+    }
+
+    private static String jsonName(Field field) {
+        SerializedName annotation = field.getAnnotation(SerializedName.class);
+        return annotation != null ? annotation.value() : field.getName();
+    }
+
+    private static boolean isModel(Class<?> cls) {
+        return cls.getName().startsWith(ModelTypeAdapterFactory.class.getPackage().getName() + ".");
+    }
+
+    private static List<Class<?>> referencedClasses(Type type) {
+        List<Class<?>> classes = new ArrayList<>();
+        if (type instanceof Class) {
+            classes.add((Class<?>) type);
+        } else if (type instanceof ParameterizedType) {
+            for (Type arg : ((ParameterizedType) type).getActualTypeArguments()) {
+                classes.addAll(referencedClasses(arg));
+            }
+        }
+        return classes;
+    }
+}
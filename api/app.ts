@@ -15,7 +15,12 @@ import isbnRoutes from './routes/isbn.js';
 import settingsRoutes from './routes/settings.js';
 import statisticsRoutes from './routes/statistics.js';
 import exportRoutes from './routes/export.js';
+import syncRoutes from './routes/sync.js';
+import coversRoutes from './routes/covers.js';
 import database from './database/database.js';
+import { compression } from './middleware/compression.js';
+import { cborNegotiation } from './middleware/cbor.js';
+import { durableResponses } from './middleware/durability.js';
 
 // for esm mode
 const __filename = fileURLToPath(import.meta.url);
@@ -30,8 +35,11 @@ const app: express.Application = express();
 database.init();
 
 app.use(cors());
+app.use(compression);
 app.use(express.json({ limit: '10mb' }));
 app.use(express.urlencoded({ extended: true, limit: '10mb' }));
+// 写请求等数据库日志落盘后再响应
+app.use(durableResponses);
 
 // Static files
 app.use(express.static(path.join(__dirname, '../dist')));
@@ -41,13 +49,16 @@ app.use('/uploads', express.static(path.join(__dirname, '../uploads')));
  * API Routes
  */
 app.use('/api/auth', authRoutes);
-app.use('/api/books', booksRoutes);
-app.use('/api/borrows', borrowsRoutes);
-app.use('/api/categories', categoriesRoutes);
+// 图书、借阅、分类和同步接口可以按 Accept 返回 CBOR
+app.use('/api/books', cborNegotiation, booksRoutes);
+app.use('/api/borrows', cborNegotiation, borrowsRoutes);
+app.use('/api/categories', cborNegotiation, categoriesRoutes);
 app.use('/api/isbn', isbnRoutes);
 app.use('/api/settings', settingsRoutes);
 app.use('/api/statistics', statisticsRoutes);
 app.use('/api/export', exportRoutes);
+app.use('/api/sync', cborNegotiation, syncRoutes);
+app.use('/api/covers', coversRoutes);
 
 /**
  * health
@@ -57,6 +68,8 @@ app.use('/api/health', (req: Request, res: Response): void => {
     success: true,
     message: 'ok',
     database: 'Connected',
+    statementCache: database.getStatementCacheStats(),
+    journal: database.getJournalStats(),
     version: '1.0.0',
     timestamp: new Date().toISOString()
   });
@@ -1,4 +1,4 @@
-import initSqlJs, { type Database as SqlJsDatabase, type SqlJsStatic } from 'sql.js';
+import initSqlJs, { type Database as SqlJsDatabase, type SqlJsStatic, type Statement } from 'sql.js';
 import fs from 'fs';
 import path from 'path';
 import { fileURLToPath } from 'url';
@@ -6,13 +6,169 @@ import { fileURLToPath } from 'url';
 const __filename = fileURLToPath(import.meta.url);
 const __dirname = path.dirname(__filename);
 
+// 快照写盘的防抖延迟：连续写入合并为一次全量导出
+const CHECKPOINT_DELAY_MS = 1000;
+// 持续写入时，距第一次未落盘写入最多等待这么久就强制写快照
+const CHECKPOINT_MAX_DELAY_MS = 10000;
+// 日志文件超过该大小时立即写快照并截断日志
+const JOURNAL_MAX_BYTES = 4 * 1024 * 1024;
+// 按SQL文本缓存的已准备语句数量上限（LRU淘汰）
+const STATEMENT_CACHE_SIZE = 100;
+// 建表、改表等会改变结构的语句，执行后清空语句缓存
+const SCHEMA_CHANGE_PATTERN = /^\s*(CREATE|ALTER|DROP)\b/i;
+// 取当前时间的 SQL 函数，重放日志时会得到重放那一刻的时间
+const CURRENT_TIME_PATTERN = /CURRENT_(TIMESTAMP|DATE|TIME)\b|\b(date|time|datetime|julianday|strftime)\s*\([^)]*['"]now['"]/i;
+
+/**
+ * 与 SQLite CURRENT_TIMESTAMP 相同格式的 UTC 时间（YYYY-MM-DD HH:MM:SS）。
+ * 写语句用它绑定时间参数，不要在 SQL 里写 CURRENT_TIMESTAMP 或依赖列默认值，日志重放时才能得到原来的时间。
+ */
+export function sqlTimestamp(date: Date = new Date()): string {
+  return date.toISOString().slice(0, 19).replace('T', ' ');
+}
+
+// 图书全文索引的分词方式：trigram 支持中文子串匹配，unicode61 只能按词前缀匹配，like 表示当前 SQLite 不支持 FTS5
+export type SearchMode = 'trigram' | 'unicode61' | 'like';
+
+// 外部内容表模式的 FTS5 索引，由触发器与 books 表保持同步
+const BOOKS_FTS_TRIGGERS = `
+  CREATE TRIGGER IF NOT EXISTS books_fts_ai AFTER INSERT ON books BEGIN
+    INSERT INTO books_fts(rowid, title, author, isbn) VALUES (new.id, new.title, new.author, new.isbn);
+  END;
+  CREATE TRIGGER IF NOT EXISTS books_fts_ad AFTER DELETE ON books BEGIN
+    INSERT INTO books_fts(books_fts, rowid, title, author, isbn) VALUES ('delete', old.id, old.title, old.author, old.isbn);
+  END;
+  CREATE TRIGGER IF NOT EXISTS books_fts_au AFTER UPDATE OF title, author, isbn ON books BEGIN
+    INSERT INTO books_fts(books_fts, rowid, title, author, isbn) VALUES ('delete', old.id, old.title, old.author, old.isbn);
+    INSERT INTO books_fts(rowid, title, author, isbn) VALUES (new.id, new.title, new.author, new.isbn);
+  END;
+`;
+
+// trigram 分词无法匹配少于3个字符的关键词，另建一张双字索引：books_grams 的每行是该书书名、作者、ISBN
+// 中每个字符和相邻两个字符组成的词，用 unicode61 分词，由触发器调用 search_grams() 生成。
+// search_grams() 只在本进程的连接上注册，触发器建成 TEMP 不随快照保存，
+// 其他工具（sqlite3 命令行、备份或迁移脚本）打开数据文件时写 books 不会因为找不到函数而失败
+const BOOKS_GRAMS_TRIGGERS = `
+  CREATE TEMP TRIGGER IF NOT EXISTS books_grams_ai AFTER INSERT ON main.books BEGIN
+    INSERT INTO books_grams(rowid, grams) VALUES (new.id, search_grams(new.title, new.author, new.isbn));
+  END;
+  CREATE TEMP TRIGGER IF NOT EXISTS books_grams_ad AFTER DELETE ON main.books BEGIN
+    DELETE FROM books_grams WHERE rowid = old.id;
+  END;
+  CREATE TEMP TRIGGER IF NOT EXISTS books_grams_au AFTER UPDATE OF title, author, isbn ON main.books BEGIN
+    DELETE FROM books_grams WHERE rowid = old.id;
+    INSERT INTO books_grams(rowid, grams) VALUES (new.id, search_grams(new.title, new.author, new.isbn));
+  END;
+`;
+
+// 早期版本保存在数据文件里的双字索引触发器
+const LEGACY_GRAMS_TRIGGERS = ['books_grams_ai', 'books_grams_ad', 'books_grams_au'];
+
+// 每个字符和相邻两个字符各算一个词，空格分隔；关键词 1～2 个字符时在其中按整词匹配
+export function searchGrams(...values: unknown[]): string {
+  const grams = new Set<string>();
+  for (const value of values) {
+    if (value === null || value === undefined) continue;
+    for (const word of String(value).toLowerCase().split(/[^\p{L}\p{N}]+/u)) {
+      const chars = Array.from(word);
+      for (let i = 0; i < chars.length; i++) {
+        grams.add(chars[i]);
+        if (i + 1 < chars.length) {
+          grams.add(chars[i] + chars[i + 1]);
+        }
+      }
+    }
+  }
+  return Array.from(grams).join(' ');
+}
+
+// 全文检索条件：两张索引各自的 MATCH 表达式，都不为 null 时取交集
+export interface FullTextQuery {
+  match: string | null;
+  gramMatch: string | null;
+}
+
+// 同步给客户端的表；每行在 change_log 中只保留最新一条记录，删除后留下 delete 墓碑
+export const SYNCED_TABLES = ['categories', 'books', 'borrows'] as const;
+export type SyncedTable = typeof SYNCED_TABLES[number];
+
+function changeLogTriggers(table: SyncedTable) {
+  const record = (op: 'upsert' | 'delete', row: 'new' | 'old') => `
+    DELETE FROM change_log WHERE table_name = '${table}' AND row_id = ${row}.id;
+    INSERT INTO change_log(table_name, row_id, op) VALUES ('${table}', ${row}.id, '${op}');`;
+  return `
+  CREATE TRIGGER IF NOT EXISTS ${table}_changes_ai AFTER INSERT ON ${table} BEGIN${record('upsert', 'new')}
+  END;
+  CREATE TRIGGER IF NOT EXISTS ${table}_changes_au AFTER UPDATE ON ${table} BEGIN${record('upsert', 'new')}
+  END;
+  CREATE TRIGGER IF NOT EXISTS ${table}_changes_ad AFTER DELETE ON ${table} BEGIN${record('delete', 'old')}
+  END;
+`;
+}
+
+interface JournalOp {
+  sql: string;
+  params: any[];
+}
+
+// 等待某个日志序号落盘的写请求
+interface SyncWaiter {
+  seq: number;
+  resolve: () => void;
+  reject: (error: Error) => void;
+}
+
+interface JournalEntry {
+  seq: number;
+  sql?: string;
+  params?: any[];
+  // 事务提交的整批语句，重放时同样放在一个事务里执行
+  batch?: JournalOp[];
+}
+
+/**
+ * 持久化策略：
+ * - 每条写语句（事务为整批）追加到 library.db.journal（JSON 行，带递增序号），写入时不等待落盘
+ * - 组提交：同一轮事件循环里追加的记录在 setImmediate 时用一次异步 fdatasync 落盘；fdatasync 进行中
+ *   追加的记录归入下一组。写请求的响应由 durableResponses 中间件推迟到 whenDurable() 完成后发出
+ * - 全量 db.export() 只在防抖后的检查点执行，快照通过临时文件 + rename 原子替换
+ * - 快照的 PRAGMA user_version 记录已包含的最大日志序号，init() 时只重放更大序号的日志
+ */
 class Database {
   private db: SqlJsDatabase | null = null;
   private SQL: SqlJsStatic | null = null;
   private dbPath: string;
+  private journalPath: string;
+
+  // 最后一条写语句的日志序号
+  private journalSeq = 0;
+  private journalBytes = 0;
+  private journalFd: number | null = null;
+  // 已经 fdatasync（或已包含在快照中）的最大日志序号
+  private durableSeq = 0;
+  private syncWaiters: SyncWaiter[] = [];
+  private syncScheduled = false;
+  private syncInFlight = false;
+  // 最近一次落盘失败且快照也没写成的组，这些写入没有持久化
+  private failedSync: { seq: number; error: Error } | null = null;
+  private journalStats = { appends: 0, syncs: 0 };
+  // 已经提示过使用了当前时间函数的写语句，每条只警告一次
+  private warnedTimeSql = new Set<string>();
+  private checkpointTimer: NodeJS.Timeout | null = null;
+  private firstDirtyAt = 0;
+  // 当前事务内已执行的写语句，提交时作为一条日志记录写入
+  private transactionOps: JournalOp[] | null = null;
+  private searchMode: SearchMode = 'like';
+  // trigram 模式下短关键词用的 books_grams 是否可用
+  private gramIndex = false;
+  // Map 按插入顺序迭代，最久未使用的语句排在最前面
+  private statementCache = new Map<string, Statement>();
+  private statementCacheStats = { hits: 0, misses: 0, evictions: 0 };
 
   constructor() {
-    this.dbPath = path.join(process.cwd(), 'api', 'data', 'library.db');
+    // 同一台机器上运行多个实例（如主服务器和备用服务器）时用 DB_PATH 分开数据文件
+    this.dbPath = process.env.DB_PATH || path.join(process.cwd(), 'api', 'data', 'library.db');
+    this.journalPath = `${this.dbPath}.journal`;
   }
 
   async init() {
@@ -30,14 +186,23 @@ class Database {
       if (fs.existsSync(this.dbPath)) {
         const filebuffer = fs.readFileSync(this.dbPath);
         this.db = new this.SQL.Database(filebuffer);
+        this.registerConnectionState();
         // 对现有数据库执行迁移
         await this.runMigrations();
       } else {
         this.db = new this.SQL.Database();
+        this.registerConnectionState();
         await this.initTables();
-        this.saveDatabase();
       }
 
+      // 全文索引和变更日志要在重放日志之前建好，重放的写入才会经触发器同步过去
+      this.initSearchIndex();
+      this.initChangeLog();
+
+      // 重放上次快照之后的写入，然后写一次快照并截断日志
+      this.replayJournal();
+      this.saveDatabase();
+
       console.log('数据库初始化成功');
     } catch (error) {
       console.error('数据库初始化失败:', error);
@@ -97,34 +262,435 @@ class Database {
         }
       }
       
-      this.saveDatabase();
+      this.clearStatementCache();
       console.log('数据库迁移完成');
     } catch (error) {
       console.error('执行数据库迁移失败:', error);
     }
   }
 
-  saveDatabase() {
+  // 只属于当前连接的自定义函数和 TEMP 触发器；export() 重新打开连接时会丢失，之后要重新注册
+  private registerConnectionState() {
+    this.db.create_function('search_grams', (title: unknown, author: unknown, isbn: unknown) =>
+      searchGrams(title, author, isbn));
+    if (this.gramIndex) {
+      this.db.exec(BOOKS_GRAMS_TRIGGERS);
+    }
+  }
+
+  private initSearchIndex() {
+    const existing = this.db.exec("SELECT sql FROM sqlite_master WHERE type = 'table' AND name = 'books_fts'");
+    if (existing.length > 0) {
+      const createSql = String(existing[0].values[0][0]);
+      this.searchMode = createSql.includes('trigram') ? 'trigram' : 'unicode61';
+    } else {
+      // 优先使用 trigram 分词（SQLite 3.34+），不支持时退回 unicode61
+      for (const tokenizer of ['trigram', 'unicode61'] as const) {
+        try {
+          this.db.run(`
+            CREATE VIRTUAL TABLE books_fts USING fts5(
+              title, author, isbn,
+              content='books', content_rowid='id', tokenize='${tokenizer}'
+            )
+          `);
+          this.db.run("INSERT INTO books_fts(books_fts) VALUES ('rebuild')");
+          this.searchMode = tokenizer;
+          break;
+        } catch (error: unknown) {
+          const errorMessage = error instanceof Error ? error.message : String(error);
+          console.warn(`创建全文索引失败 (${tokenizer}):`, errorMessage);
+        }
+      }
+      if (this.searchMode === 'like') {
+        console.warn('当前 SQLite 不支持 FTS5，图书搜索使用 LIKE 查询');
+        return;
+      }
+    }
+
+    this.db.exec(BOOKS_FTS_TRIGGERS);
+    if (this.searchMode === 'trigram') {
+      this.initGramIndex();
+    }
+    this.clearStatementCache();
+    console.log(`图书全文索引已启用 (${this.searchMode}${this.gramIndex ? '，短关键词使用双字索引' : ''})`);
+  }
+
+  private initGramIndex() {
     try {
+      for (const trigger of LEGACY_GRAMS_TRIGGERS) {
+        this.db.run(`DROP TRIGGER IF EXISTS main.${trigger}`);
+      }
+      const existing = this.db.exec("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'books_grams'");
+      if (existing.length === 0) {
+        this.db.run("CREATE VIRTUAL TABLE books_grams USING fts5(grams, tokenize='unicode61')");
+      } else {
+        // 触发器不在数据文件里，其他工具改过 books 时索引会过期，启动时重建
+        this.db.run('DELETE FROM books_grams');
+      }
+      this.db.run('INSERT INTO books_grams(rowid, grams) SELECT id, search_grams(title, author, isbn) FROM books');
+      this.gramIndex = true;
+      this.db.exec(BOOKS_GRAMS_TRIGGERS);
+    } catch (error: unknown) {
+      const errorMessage = error instanceof Error ? error.message : String(error);
+      console.warn('创建双字索引失败，少于3个字符的关键词使用 LIKE 查询:', errorMessage);
+    }
+  }
+
+  private initChangeLog() {
+    const existing = this.db.exec("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'change_log'");
+    if (existing.length === 0) {
+      this.db.exec(`
+        CREATE TABLE change_log (
+          seq INTEGER PRIMARY KEY AUTOINCREMENT,
+          table_name VARCHAR(50) NOT NULL,
+          row_id INTEGER NOT NULL,
+          op VARCHAR(10) NOT NULL
+        );
+        CREATE INDEX idx_change_log_row ON change_log(table_name, row_id);
+      `);
+      // 已有数据全部记为 upsert，since=0 的客户端由此拿到完整快照
+      for (const table of SYNCED_TABLES) {
+        this.db.run(`INSERT INTO change_log(table_name, row_id, op) SELECT '${table}', id, 'upsert' FROM ${table}`);
+      }
+    }
+
+    // 按表取最大序号用，作为条件请求的版本号
+    this.db.run('CREATE INDEX IF NOT EXISTS idx_change_log_table_seq ON change_log(table_name, seq)');
+    for (const table of SYNCED_TABLES) {
+      this.db.exec(changeLogTriggers(table));
+    }
+    this.clearStatementCache();
+  }
+
+  // 表的版本号：change_log 中该表最大的序号，该表任何一行增删改后都会变大
+  getTableVersion(table: SyncedTable): number {
+    const result = this.query('SELECT COALESCE(MAX(seq), 0) as seq FROM change_log WHERE table_name = ?', [table]);
+    return Number(result.seq);
+  }
+
+  getSearchMode(): SearchMode {
+    return this.searchMode;
+  }
+
+  /**
+   * 把用户输入转换为 FTS5 MATCH 表达式，各关键词之间为 AND 关系。
+   * trigram 模式下3个字符及以上的关键词查 books_fts，更短的查 books_grams。
+   * 返回 null 表示该输入无法走全文索引（不支持 FTS5，或短关键词没有可用的双字索引），调用方应退回 LIKE。
+   */
+  buildFullTextQuery(search: string): FullTextQuery | null {
+    if (this.searchMode === 'like') return null;
+
+    const terms = search.trim().split(/\s+/).filter(term => term);
+    if (terms.length === 0) return null;
+    const quote = (term: string) => `"${term.replace(/"/g, '""')}"`;
+
+    if (this.searchMode === 'trigram') {
+      const longTerms = terms.filter(term => Array.from(term).length >= 3);
+      const shortTerms = terms.filter(term => Array.from(term).length < 3).map(term => term.toLowerCase());
+      // 只有标点的短关键词分词后为空，交给 LIKE 按字面匹配
+      if (shortTerms.length > 0 && (!this.gramIndex || shortTerms.some(term => !/[\p{L}\p{N}]/u.test(term)))) {
+        return null;
+      }
+      return {
+        match: longTerms.length > 0 ? longTerms.map(quote).join(' AND ') : null,
+        gramMatch: shortTerms.length > 0 ? shortTerms.map(quote).join(' AND ') : null
+      };
+    }
+    return { match: terms.map(term => `${quote(term)}*`).join(' AND '), gramMatch: null };
+  }
+
+  private readSnapshotSeq(): number {
+    const result = this.db.exec('PRAGMA user_version');
+    return result.length > 0 ? Number(result[0].values[0][0]) : 0;
+  }
+
+  private replayJournal() {
+    const snapshotSeq = this.readSnapshotSeq();
+    this.journalSeq = snapshotSeq;
+    this.durableSeq = snapshotSeq;
+
+    if (!fs.existsSync(this.journalPath)) {
+      return;
+    }
+
+    const lines = fs.readFileSync(this.journalPath, 'utf8').split('\n');
+    let replayed = 0;
+    for (const line of lines) {
+      if (!line.trim()) continue;
+
+      let entry: JournalEntry;
+      try {
+        entry = JSON.parse(line);
+      } catch {
+        // 最后一行可能在崩溃时只写了一半，之后的内容都不可信
+        console.warn('日志文件存在不完整的记录，已忽略之后的内容');
+        break;
+      }
+
+      if (entry.seq <= snapshotSeq) continue;
+
+      try {
+        if (entry.batch) {
+          this.db.run('BEGIN');
+          try {
+            for (const op of entry.batch) {
+              this.db.run(op.sql, op.params);
+            }
+            this.db.run('COMMIT');
+          } catch (error) {
+            this.db.run('ROLLBACK');
+            throw error;
+          }
+        } else {
+          this.db.run(entry.sql, entry.params);
+        }
+        replayed++;
+      } catch (error: unknown) {
+        const errorMessage = error instanceof Error ? error.message : String(error);
+        console.warn(`重放日志记录 ${entry.seq} 失败:`, errorMessage);
+      }
+      this.journalSeq = entry.seq;
+    }
+
+    // 日志里读出来的记录本来就在磁盘上
+    this.durableSeq = this.journalSeq;
+    if (replayed > 0) {
+      console.log(`已重放 ${replayed} 条日志记录`);
+    }
+  }
+
+  private appendJournal(entry: Omit<JournalEntry, 'seq'>) {
+    this.journalSeq++;
+    const line = JSON.stringify({ seq: this.journalSeq, ...entry }) + '\n';
+    this.journalBytes += Buffer.byteLength(line);
+
+    try {
+      if (this.journalFd === null) {
+        this.journalFd = fs.openSync(this.journalPath, 'a');
+      }
+      fs.writeSync(this.journalFd, line);
+    } catch (error) {
+      console.error('写入数据库日志失败:', error);
+      // 日志写不进去时退回到立即写快照，避免丢数据；快照也失败时这次写入没有持久化，让请求失败
+      if (!this.saveDatabase()) {
+        throw error;
+      }
+      return;
+    }
+
+    this.journalStats.appends++;
+    this.scheduleSync();
+    this.scheduleCheckpoint();
+  }
+
+  // 本轮事件循环结束后落盘；已有 fdatasync 在进行时，等它完成后再把这段时间追加的记录作为下一组
+  private scheduleSync() {
+    if (this.syncScheduled || this.syncInFlight) return;
+    this.syncScheduled = true;
+    setImmediate(() => this.syncJournal());
+  }
+
+  private syncJournal() {
+    this.syncScheduled = false;
+    if (this.durableSeq >= this.journalSeq) return;
+    if (this.journalFd === null) {
+      // 日志被关闭（close() 已写快照），没有待落盘的记录
+      this.markDurable(this.journalSeq);
+      return;
+    }
+
+    const groupSeq = this.journalSeq;
+    this.syncInFlight = true;
+    fs.fdatasync(this.journalFd, (error) => {
+      this.syncInFlight = false;
+      this.journalStats.syncs++;
+      if (error) {
+        console.error('日志落盘失败:', error);
+        // 退回到写快照，快照包含内存中的全部写入；快照也失败时这一组的写请求返回错误
+        if (!this.saveDatabase()) {
+          this.failedSync = { seq: groupSeq, error };
+          this.failWaiters(groupSeq, error);
+        }
+      } else {
+        this.markDurable(groupSeq);
+      }
+      // 只为这一组之后追加的记录再落盘一次，失败的组不反复重试
+      if (this.journalSeq > groupSeq) {
+        this.scheduleSync();
+      }
+    });
+  }
+
+  private markDurable(seq: number) {
+    if (seq > this.durableSeq) {
+      this.durableSeq = seq;
+    }
+    const waiting = this.syncWaiters;
+    this.syncWaiters = [];
+    for (const waiter of waiting) {
+      if (waiter.seq <= this.durableSeq) {
+        waiter.resolve();
+      } else {
+        this.syncWaiters.push(waiter);
+      }
+    }
+  }
+
+  private failWaiters(seq: number, error: Error) {
+    const waiting = this.syncWaiters;
+    this.syncWaiters = [];
+    for (const waiter of waiting) {
+      if (waiter.seq <= seq) {
+        waiter.reject(error);
+      } else {
+        this.syncWaiters.push(waiter);
+      }
+    }
+  }
+
+  /**
+   * 到目前为止的写入（默认到最后一条日志记录）落盘后完成。写请求发送响应前等待它，响应不会早于持久化。
+   */
+  whenDurable(seq: number = this.journalSeq): Promise<void> {
+    if (seq <= this.durableSeq) {
+      return Promise.resolve();
+    }
+    if (this.failedSync && seq <= this.failedSync.seq) {
+      return Promise.reject(this.failedSync.error);
+    }
+    return new Promise((resolve, reject) => {
+      this.syncWaiters.push({ seq, resolve, reject });
+    });
+  }
+
+  getJournalStats() {
+    return {
+      ...this.journalStats,
+      pending: this.journalSeq - this.durableSeq
+    };
+  }
+
+  private warnIfTimeDependent(sql: string) {
+    if (SCHEMA_CHANGE_PATTERN.test(sql) || this.warnedTimeSql.has(sql) || !CURRENT_TIME_PATTERN.test(sql)) return;
+    this.warnedTimeSql.add(sql);
+    console.warn('写语句使用了当前时间函数，重放日志时会得到不同的值，请改用 sqlTimestamp() 绑定参数:', sql.trim());
+  }
+
+  private scheduleCheckpoint() {
+    const now = Date.now();
+    if (this.firstDirtyAt === 0) {
+      this.firstDirtyAt = now;
+    }
+
+    if (this.checkpointTimer) {
+      clearTimeout(this.checkpointTimer);
+    }
+
+    const overdue = now - this.firstDirtyAt >= CHECKPOINT_MAX_DELAY_MS;
+    const delay = overdue || this.journalBytes >= JOURNAL_MAX_BYTES ? 0 : CHECKPOINT_DELAY_MS;
+    this.checkpointTimer = setTimeout(() => this.saveDatabase(), delay);
+    // 不因为待写的快照阻止进程退出，退出前由 close() 负责落盘
+    this.checkpointTimer.unref();
+  }
+
+  /**
+   * 写一次全量快照并截断日志，返回是否成功。正常情况下由防抖定时器调用，close() 时也会同步调用。
+   */
+  saveDatabase(): boolean {
+    if (!this.db) return false;
+
+    if (this.checkpointTimer) {
+      clearTimeout(this.checkpointTimer);
+      this.checkpointTimer = null;
+    }
+
+    try {
+      this.db.run(`PRAGMA user_version = ${this.journalSeq}`);
+      // export() 会关闭并重新打开连接，释放所有已准备的语句
+      this.clearStatementCache();
       const data = this.db.export();
-      fs.writeFileSync(this.dbPath, data);
+      this.registerConnectionState();
+      const tmpPath = `${this.dbPath}.tmp`;
+      // 快照落盘后才能截断日志，否则崩溃时两边都可能丢数据
+      const fd = fs.openSync(tmpPath, 'w');
+      try {
+        fs.writeSync(fd, data);
+        fs.fsyncSync(fd);
+      } finally {
+        fs.closeSync(fd);
+      }
+      fs.renameSync(tmpPath, this.dbPath);
+
+      // 快照已包含所有日志记录，截断日志文件（追加模式打开的句柄之后从文件开头继续写）
+      if (this.journalFd !== null) {
+        fs.ftruncateSync(this.journalFd, 0);
+      } else {
+        fs.writeFileSync(this.journalPath, '');
+      }
+      this.journalBytes = 0;
+      this.firstDirtyAt = 0;
+      // 快照已经 fsync，等待中的写请求不必再等日志落盘
+      this.markDurable(this.journalSeq);
+      return true;
     } catch (error) {
       console.error('保存数据库失败:', error);
+      return false;
+    }
+  }
+
+  // 每次写入递增，可用于判断缓存的查询结果是否过期
+  getWriteSequence() {
+    return this.journalSeq;
+  }
+
+  private getStatement(sql: string): Statement {
+    const cached = this.statementCache.get(sql);
+    if (cached) {
+      // 重新插入，移到最近使用的位置
+      this.statementCache.delete(sql);
+      this.statementCache.set(sql, cached);
+      this.statementCacheStats.hits++;
+      return cached;
+    }
+
+    this.statementCacheStats.misses++;
+    const stmt = this.db.prepare(sql);
+    this.statementCache.set(sql, stmt);
+
+    if (this.statementCache.size > STATEMENT_CACHE_SIZE) {
+      const [oldestSql, oldestStmt] = this.statementCache.entries().next().value;
+      this.statementCache.delete(oldestSql);
+      oldestStmt.free();
+      this.statementCacheStats.evictions++;
     }
+    return stmt;
+  }
+
+  clearStatementCache() {
+    for (const stmt of this.statementCache.values()) {
+      stmt.free();
+    }
+    this.statementCache.clear();
+  }
+
+  getStatementCacheStats() {
+    return {
+      size: this.statementCache.size,
+      capacity: STATEMENT_CACHE_SIZE,
+      ...this.statementCacheStats
+    };
   }
 
   query(sql: string, params: any[] = []) {
     try {
       if (!this.db) throw new Error('Database not initialized');
-      const stmt = this.db.prepare(sql);
-      stmt.bind(params);
-      if (stmt.step()) {
-        const result = stmt.getAsObject();
-        stmt.free();
-        return result;
+      const stmt = this.getStatement(sql);
+      try {
+        stmt.bind(params);
+        return stmt.step() ? stmt.getAsObject() : null;
+      } finally {
+        stmt.reset();
       }
-      stmt.free();
-      return null;
     } catch (error) {
       console.error('查询失败:', error);
       throw error;
@@ -134,14 +700,17 @@ class Database {
   queryAll(sql: string, params: any[] = []) {
     try {
       if (!this.db) throw new Error('Database not initialized');
-      const stmt = this.db.prepare(sql);
-      stmt.bind(params);
-      const results = [];
-      while (stmt.step()) {
-        results.push(stmt.getAsObject());
+      const stmt = this.getStatement(sql);
+      try {
+        stmt.bind(params);
+        const results = [];
+        while (stmt.step()) {
+          results.push(stmt.getAsObject());
+        }
+        return results;
+      } finally {
+        stmt.reset();
       }
-      stmt.free();
-      return results;
     } catch (error) {
       console.error('查询失败:', error);
       throw error;
@@ -154,23 +723,89 @@ class Database {
       // 过滤掉undefined值，替换为null
       const filteredParams = params.map(param => param === undefined ? null : param);
       
-      const stmt = this.db.prepare(sql);
-      stmt.bind(filteredParams);
-      stmt.step();
-      const changes = this.db.getRowsModified();
-      stmt.free();
-      this.saveDatabase();
-      return { changes };
+      let changes: number;
+      if (SCHEMA_CHANGE_PATTERN.test(sql)) {
+        // 结构变更不进缓存，执行后已缓存的语句全部作废
+        this.db.run(sql, filteredParams);
+        changes = this.db.getRowsModified();
+        this.clearStatementCache();
+      } else {
+        const stmt = this.getStatement(sql);
+        try {
+          stmt.bind(filteredParams);
+          stmt.step();
+          changes = this.db.getRowsModified();
+        } finally {
+          stmt.reset();
+        }
+      }
+      const lastInsertRowid = Number(this.query('SELECT last_insert_rowid() as id').id);
+
+      this.warnIfTimeDependent(sql);
+      if (this.transactionOps) {
+        this.transactionOps.push({ sql, params: filteredParams });
+      } else {
+        this.appendJournal({ sql, params: filteredParams });
+      }
+      return { changes, lastInsertRowid };
     } catch (error) {
       console.error('执行SQL失败:', error);
       throw error;
     }
   }
 
+  /**
+   * 在一个 BEGIN/COMMIT 中执行 fn，其中的 run() 调用在提交时作为一条日志记录持久化。
+   * fn 抛出异常时回滚并重新抛出。fn 必须是同步函数；嵌套调用会并入外层事务。
+   */
+  transaction<T>(fn: () => T): T {
+    if (!this.db) throw new Error('Database not initialized');
+    if (this.transactionOps) {
+      return fn();
+    }
+
+    this.db.run('BEGIN');
+    this.transactionOps = [];
+    try {
+      const result = fn();
+      this.db.run('COMMIT');
+      const ops = this.transactionOps;
+      this.transactionOps = null;
+      if (ops.length > 0) {
+        this.appendJournal({ batch: ops });
+      }
+      return result;
+    } catch (error) {
+      this.transactionOps = null;
+      try {
+        this.db.run('ROLLBACK');
+      } catch (rollbackError) {
+        console.error('回滚事务失败:', rollbackError);
+      }
+      throw error;
+    }
+  }
+
+  // 当前是否在 transaction() 的回调中
+  inTransaction(): boolean {
+    return this.transactionOps !== null;
+  }
+
+  // 在同一个事务中依次执行多条写语句
+  runBatch(statements: { sql: string; params?: any[] }[]) {
+    return this.transaction(() => statements.map(statement => this.run(statement.sql, statement.params)));
+  }
+
   close() {
     if (this.db) {
       this.saveDatabase();
+      this.clearStatementCache();
       this.db.close();
+      this.db = null;
+    }
+    if (this.journalFd !== null) {
+      fs.closeSync(this.journalFd);
+      this.journalFd = null;
     }
   }
 }
@@ -57,18 +57,29 @@ CREATE TABLE IF NOT EXISTS settings (
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP
 );
 
+-- 创建幂等键表：记录带 Idempotency-Key 的写请求的响应，重试时直接返回
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    key VARCHAR(255) PRIMARY KEY,
+    scope VARCHAR(255) NOT NULL,
+    status INTEGER NOT NULL,
+    body TEXT NOT NULL,
+    created_at INTEGER NOT NULL
+);
+
 -- 创建索引
 CREATE INDEX IF NOT EXISTS idx_books_isbn ON books(isbn);
 CREATE INDEX IF NOT EXISTS idx_books_title ON books(title);
 CREATE INDEX IF NOT EXISTS idx_books_author ON books(author);
 CREATE INDEX IF NOT EXISTS idx_books_category ON books(category_id);
 CREATE INDEX IF NOT EXISTS idx_books_status ON books(status);
+CREATE INDEX IF NOT EXISTS idx_books_created_id ON books(created_at, id);
 CREATE INDEX IF NOT EXISTS idx_categories_code ON categories(code);
 CREATE INDEX IF NOT EXISTS idx_categories_parent ON categories(parent_id);
 CREATE INDEX IF NOT EXISTS idx_borrows_book_id ON borrows(book_id);
 CREATE INDEX IF NOT EXISTS idx_borrows_borrower ON borrows(borrower);
 CREATE INDEX IF NOT EXISTS idx_borrows_status ON borrows(status);
 CREATE INDEX IF NOT EXISTS idx_borrows_due_date ON borrows(due_date);
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_created ON idempotency_keys(created_at);
 
 -- 初始化分类数据
 INSERT OR IGNORE INTO categories (name, code, parent_id, level) VALUES
@@ -0,0 +1,2 @@
+-- 图书列表按 (created_at, id) 游标分页
+CREATE INDEX IF NOT EXISTS idx_books_created_id ON books(created_at, id);
\ No newline at end of file
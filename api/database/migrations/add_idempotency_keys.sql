@@ -0,0 +1,9 @@
+-- 创建幂等键表：记录带 Idempotency-Key 的写请求的响应，重试时直接返回
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    key VARCHAR(255) PRIMARY KEY,
+    scope VARCHAR(255) NOT NULL,
+    status INTEGER NOT NULL,
+    body TEXT NOT NULL,
+    created_at INTEGER NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_created ON idempotency_keys(created_at);
\ No newline at end of file
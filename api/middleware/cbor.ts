@@ -0,0 +1,30 @@
+import type { Request, Response, NextFunction } from 'express';
+import { encodeCbor } from '../utils/cbor.js';
+
+export const CBOR_TYPE = 'application/cbor';
+
+/**
+ * 客户端在 Accept 中优先选择 application/cbor 时，res.json 的响应改用 CBOR 编码，否则照常返回 JSON。
+ * 数字ID等字段按二进制整数编码，全量同步时比 JSON 文本更小，客户端解析时也不用逐字符转换数字。
+ */
+export function cborNegotiation(req: Request, res: Response, next: NextFunction) {
+  // 同一个地址按 Accept 返回不同格式，缓存需要区分
+  res.vary('Accept');
+  if (req.accepts(['application/json', CBOR_TYPE]) !== CBOR_TYPE) {
+    return next();
+  }
+
+  const json = res.json.bind(res);
+  res.json = (body: unknown) => {
+    let encoded: Buffer;
+    try {
+      encoded = encodeCbor(body);
+    } catch (error) {
+      console.error('CBOR编码失败:', error);
+      return json(body);
+    }
+    res.type(CBOR_TYPE);
+    return res.send(encoded);
+  };
+  next();
+}
@@ -0,0 +1,49 @@
+import type { Request, Response, NextFunction } from 'express';
+import zlib from 'zlib';
+
+// 小于此大小的响应压缩后节省有限，反而多花CPU，直接发送
+const MIN_SIZE = 1024;
+const COMPRESSIBLE_TYPE = /json|text|javascript|xml|cbor/i;
+
+/**
+ * 对 res.send 发出的 JSON、CBOR 和文本响应做 gzip 压缩（res.json 最终也走 res.send）。
+ * 只在客户端声明支持 gzip、响应超过 MIN_SIZE 时压缩；压缩在线程池中进行，不阻塞事件循环。
+ */
+export function compression(req: Request, res: Response, next: NextFunction) {
+  const send = res.send.bind(res);
+
+  res.send = (body?: unknown) => {
+    const type = String(res.get('Content-Type') ?? '');
+    if (!COMPRESSIBLE_TYPE.test(type) || (typeof body !== 'string' && !Buffer.isBuffer(body))) {
+      return send(body);
+    }
+
+    // 同一个地址的响应随 Accept-Encoding 不同，缓存需要区分
+    res.vary('Accept-Encoding');
+
+    const buffer = Buffer.isBuffer(body) ? body : Buffer.from(body as string, 'utf8');
+    if (
+      buffer.length < MIN_SIZE ||
+      req.method === 'HEAD' ||
+      res.statusCode === 204 ||
+      res.statusCode === 304 ||
+      res.get('Content-Encoding') ||
+      !req.acceptsEncodings('gzip')
+    ) {
+      return send(body);
+    }
+
+    zlib.gzip(buffer, (error, compressed) => {
+      if (error) {
+        console.error('压缩响应失败:', error);
+        send(body);
+        return;
+      }
+      res.set('Content-Encoding', 'gzip');
+      send(compressed);
+    });
+    return res;
+  };
+
+  next();
+}
@@ -0,0 +1,31 @@
+import type { Request, Response, NextFunction } from 'express';
+import database from '../database/database.js';
+
+const READ_METHODS = new Set(['GET', 'HEAD', 'OPTIONS']);
+
+/**
+ * 写请求的响应推迟到数据库日志组提交落盘后才发出：客户端收到成功响应时写入一定已经持久化。
+ * 同一轮事件循环里的多个写请求共用一次 fdatasync。落盘失败时改为返回 500。
+ */
+export function durableResponses(req: Request, res: Response, next: NextFunction) {
+  if (READ_METHODS.has(req.method)) {
+    return next();
+  }
+
+  const end = res.end.bind(res) as (...args: unknown[]) => Response;
+  res.end = ((...args: unknown[]) => {
+    database.whenDurable().then(
+      () => end(...args),
+      (error) => {
+        console.error('写入落盘失败:', error);
+        res.removeHeader('Content-Encoding');
+        res.removeHeader('Content-Length');
+        res.removeHeader('ETag');
+        res.status(500).type('application/json');
+        end(JSON.stringify({ success: false, message: '保存数据失败' }));
+      }
+    );
+    return res;
+  }) as Response['end'];
+  next();
+}
@@ -0,0 +1,42 @@
+import type { Request, Response, NextFunction } from 'express';
+import database, { type SyncedTable } from '../database/database.js';
+import { CBOR_TYPE } from './cbor.js';
+
+// 同一份数据的不同表示（JSON/CBOR、是否 gzip）字节不同，ETag 要能区分
+function representation(req: Request) {
+  const format = req.accepts(['application/json', CBOR_TYPE]) === CBOR_TYPE ? 'cbor' : 'json';
+  return req.acceptsEncodings('gzip') ? `${format}.gz` : format;
+}
+
+/**
+ * 按所依赖表的版本号生成 ETag，客户端带 If-None-Match 且数据没有变化时直接返回 304，不执行查询。
+ * tables 要列出响应中用到的所有表（包括 JOIN 的表），只适用于结果不随时间变化的查询。
+ * ETag 带上协商出的格式和压缩方式，并声明 Vary，缓存不会把 CBOR 响应当成 JSON 返回。
+ */
+export function tableETag(...tables: SyncedTable[]) {
+  return (req: Request, res: Response, next: NextFunction) => {
+    if (req.method !== 'GET' && req.method !== 'HEAD') {
+      return next();
+    }
+
+    try {
+      const versions = tables.map(table => database.getTableVersion(table)).join('.');
+      res.set('ETag', `W/"${tables.join('+')}-${versions}-${representation(req)}"`);
+      // 304 不经过 CBOR 和压缩中间件的 send，这里也要声明
+      res.vary('Accept');
+      res.vary('Accept-Encoding');
+      // 允许缓存，但每次使用前都要向服务器验证
+      res.set('Cache-Control', 'no-cache');
+    } catch (error) {
+      // 取不到版本号时按普通请求处理
+      console.error('生成ETag失败:', error);
+      return next();
+    }
+
+    // req.fresh 比较 If-None-Match 与上面设置的 ETag
+    if (req.fresh) {
+      return res.status(304).end();
+    }
+    next();
+  };
+}
@@ -0,0 +1,84 @@
+import type { Request, Response, NextFunction } from 'express';
+import database from '../database/database.js';
+
+// 幂等键保留时长，客户端的重试应在此之内完成
+const KEY_TTL_MS = 24 * 60 * 60 * 1000;
+// 表中最多保留的键数量，超出后淘汰最早的记录
+const MAX_KEYS = 10000;
+// 每写入这么多条记录清理一次过期和超量的键
+const PRUNE_INTERVAL = 100;
+const MAX_KEY_LENGTH = 255;
+
+interface PendingKey {
+  key: string;
+  scope: string;
+}
+
+let insertsSincePrune = 0;
+
+function pruneKeys() {
+  database.run('DELETE FROM idempotency_keys WHERE created_at < ?', [Date.now() - KEY_TTL_MS]);
+  database.run(
+    'DELETE FROM idempotency_keys WHERE key IN (SELECT key FROM idempotency_keys ORDER BY created_at DESC LIMIT -1 OFFSET ?)',
+    [MAX_KEYS]
+  );
+}
+
+/**
+ * 在路由的写事务里记录本次请求的响应，必须在 database.transaction() 内、写语句之后调用：
+ * 键和写入一起提交、一起落盘，不会出现写入已生效而键没有保存、重试再执行一次的情况。
+ * 请求没有带 Idempotency-Key 时什么也不做。键已被其他请求保存时插入失败，整个事务回滚。
+ */
+export function saveIdempotentResponse(res: Response, status: number, body: unknown) {
+  const pending = res.locals.idempotencyKey as PendingKey | undefined;
+  if (!pending) return;
+  if (!database.inTransaction()) {
+    throw new Error('saveIdempotentResponse 必须在写事务内调用');
+  }
+
+  database.run(
+    'INSERT INTO idempotency_keys (key, scope, status, body, created_at) VALUES (?, ?, ?, ?, ?)',
+    [pending.key, pending.scope, status, JSON.stringify(body), Date.now()]
+  );
+  if (++insertsSincePrune >= PRUNE_INTERVAL) {
+    insertsSincePrune = 0;
+    pruneKeys();
+  }
+}
+
+/**
+ * 带 Idempotency-Key 请求头的写请求只执行一次：
+ * 路由在写事务中用 saveIdempotentResponse 保存成功的响应，同一个键的重试直接返回保存的响应。
+ * 没有产生写入的响应（校验失败等）不保存，重试时重新判断。不带该请求头的请求不受影响。
+ */
+export function idempotency(req: Request, res: Response, next: NextFunction) {
+  const key = req.get('Idempotency-Key');
+  if (!key) {
+    return next();
+  }
+  if (key.length > MAX_KEY_LENGTH) {
+    return res.status(400).json({ success: false, message: '无效的幂等键' });
+  }
+
+  const scope = `${req.method} ${req.baseUrl}${req.path}`;
+  try {
+    const stored = database.query(
+      'SELECT scope, status, body FROM idempotency_keys WHERE key = ? AND created_at >= ?',
+      [key, Date.now() - KEY_TTL_MS]
+    );
+    if (stored) {
+      if (stored.scope !== scope) {
+        return res.status(422).json({ success: false, message: '幂等键已用于其他请求' });
+      }
+      res.set('Idempotent-Replayed', 'true');
+      return res.status(Number(stored.status)).type('application/json').send(String(stored.body));
+    }
+  } catch (error) {
+    console.error('查询幂等键失败:', error);
+    return res.status(500).json({ success: false, message: '查询幂等键失败' });
+  }
+
+  const pending: PendingKey = { key, scope };
+  res.locals.idempotencyKey = pending;
+  next();
+}
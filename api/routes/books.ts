@@ -1,72 +1,184 @@
 import express from 'express';
-import database from '../database/database.js';
+import database, { sqlTimestamp, type FullTextQuery } from '../database/database.js';
+import { idempotency, saveIdempotentResponse } from '../middleware/idempotency.js';
+import { tableETag } from '../middleware/etag.js';
+import { projectFields, invalidFieldsMessage, BOOK_FIELDS } from '../utils/fields.js';
 
 const router = express.Router();
 
+// 分页游标中 created_at 和 id 的组合，游标对客户端不透明
+type BookCursor = [string, number];
+
+// 带总数缓存：同一筛选条件在没有新写入之前不重复 COUNT
+const TOTAL_CACHE_SIZE = 50;
+const totalCache = new Map<string, { writeSeq: number; total: number }>();
+
+// 游标分页每页最多条数；客户端流式解析大页，副本未就绪时一页取500条
+const MAX_CURSOR_PAGE_SIZE = 500;
+
+// 没有传 fields 时返回的列
+const DEFAULT_BOOK_COLUMNS = 'b.*, c.name as category_name';
+
+// 双字索引的筛选条件，短关键词（少于3个字符）用
+function gramCondition(query: FullTextQuery) {
+  return query.gramMatch
+    ? { where: ` AND b.id IN (SELECT rowid FROM books_grams WHERE books_grams MATCH ?)`, params: [query.gramMatch] }
+    : { where: '', params: [] };
+}
+
+function buildBookFilters(search: unknown, category: unknown, status: unknown) {
+  let where = '';
+  const params: unknown[] = [];
+  
+  if (search) {
+    const fullText = database.buildFullTextQuery(String(search));
+    if (fullText) {
+      if (fullText.match) {
+        where += ` AND b.id IN (SELECT rowid FROM books_fts WHERE books_fts MATCH ?)`;
+        params.push(fullText.match);
+      }
+      const grams = gramCondition(fullText);
+      where += grams.where;
+      params.push(...grams.params);
+    } else {
+      where += ` AND (b.title LIKE ? OR b.author LIKE ? OR b.isbn LIKE ?)`;
+      const searchParam = `%${search}%`;
+      params.push(searchParam, searchParam, searchParam);
+    }
+  }
+  
+  if (category) {
+    where += ` AND b.category_id = ?`;
+    params.push(category);
+  }
+  
+  if (status) {
+    where += ` AND b.status = ?`;
+    params.push(status);
+  }
+  
+  return { where, params };
+}
+
+function countBooks(where: string, params: unknown[]) {
+  const countResult = database.query(`SELECT COUNT(*) as total FROM books b WHERE 1=1${where}`, params);
+  return Number(countResult.total);
+}
+
+function getCachedTotal(where: string, params: unknown[]) {
+  const key = where + JSON.stringify(params);
+  const writeSeq = database.getWriteSequence();
+  const cached = totalCache.get(key);
+  if (cached && cached.writeSeq === writeSeq) {
+    return cached.total;
+  }
+  
+  const total = countBooks(where, params);
+  if (totalCache.size >= TOTAL_CACHE_SIZE) {
+    totalCache.clear();
+  }
+  totalCache.set(key, { writeSeq, total });
+  return total;
+}
+
+function encodeCursor(cursor: BookCursor) {
+  return Buffer.from(JSON.stringify(cursor)).toString('base64url');
+}
+
+function decodeCursor(value: string): BookCursor | null {
+  try {
+    const cursor = JSON.parse(Buffer.from(value, 'base64url').toString('utf8'));
+    if (Array.isArray(cursor) && cursor.length === 2 && typeof cursor[0] === 'string' && Number.isInteger(cursor[1])) {
+      return cursor as BookCursor;
+    }
+  } catch {
+    // 解析失败按无效游标处理
+  }
+  return null;
+}
+
 // 获取图书列表
-router.get('/', async (req, res) => {
+router.get('/', tableETag('books', 'categories'), async (req, res) => {
   try {
-    const { page = 1, limit = 20, search = '', category = '', status = '' } = req.query;
+    const { page = 1, limit = 20, search = '', category = '', status = '', fields } = req.query;
     const offset = (Number(page) - 1) * Number(limit);
+    const filters = buildBookFilters(search, category, status);
+    const projection = projectFields(fields, BOOK_FIELDS);
+    if (projection.invalid.length > 0) {
+      return res.status(400).json({ success: false, message: invalidFieldsMessage(projection.invalid) });
+    }
     
-    let sql = `
-      SELECT b.*, c.name as category_name 
+    const sql = `
+      SELECT ${projection.select ?? DEFAULT_BOOK_COLUMNS} 
       FROM books b 
       LEFT JOIN categories c ON b.category_id = c.id 
-      WHERE 1=1
+      WHERE 1=1${filters.where}
+      ORDER BY b.created_at DESC LIMIT ? OFFSET ?
     `;
-    const params: unknown[] = [];
-    
-    if (search) {
-      sql += ` AND (b.title LIKE ? OR b.author LIKE ? OR b.isbn LIKE ?)`;
-      const searchParam = `%${search}%`;
-      params.push(searchParam, searchParam, searchParam);
-    }
     
-    if (category) {
-      sql += ` AND b.category_id = ?`;
-      params.push(category);
-    }
-    
-    if (status) {
-      sql += ` AND b.status = ?`;
-      params.push(status);
-    }
+    const books = database.queryAll(sql, [...filters.params, Number(limit), offset]);
     
-    sql += ` ORDER BY b.created_at DESC LIMIT ? OFFSET ?`;
-    params.push(Number(limit), offset);
-    
-    const books = database.queryAll(sql, params);
-    
-    // 获取总数
-    let countSql = `SELECT COUNT(*) as total FROM books b WHERE 1=1`;
-    const countParams: unknown[] = [];
-    
-    if (search) {
-      countSql += ` AND (b.title LIKE ? OR b.author LIKE ? OR b.isbn LIKE ?)`;
-      const searchParam = `%${search}%`;
-      countParams.push(searchParam, searchParam, searchParam);
+    res.json({
+      success: true,
+      data: {
+        books,
+        total: countBooks(filters.where, filters.params),
+        page: Number(page),
+        limit: Number(limit)
+      }
+    });
+  } catch (error) {
+    console.error('获取图书列表失败:', error);
+    res.status(500).json({ success: false, message: '获取图书列表失败' });
+  }
+});
+
+// 按游标分页获取图书列表（created_at, id 倒序），翻页深度不影响查询速度
+router.get('/cursor', tableETag('books', 'categories'), async (req, res) => {
+  try {
+    const { cursor = '', limit = 20, search = '', category = '', status = '', include_total = '', fields } = req.query;
+    const pageSize = Math.min(Math.max(Number(limit) || 20, 1), MAX_CURSOR_PAGE_SIZE);
+    const filters = buildBookFilters(search, category, status);
+    // 生成下一页游标要用到 created_at 和 id
+    const projection = projectFields(fields, BOOK_FIELDS, ['id', 'created_at']);
+    if (projection.invalid.length > 0) {
+      return res.status(400).json({ success: false, message: invalidFieldsMessage(projection.invalid) });
     }
     
-    if (category) {
-      countSql += ` AND b.category_id = ?`;
-      countParams.push(category);
+    let keysetWhere = '';
+    const keysetParams: unknown[] = [];
+    if (cursor) {
+      const decoded = decodeCursor(String(cursor));
+      if (!decoded) {
+        return res.status(400).json({ success: false, message: '无效的分页游标' });
+      }
+      const [createdAt, id] = decoded;
+      keysetWhere = ` AND (b.created_at < ? OR (b.created_at = ? AND b.id < ?))`;
+      keysetParams.push(createdAt, createdAt, id);
     }
     
-    if (status) {
-      countSql += ` AND b.status = ?`;
-      countParams.push(status);
-    }
+    // 多取一条用于判断是否还有下一页
+    const sql = `
+      SELECT ${projection.select ?? DEFAULT_BOOK_COLUMNS} 
+      FROM books b 
+      LEFT JOIN categories c ON b.category_id = c.id 
+      WHERE 1=1${filters.where}${keysetWhere}
+      ORDER BY b.created_at DESC, b.id DESC LIMIT ?
+    `;
     
-    const countResult = database.query(countSql, countParams);
+    const rows = database.queryAll(sql, [...filters.params, ...keysetParams, pageSize + 1]);
+    const hasMore = rows.length > pageSize;
+    const books = hasMore ? rows.slice(0, pageSize) : rows;
+    const last = books[books.length - 1];
     
     res.json({
       success: true,
       data: {
         books,
-        total: countResult.total,
-        page: Number(page),
-        limit: Number(limit)
+        nextCursor: hasMore ? encodeCursor([String(last.created_at), Number(last.id)]) : null,
+        hasMore,
+        total: include_total === 'true' ? getCachedTotal(filters.where, filters.params) : undefined,
+        limit: pageSize
       }
     });
   } catch (error) {
@@ -76,10 +188,15 @@ router.get('/', async (req, res) => {
 });
 
 // 搜索图书
-router.get('/search', async (req, res) => {
+router.get('/search', tableETag('books', 'categories'), async (req, res) => {
   try {
-    const { q = '', page = 1, limit = 20 } = req.query;
+    const { q = '', page = 1, limit = 20, fields } = req.query;
     const offset = (Number(page) - 1) * Number(limit);
+    const projection = projectFields(fields, BOOK_FIELDS);
+    if (projection.invalid.length > 0) {
+      return res.status(400).json({ success: false, message: invalidFieldsMessage(projection.invalid) });
+    }
+    const columns = projection.select ?? DEFAULT_BOOK_COLUMNS;
     
     if (!q) {
       return res.json({
@@ -93,9 +210,44 @@ router.get('/search', async (req, res) => {
       });
     }
     
+    const fullText = database.buildFullTextQuery(String(q));
+    if (fullText) {
+      // 有长关键词时按 books_fts 的 bm25 相关度排序，书名权重最高，其次作者、ISBN；
+      // 只有短关键词时按双字索引的 bm25 排序
+      const grams = gramCondition(fullText);
+      const index = fullText.match ? 'books_fts' : 'books_grams';
+      const rank = fullText.match ? 'bm25(books_fts, 10.0, 5.0, 1.0)' : 'bm25(books_grams)';
+      const where = fullText.match ? `books_fts MATCH ?${grams.where}` : 'books_grams MATCH ?';
+      const whereParams = fullText.match ? [fullText.match, ...grams.params] : grams.params;
+      const sql = `
+        SELECT ${columns} 
+        FROM ${index} 
+        JOIN books b ON b.id = ${index}.rowid 
+        LEFT JOIN categories c ON b.category_id = c.id 
+        WHERE ${where}
+        ORDER BY ${rank}, b.created_at DESC LIMIT ? OFFSET ?
+      `;
+      const books = database.queryAll(sql, [...whereParams, Number(limit), offset]);
+      const countResult = database.query(
+        `SELECT COUNT(*) as total FROM ${index} JOIN books b ON b.id = ${index}.rowid WHERE ${where}`,
+        whereParams
+      );
+      
+      return res.json({
+        success: true,
+        data: {
+          books,
+          total: countResult.total,
+          page: Number(page),
+          limit: Number(limit)
+        }
+      });
+    }
+    
+    // 无法使用全文索引时退回 LIKE 查询
     const searchParam = `%${q}%`;
     const sql = `
-      SELECT b.*, c.name as category_name 
+      SELECT ${columns} 
       FROM books b 
       LEFT JOIN categories c ON b.category_id = c.id 
       WHERE b.title LIKE ? OR b.author LIKE ? OR b.isbn LIKE ?
@@ -127,7 +279,7 @@ router.get('/search', async (req, res) => {
 });
 
 // 根据ID获取图书详情
-router.get('/:id', async (req, res) => {
+router.get('/:id', tableETag('books', 'categories'), async (req, res) => {
   try {
     const { id } = req.params;
     const sql = `
@@ -151,7 +303,7 @@ router.get('/:id', async (req, res) => {
 });
 
 // 添加图书
-router.post('/', async (req, res) => {
+router.post('/', idempotency, async (req, res) => {
   try {
     const {
       isbn,
@@ -184,32 +336,42 @@ router.post('/', async (req, res) => {
     const sql = `
       INSERT INTO books (
         isbn, title, author, publisher, publish_date, category_id,
-        cover_url, description, price, room, shelf, row, column, number
-      ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        cover_url, description, price, room, shelf, row, column, number,
+        created_at, updated_at
+      ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
     `;
     
-    const result = database.run(sql, [
-      isbn || '',
-      title || '',
-      author || '',
-      publisher || '',
-      publication_date || null,
-      category_id || null,
-      cover_url || '',
-      description || '',
-      price || 0,
-      room || '',
-      shelf || '',
-      row || '',
-      column || '',
-      number || ''
-    ]);
-    
-    res.status(201).json({
-      success: true,
-      message: '图书添加成功',
-      data: { id: (result as any).lastInsertRowid }
+    const now = sqlTimestamp();
+    // 幂等键和新图书在同一个事务中提交
+    const response = database.transaction(() => {
+      const result = database.run(sql, [
+        isbn || '',
+        title || '',
+        author || '',
+        publisher || '',
+        publication_date || null,
+        category_id || null,
+        cover_url || '',
+        description || '',
+        price || 0,
+        room || '',
+        shelf || '',
+        row || '',
+        column || '',
+        number || '',
+        now,
+        now
+      ]);
+      const body = {
+        success: true,
+        message: '图书添加成功',
+        data: { id: result.lastInsertRowid }
+      };
+      saveIdempotentResponse(res, 201, body);
+      return body;
     });
+    
+    res.status(201).json(response);
   } catch (error) {
     console.error('添加图书失败:', error);
     res.status(500).json({ success: false, message: '添加图书失败' });
@@ -247,7 +409,7 @@ router.put('/:id', async (req, res) => {
         title = ?, author = ?, publisher = ?, publish_date = ?,
         category_id = ?, cover_url = ?, description = ?, price = ?,
         room = ?, shelf = ?, row = ?, column = ?, number = ?,
-        status = ?, updated_at = CURRENT_TIMESTAMP
+        status = ?, updated_at = ?
       WHERE id = ?
     `;
     
@@ -266,6 +428,7 @@ router.put('/:id', async (req, res) => {
       column || '',
       number || '',
       status || 'available',
+      sqlTimestamp(),
       id
     ]);
     
@@ -320,69 +483,76 @@ router.post('/batch', async (req, res) => {
     const results = [];
     const errors = [];
     
-    for (let i = 0; i < books.length; i++) {
-      const book = books[i];
-      try {
-        const {
-          isbn,
-          title,
-          author,
-          publisher,
-          publication_date,
-          category_id,
-          cover_url,
-          description,
-          price,
-          room,
-          shelf,
-          row,
-          column,
-          number
-        } = book;
-        
-        // 验证必填字段
-        if (!isbn || !title || !author) {
-          errors.push({ index: i, isbn, error: '请填写必填字段：ISBN、书名、作者' });
-          continue;
-        }
-        
-        // 检查ISBN是否已存在
-        const existingBook = database.query('SELECT id FROM books WHERE isbn = ?', [isbn]);
-        if (existingBook && Object.keys(existingBook).length > 0) {
-          errors.push({ index: i, isbn, error: 'ISBN已存在' });
-          continue;
+    // 整批插入放在一个事务中，只产生一次持久化
+    database.transaction(() => {
+      for (let i = 0; i < books.length; i++) {
+        const book = books[i];
+        try {
+          const {
+            isbn,
+            title,
+            author,
+            publisher,
+            publication_date,
+            category_id,
+            cover_url,
+            description,
+            price,
+            room,
+            shelf,
+            row,
+            column,
+            number
+          } = book;
+          
+          // 验证必填字段
+          if (!isbn || !title || !author) {
+            errors.push({ index: i, isbn, error: '请填写必填字段：ISBN、书名、作者' });
+            continue;
+          }
+          
+          // 检查ISBN是否已存在
+          const existingBook = database.query('SELECT id FROM books WHERE isbn = ?', [isbn]);
+          if (existingBook && Object.keys(existingBook).length > 0) {
+            errors.push({ index: i, isbn, error: 'ISBN已存在' });
+            continue;
+          }
+          
+          const sql = `
+            INSERT INTO books (
+              isbn, title, author, publisher, publish_date, category_id,
+              cover_url, description, price, room, shelf, row, column, number,
+              created_at, updated_at
+            ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+          `;
+          
+          const now = sqlTimestamp();
+          const result = database.run(sql, [
+            isbn || '',
+            title || '',
+            author || '',
+            publisher || '',
+            publication_date || null,
+            category_id || null,
+            cover_url || '',
+            description || '',
+            price || 0,
+            room || '',
+            shelf || '',
+            row || '',
+            column || '',
+            number || '',
+            now,
+            now
+          ]);
+          
+          results.push({ index: i, isbn, id: result.lastInsertRowid });
+        } catch (error) {
+          console.error(`批量添加图书失败 (索引 ${i}):`, error);
+          errors.push({ index: i, isbn: book.isbn, error: '添加失败' });
         }
-        
-        const sql = `
-          INSERT INTO books (
-            isbn, title, author, publisher, publish_date, category_id,
-            cover_url, description, price, room, shelf, row, column, number
-          ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-        `;
-        
-        const result = database.run(sql, [
-          isbn || '',
-          title || '',
-          author || '',
-          publisher || '',
-          publication_date || null,
-          category_id || null,
-          cover_url || '',
-          description || '',
-          price || 0,
-          room || '',
-          shelf || '',
-          row || '',
-          column || '',
-          number || ''
-        ]);
-        
-        results.push({ index: i, isbn, id: (result as any).lastInsertRowid });
-      } catch (error) {
-        console.error(`批量添加图书失败 (索引 ${i}):`, error);
-        errors.push({ index: i, isbn: book.isbn, error: '添加失败' });
       }
-    }
+    });
     
     res.json({
       success: true,
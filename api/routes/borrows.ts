@@ -1,16 +1,40 @@
 import express from 'express';
-import database from '../database/database.js';
+import database, { sqlTimestamp } from '../database/database.js';
+import { idempotency, saveIdempotentResponse } from '../middleware/idempotency.js';
+import { tableETag } from '../middleware/etag.js';
+import { projectFields, invalidFieldsMessage, BORROW_FIELDS, BOOK_FIELDS } from '../utils/fields.js';
 
 const router = express.Router();
 
+// 取出借阅记录引用的图书，按ID组成字典；同一本书只出现一次
+function loadBookMap(borrows: Record<string, unknown>[], columns: string) {
+  const ids = [...new Set(borrows.map(borrow => Number(borrow.book_id)))];
+  if (ids.length === 0) return {};
+  const books = database.queryAll(
+    `SELECT ${columns} FROM books b LEFT JOIN categories c ON b.category_id = c.id
+     WHERE b.id IN (SELECT value FROM json_each(?))`,
+    [JSON.stringify(ids)]
+  );
+  return Object.fromEntries(books.map(book => [String(book.id), book]));
+}
+
 // 获取借阅记录列表
-router.get('/', async (req, res) => {
+// include=books 时借阅记录只带 book_id，引用的图书去重后放在 books 字典中，book_fields 可以指定图书的列
+router.get('/', tableETag('borrows', 'books', 'categories'), async (req, res) => {
   try {
-    const { page = 1, limit = 20, status = '', borrower = '' } = req.query;
+    const { page = 1, limit = 20, status = '', borrower = '', fields, include = '', book_fields } = req.query;
     const offset = (Number(page) - 1) * Number(limit);
+    const normalized = include === 'books';
+    const projection = projectFields(fields, BORROW_FIELDS, normalized ? ['id', 'book_id'] : ['id']);
+    const bookProjection = projectFields(book_fields, BOOK_FIELDS);
+    const invalid = [...projection.invalid, ...bookProjection.invalid];
+    if (invalid.length > 0) {
+      return res.status(400).json({ success: false, message: invalidFieldsMessage(invalid) });
+    }
+    const defaultColumns = normalized ? 'br.*' : 'br.*, b.title, b.author, b.isbn, b.cover_url';
     
     let sql = `
-      SELECT br.*, b.title, b.author, b.isbn, b.cover_url
+      SELECT ${projection.select ?? defaultColumns}
       FROM borrows br
       LEFT JOIN books b ON br.book_id = b.id
       WHERE 1=1
@@ -52,6 +76,7 @@ router.get('/', async (req, res) => {
       success: true,
       data: {
         borrows,
+        books: normalized ? loadBookMap(borrows, bookProjection.select ?? 'b.*, c.name as category_name') : undefined,
         total: countResult.total,
         page: Number(page),
         limit: Number(limit)
@@ -64,7 +89,7 @@ router.get('/', async (req, res) => {
 });
 
 // 借阅图书
-router.post('/', async (req, res) => {
+router.post('/', idempotency, async (req, res) => {
   try {
     const { bookId, borrower, dueDate, contact, notes } = req.body;
     
@@ -94,34 +119,55 @@ router.post('/', async (req, res) => {
       calculatedDueDate = due.toISOString().split('T')[0];
     }
     
-    // 创建借阅记录
+    // 创建借阅记录并更新图书状态，两步放在同一个事务中
     const borrowSql = `
-      INSERT INTO borrows (book_id, borrower, due_date, contact, notes)
-      VALUES (?, ?, ?, ?, ?)
+      INSERT INTO borrows (book_id, borrower, due_date, contact, notes, borrow_date, created_at)
+      VALUES (?, ?, ?, ?, ?, ?, ?)
     `;
-    
-    database.run(borrowSql, [bookId, borrower, calculatedDueDate, contact || '', notes || '']);
-    
-    // 更新图书状态
-    database.run('UPDATE books SET status = "borrowed" WHERE id = ?', [bookId]);
-    
-    res.json({
-      success: true,
-      message: '借阅成功',
-      data: {
-        bookId,
-        borrower,
-        dueDate: calculatedDueDate
+    // 时间显式绑定而不用列默认值，日志重放时保持原来的借出时间
+    const now = sqlTimestamp();
+    
+    // 幂等键和借阅记录在同一个事务中提交
+    const response = database.transaction(() => {
+      // 带状态条件更新，避免同一本书被重复借出
+      const updated = database.run(
+        'UPDATE books SET status = "borrowed" WHERE id = ? AND status = "available"',
+        [bookId]
+      );
+      if (updated.changes === 0) {
+        return null;
       }
+      
+      const borrowId = database.run(borrowSql, [bookId, borrower, calculatedDueDate, contact || '', notes || '', now, now]).lastInsertRowid;
+      const body = {
+        success: true,
+        message: '借阅成功',
+        data: {
+          id: borrowId,
+          bookId,
+          borrower,
+          dueDate: calculatedDueDate
+        }
+      };
+      saveIdempotentResponse(res, 200, body);
+      return body;
     });
+    
+    if (response === null) {
+      return res.status(400).json({ success: false, message: '图书当前不可借阅' });
+    }
+    
+    res.json(response);
   } catch (error) {
     console.error('借阅图书失败:', error);
     res.status(500).json({ success: false, message: '借阅图书失败' });
   }
 });
 
+const RETURNED_RESPONSE = { success: true, message: '归还成功' };
+
 // 归还图书
-router.put('/:id/return', async (req, res) => {
+router.put('/:id/return', idempotency, async (req, res) => {
   try {
     const { id } = req.params;
     
@@ -139,16 +185,26 @@ router.put('/:id/return', async (req, res) => {
       return res.status(400).json({ success: false, message: '图书已归还' });
     }
     
-    // 更新借阅记录
-    database.run(
-      'UPDATE borrows SET status = "returned", return_date = CURRENT_TIMESTAMP WHERE id = ?',
-      [id]
-    );
+    // 更新借阅记录和图书状态，连同幂等键放在同一个事务中
+    const returned = database.transaction(() => {
+      const updated = database.run(
+        'UPDATE borrows SET status = "returned", return_date = ? WHERE id = ? AND status != "returned"',
+        [sqlTimestamp(), id]
+      );
+      if (updated.changes === 0) {
+        return false;
+      }
+      
+      database.run('UPDATE books SET status = "available" WHERE id = ?', [(borrow as any).book_id]);
+      saveIdempotentResponse(res, 200, RETURNED_RESPONSE);
+      return true;
+    });
     
-    // 更新图书状态
-    database.run('UPDATE books SET status = "available" WHERE id = ?', [(borrow as any).book_id]);
+    if (!returned) {
+      return res.status(400).json({ success: false, message: '图书已归还' });
+    }
     
-    res.json({ success: true, message: '归还成功' });
+    res.json(RETURNED_RESPONSE);
   } catch (error) {
     console.error('归还图书失败:', error);
     res.status(500).json({ success: false, message: '归还图书失败' });
@@ -196,7 +252,7 @@ router.get('/statistics', async (req, res) => {
 });
 
 // 获取指定图书的借阅记录
-router.get('/book/:bookId', async (req, res) => {
+router.get('/book/:bookId', tableETag('borrows', 'books'), async (req, res) => {
   try {
     const { bookId } = req.params;
     
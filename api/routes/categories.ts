@@ -1,10 +1,11 @@
 import express from 'express';
-import database from '../database/database.js';
+import database, { sqlTimestamp } from '../database/database.js';
+import { tableETag } from '../middleware/etag.js';
 
 const router = express.Router();
 
 // 获取所有分类
-router.get('/', async (req, res) => {
+router.get('/', tableETag('categories'), async (req, res) => {
   try {
     const { tree = false } = req.query;
     
@@ -60,7 +61,7 @@ router.get('/', async (req, res) => {
 });
 
 // 根据ID获取分类详情
-router.get('/:id', async (req, res) => {
+router.get('/:id', tableETag('categories', 'books'), async (req, res) => {
   try {
     const { id } = req.params;
     
@@ -128,11 +129,11 @@ router.post('/', async (req, res) => {
     }
     
     const sql = `
-      INSERT INTO categories (name, code, parent_id, level)
-      VALUES (?, ?, ?, ?)
+      INSERT INTO categories (name, code, parent_id, level, created_at)
+      VALUES (?, ?, ?, ?, ?)
     `;
     
-    const result = database.run(sql, [name, code, parentId || null, level]);
+    const result = database.run(sql, [name, code, parentId || null, level, sqlTimestamp()]);
     
     res.status(201).json({
       success: true,
@@ -236,7 +237,7 @@ router.delete('/:id', async (req, res) => {
 });
 
 // 获取分类统计
-router.get('/statistics/overview', async (req, res) => {
+router.get('/statistics/overview', tableETag('categories', 'books'), async (req, res) => {
   try {
     // 获取每个分类的图书数量
     const categoryStats = database.queryAll(`
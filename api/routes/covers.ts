@@ -0,0 +1,350 @@
+import express from 'express';
+import axios from 'axios';
+import crypto from 'crypto';
+import dns from 'dns';
+import fs from 'fs/promises';
+import http from 'http';
+import https from 'https';
+import net from 'net';
+import path from 'path';
+import database from '../database/database.js';
+
+const router = express.Router();
+
+// 缩略图宽度只取这几档，请求的宽度向上取整，避免为每个像素值各存一份
+const WIDTHS = [64, 128, 256, 512];
+const CACHE_DIR = process.env.COVER_CACHE_DIR || path.join(process.cwd(), 'api', 'data', 'covers');
+// 缓存目录的容量上限，超出后按最后访问时间删除最旧的文件，删到上限的 80%
+const CACHE_MAX_BYTES = Number(process.env.COVER_CACHE_MAX_BYTES) || 200 * 1024 * 1024;
+const MAX_COVER_BYTES = 10 * 1024 * 1024;
+const MAX_REDIRECTS = 3;
+// 封面只从 ISBN 数据源的图片域名下载（含子域名）；COVER_ALLOWED_HOSTS 可追加其他域名，逗号分隔
+const DEFAULT_ALLOWED_HOSTS = ['isbn.work'];
+// 地址带版本参数 v 时内容不会再变，缓存一年；否则缓存一天
+const IMMUTABLE_CACHE = 'public, max-age=31536000, immutable';
+const DEFAULT_CACHE = 'public, max-age=86400';
+
+export type CoverFetcher = (url: string) => Promise<Buffer>;
+export type CoverResizer = (data: Buffer, width: number) => Promise<Buffer>;
+
+function allowedHosts() {
+  const extra = (process.env.COVER_ALLOWED_HOSTS || '')
+    .split(',')
+    .map((host) => host.trim().toLowerCase())
+    .filter((host) => host);
+  return [...DEFAULT_ALLOWED_HOSTS, ...extra];
+}
+
+// 只接受 http(s) 地址，且域名在白名单内
+export function isAllowedCoverUrl(url: string) {
+  let parsed: URL;
+  try {
+    parsed = new URL(url);
+  } catch {
+    return false;
+  }
+  if (parsed.protocol !== 'http:' && parsed.protocol !== 'https:') return false;
+  const host = parsed.hostname.toLowerCase();
+  return allowedHosts().some((allowed) => host === allowed || host.endsWith(`.${allowed}`));
+}
+
+// 回环、内网、链路本地、组播等不应从服务器发起访问的地址
+function isPrivateAddress(address: string): boolean {
+  if (net.isIPv4(address)) {
+    const [a, b] = address.split('.').map(Number);
+    return a === 0 || a === 10 || a === 127 || a >= 224
+      || (a === 100 && b >= 64 && b < 128)
+      || (a === 169 && b === 254)
+      || (a === 172 && b >= 16 && b < 32)
+      || (a === 192 && b === 168)
+      || (a === 198 && (b === 18 || b === 19));
+  }
+  const lower = address.toLowerCase();
+  if (lower.startsWith('::ffff:')) {
+    const mapped = lower.slice(7);
+    // 十六进制写法的映射地址一律拒绝
+    return net.isIPv4(mapped) ? isPrivateAddress(mapped) : true;
+  }
+  return lower === '::' || lower === '::1'
+    || lower.startsWith('fc') || lower.startsWith('fd')
+    || /^fe[89ab]/.test(lower) || lower.startsWith('ff');
+}
+
+// 在建立连接时检查解析出的地址，域名在检查之后才改解析到内网（DNS rebinding）也会被拦下
+function publicLookup(hostname: string, options: dns.LookupOptions, callback: (...args: any[]) => void) {
+  dns.lookup(hostname, options, (error, address, family) => {
+    if (error) return callback(error, address, family);
+    const addresses = Array.isArray(address) ? address : [{ address, family }];
+    const blocked = addresses.find((entry) => isPrivateAddress(entry.address));
+    if (blocked) {
+      return callback(new Error(`拒绝访问内网地址 ${blocked.address}`), address, family);
+    }
+    callback(null, address, family);
+  });
+}
+
+const publicHttpAgent = new http.Agent({ lookup: publicLookup });
+const publicHttpsAgent = new https.Agent({ lookup: publicLookup });
+
+// 默认从封面原地址下载，重定向逐跳检查域名白名单和地址，不跟随到内网。
+// 设置 COVER_SOURCE_ORIGIN 后改从该地址下载（如本地替身服务器），路径不变；该地址由部署方指定，不做内网检查
+async function defaultFetcher(url: string): Promise<Buffer> {
+  const origin = process.env.COVER_SOURCE_ORIGIN;
+  let target = origin ? new URL(new URL(url).pathname + new URL(url).search, origin).toString() : url;
+
+  for (let redirects = 0; ; redirects++) {
+    const parsed = new URL(target);
+    if (!origin) {
+      if (!isAllowedCoverUrl(target)) {
+        throw new Error(`封面地址不在允许的来源内: ${parsed.hostname}`);
+      }
+      // 地址直接写成 IP 时连接不经过 lookup，这里单独检查
+      const host = parsed.hostname.replace(/^\[|\]$/g, '');
+      if (net.isIP(host) && isPrivateAddress(host)) {
+        throw new Error(`拒绝访问内网地址 ${host}`);
+      }
+    }
+
+    const response = await axios.get<ArrayBuffer>(target, {
+      responseType: 'arraybuffer',
+      timeout: 10000,
+      maxContentLength: MAX_COVER_BYTES,
+      maxRedirects: 0,
+      httpAgent: origin ? undefined : publicHttpAgent,
+      httpsAgent: origin ? undefined : publicHttpsAgent,
+      validateStatus: (status) => status >= 200 && status < 400,
+      headers: {
+        'User-Agent': 'Library Management System'
+      }
+    });
+
+    if (response.status >= 300) {
+      const location = response.headers.location;
+      if (!location || redirects >= MAX_REDIRECTS) {
+        throw new Error(`封面地址重定向无效: ${target}`);
+      }
+      target = new URL(String(location), target).toString();
+      continue;
+    }
+
+    const contentType = String(response.headers['content-type'] ?? '');
+    if (!/^image\//i.test(contentType)) {
+      throw new Error(`封面地址返回的不是图片: ${contentType || '未知类型'}`);
+    }
+    return Buffer.from(response.data);
+  }
+}
+
+let fetcher: CoverFetcher = defaultFetcher;
+
+/**
+ * 替换下载封面原图的方式，测试时可以返回本地数据；传 null 恢复默认。
+ */
+export function setCoverFetcher(next: CoverFetcher | null) {
+  fetcher = next ?? defaultFetcher;
+}
+
+// 同一张原图同时只下载一次
+const pendingOriginals = new Map<string, Promise<Buffer>>();
+
+function hashUrl(url: string) {
+  return crypto.createHash('sha1').update(url).digest('hex');
+}
+
+// 缓存目录当前的总大小，null 表示还没统计过
+let cacheBytes: number | null = null;
+let trimming: Promise<void> | null = null;
+
+async function listCacheFiles() {
+  const files: { file: string; size: number; mtimeMs: number }[] = [];
+  for (const dir of await fs.readdir(CACHE_DIR).catch(() => [] as string[])) {
+    const dirPath = path.join(CACHE_DIR, dir);
+    for (const name of await fs.readdir(dirPath).catch(() => [] as string[])) {
+      if (name.endsWith('.tmp')) continue;
+      const file = path.join(dirPath, name);
+      const stat = await fs.stat(file).catch(() => null);
+      if (stat?.isFile()) {
+        files.push({ file, size: stat.size, mtimeMs: stat.mtimeMs });
+      }
+    }
+  }
+  return files;
+}
+
+async function trimCache() {
+  const files = await listCacheFiles();
+  let total = files.reduce((sum, entry) => sum + entry.size, 0);
+  if (total > CACHE_MAX_BYTES) {
+    files.sort((a, b) => a.mtimeMs - b.mtimeMs);
+    const target = CACHE_MAX_BYTES * 0.8;
+    for (const entry of files) {
+      if (total <= target) break;
+      await fs.unlink(entry.file).catch(() => {});
+      total -= entry.size;
+    }
+  }
+  cacheBytes = total;
+}
+
+function noteCacheWrite(bytes: number) {
+  if (cacheBytes !== null) {
+    cacheBytes += bytes;
+  }
+  if ((cacheBytes === null || cacheBytes > CACHE_MAX_BYTES) && !trimming) {
+    trimming = trimCache()
+      .catch((error) => console.error('清理封面缓存失败:', error))
+      .finally(() => {
+        trimming = null;
+      });
+  }
+}
+
+async function readCached(file: string) {
+  try {
+    const data = await fs.readFile(file);
+    // 命中时刷新修改时间，清理缓存时按它判断最近是否用过
+    const now = new Date();
+    fs.utimes(file, now, now).catch(() => {});
+    return data;
+  } catch {
+    return null;
+  }
+}
+
+async function writeCached(file: string, data: Buffer) {
+  await fs.mkdir(path.dirname(file), { recursive: true });
+  // 先写临时文件再改名，并发请求不会读到半个文件
+  const tmp = `${file}.${process.pid}.${Date.now()}.tmp`;
+  await fs.writeFile(tmp, data);
+  await fs.rename(tmp, file);
+  noteCacheWrite(data.length);
+}
+
+async function loadOriginal(url: string, hash: string): Promise<Buffer> {
+  const file = path.join(CACHE_DIR, 'original', hash);
+  const cached = await readCached(file);
+  if (cached && imageType(cached)) return cached;
+
+  let pending = pendingOriginals.get(hash);
+  if (!pending) {
+    pending = fetcher(url)
+      .then(async (data) => {
+        // 不是可识别的图片格式就不缓存也不返回
+        if (!imageType(data)) {
+          throw new Error(`封面内容不是可识别的图片: ${url}`);
+        }
+        await writeCached(file, data);
+        return data;
+      })
+      .finally(() => pendingOriginals.delete(hash));
+    pendingOriginals.set(hash, pending);
+  }
+  return pending;
+}
+
+// sharp 是可选依赖（npm install sharp），模块名放在变量里，没装时类型检查和启动都不受影响
+const SHARP_MODULE = 'sharp';
+let resizer: Promise<CoverResizer | null> | null = null;
+
+// 没装 sharp 时返回 null，缩略图请求按原图返回
+function loadResizer(): Promise<CoverResizer | null> {
+  if (!resizer) {
+    resizer = import(SHARP_MODULE)
+      .then((mod) => {
+        const sharp = mod.default ?? mod;
+        const resize: CoverResizer = (data, width) =>
+          sharp(data).resize({ width, withoutEnlargement: true }).jpeg({ quality: 80 }).toBuffer();
+        return resize;
+      })
+      .catch(() => {
+        console.warn('未安装 sharp，封面缩略图按原图返回');
+        return null;
+      });
+  }
+  return resizer;
+}
+
+/**
+ * 替换缩放封面的方式，测试时不依赖 sharp；传 null 恢复默认（按需加载 sharp）。
+ */
+export function setCoverResizer(next: CoverResizer | null) {
+  resizer = next ? Promise.resolve(next) : null;
+}
+
+async function loadVariant(url: string, hash: string, width: number | null, resize: CoverResizer | null): Promise<Buffer> {
+  const original = await loadOriginal(url, hash);
+  if (width === null || !resize) return original;
+
+  const file = path.join(CACHE_DIR, `w${width}`, hash);
+  const cached = await readCached(file);
+  if (cached) return cached;
+
+  const resized = await resize(original, width);
+  // 原图本来就比较小时保留原图
+  const result = resized.length < original.length ? resized : original;
+  await writeCached(file, result);
+  return result;
+}
+
+function imageType(data: Buffer): string | null {
+  if (data[0] === 0xff && data[1] === 0xd8) return 'image/jpeg';
+  if (data[0] === 0x89 && data.toString('ascii', 1, 4) === 'PNG') return 'image/png';
+  if (data.toString('ascii', 0, 3) === 'GIF') return 'image/gif';
+  if (data.toString('ascii', 0, 4) === 'RIFF' && data.toString('ascii', 8, 12) === 'WEBP') return 'image/webp';
+  return null;
+}
+
+function parseWidth(value: unknown): number | null | undefined {
+  if (value === undefined || value === '') return null;
+  const width = Number(value);
+  if (!Number.isInteger(width) || width <= 0) return undefined;
+  return WIDTHS.find((bucket) => bucket >= width) ?? WIDTHS[WIDTHS.length - 1];
+}
+
+// 获取图书封面，w 为需要的宽度（像素），不传时返回原图
+router.get('/:bookId', async (req, res) => {
+  try {
+    const width = parseWidth(req.query.w);
+    if (width === undefined) {
+      return res.status(400).json({ success: false, message: 'w 必须是正整数' });
+    }
+
+    const book = database.query('SELECT cover_url FROM books WHERE id = ?', [req.params.bookId]);
+    const url = typeof book?.cover_url === 'string' ? book.cover_url : '';
+    if (!/^https?:\/\//i.test(url)) {
+      return res.status(404).json({ success: false, message: '图书没有封面' });
+    }
+    if (!isAllowedCoverUrl(url)) {
+      return res.status(404).json({ success: false, message: '封面地址不在允许的来源内' });
+    }
+
+    // 不能缩放时返回的就是原图，ETag 也按原图算
+    const resize = width === null ? null : await loadResizer();
+    const variant = resize ? width : null;
+    const hash = hashUrl(url);
+    const etag = `"${hash.slice(0, 16)}-${variant ?? 'o'}"`;
+    res.set('Cache-Control', req.query.v !== undefined ? IMMUTABLE_CACHE : DEFAULT_CACHE);
+    res.set('ETag', etag);
+    if (req.get('If-None-Match') === etag) {
+      return res.status(304).end();
+    }
+
+    let data: Buffer;
+    try {
+      data = await loadVariant(url, hash, variant, resize);
+    } catch (error) {
+      console.error('获取封面失败:', error);
+      res.set('Cache-Control', 'no-store');
+      return res.status(502).json({ success: false, message: '获取封面失败' });
+    }
+
+    // 原图在写入缓存前已校验过，缩放结果是 JPEG
+    res.type(imageType(data) ?? 'image/jpeg');
+    res.send(data);
+  } catch (error) {
+    console.error('获取封面失败:', error);
+    res.status(500).json({ success: false, message: '获取封面失败' });
+  }
+});
+
+export default router;
@@ -1,5 +1,5 @@
 import express from 'express';
-import database from '../database/database.js';
+import database, { sqlTimestamp } from '../database/database.js';
 
 const router = express.Router();
 
@@ -109,11 +109,11 @@ router.put('/:key', async (req, res) => {
     
     const sql = `
       UPDATE settings 
-      SET value = ?, description = COALESCE(?, description), updated_at = datetime('now')
+      SET value = ?, description = COALESCE(?, description), updated_at = ?
       WHERE key = ?
     `;
     
-    database.run(sql, [String(validatedValue), description, key]);
+    database.run(sql, [String(validatedValue), description, sqlTimestamp(), key]);
     
     res.json({ success: true, message: '设置更新成功' });
   } catch (error) {
@@ -201,12 +201,12 @@ router.put('/', async (req, res) => {
     // 执行批量更新
     const sql = `
       UPDATE settings 
-      SET value = ?, updated_at = datetime('now')
+      SET value = ?, updated_at = ?
       WHERE key = ?
     `;
     
     updates.forEach(({ key, value }) => {
-      database.run(sql, [value, key]);
+      database.run(sql, [value, sqlTimestamp(), key]);
     });
     
     res.json({ 
@@ -237,14 +237,14 @@ router.post('/reset', async (req, res) => {
       // 重置指定的设置项
       const sql = `
         UPDATE settings 
-        SET value = ?, updated_at = datetime('now')
+        SET value = ?, updated_at = ?
         WHERE key = ?
       `;
       
       let resetCount = 0;
       keys.forEach(key => {
         if (defaultSettings[key]) {
-          database.run(sql, [defaultSettings[key], key]);
+          database.run(sql, [defaultSettings[key], sqlTimestamp(), key]);
           resetCount++;
         }
       });
@@ -257,12 +257,12 @@ router.post('/reset', async (req, res) => {
       // 重置所有设置项
       const sql = `
         UPDATE settings 
-        SET value = ?, updated_at = datetime('now')
+        SET value = ?, updated_at = ?
         WHERE key = ?
       `;
       
       Object.entries(defaultSettings).forEach(([key, value]) => {
-        database.run(sql, [value, key]);
+        database.run(sql, [value, sqlTimestamp(), key]);
       });
       
       res.json({ 
@@ -0,0 +1,79 @@
+import express from 'express';
+import database, { SYNCED_TABLES, type SyncedTable } from '../database/database.js';
+import { tableETag } from '../middleware/etag.js';
+
+const router = express.Router();
+
+const DEFAULT_LIMIT = 500;
+const MAX_LIMIT = 2000;
+
+// 按 change_log 中的行号取出当前数据，id 列表以 JSON 数组传入，语句文本固定便于缓存
+function fetchRows(table: SyncedTable, ids: number[]) {
+  if (ids.length === 0) return [];
+  return database.queryAll(
+    `SELECT * FROM ${table} WHERE id IN (SELECT value FROM json_each(?))`,
+    [JSON.stringify(ids)]
+  );
+}
+
+function emptyTables<T>(create: () => T) {
+  return Object.fromEntries(SYNCED_TABLES.map(table => [table, create()])) as Record<SyncedTable, T>;
+}
+
+// 获取指定序号之后的增量变更，since=0 时返回全部数据
+router.get('/changes', tableETag('categories', 'books', 'borrows'), async (req, res) => {
+  try {
+    const since = Number(req.query.since ?? 0);
+    if (!Number.isInteger(since) || since < 0) {
+      return res.status(400).json({ success: false, message: '无效的同步序号' });
+    }
+    const limit = Math.min(Math.max(Number(req.query.limit) || DEFAULT_LIMIT, 1), MAX_LIMIT);
+
+    const latest = database.query('SELECT COALESCE(MAX(seq), 0) as seq FROM change_log');
+    if (since > Number(latest.seq)) {
+      // 客户端的序号比服务器还新，说明服务器数据被重置过，客户端需要清空本地数据从头同步
+      return res.json({
+        success: true,
+        data: { ...emptyTables(() => []), deleted: emptyTables(() => []), cursor: 0, hasMore: true, reset: true }
+      });
+    }
+
+    // 多取一条用来判断是否还有下一批
+    const changes = database.queryAll(
+      'SELECT seq, table_name, row_id, op FROM change_log WHERE seq > ? ORDER BY seq LIMIT ?',
+      [since, limit + 1]
+    );
+    const hasMore = changes.length > limit;
+    if (hasMore) {
+      changes.pop();
+    }
+
+    const upserted = emptyTables<number[]>(() => []);
+    const deleted = emptyTables<number[]>(() => []);
+    for (const change of changes) {
+      const target = change.op === 'delete' ? deleted : upserted;
+      target[change.table_name as SyncedTable]?.push(Number(change.row_id));
+    }
+
+    const rows = emptyTables<unknown[]>(() => []);
+    for (const table of SYNCED_TABLES) {
+      rows[table] = fetchRows(table, upserted[table]);
+    }
+
+    res.json({
+      success: true,
+      data: {
+        ...rows,
+        deleted,
+        cursor: changes.length > 0 ? Number(changes[changes.length - 1].seq) : since,
+        hasMore,
+        reset: false
+      }
+    });
+  } catch (error) {
+    console.error('获取同步数据失败:', error);
+    res.status(500).json({ success: false, message: '获取同步数据失败' });
+  }
+});
+
+export default router;
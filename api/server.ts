@@ -2,6 +2,7 @@
  * local server entry file, for local development
  */
 import app from './app.js';
+import database from './database/database.js';
 
 /**
  * start server with port
@@ -19,6 +20,8 @@ process.on('SIGTERM', () => {
   console.log('SIGTERM signal received');
   server.close(() => {
     console.log('Server closed');
+    // 退出前把待写的日志和快照落盘
+    database.close();
     process.exit(0);
   });
 });
@@ -27,6 +30,8 @@ process.on('SIGINT', () => {
   console.log('SIGINT signal received');
   server.close(() => {
     console.log('Server closed');
+    // 退出前把待写的日志和快照落盘
+    database.close();
     process.exit(0);
   });
 });
@@ -0,0 +1,142 @@
+import { test, before, after, beforeEach } from 'node:test';
+import assert from 'node:assert/strict';
+import express from 'express';
+import fs from 'fs';
+import os from 'os';
+import path from 'path';
+import type { AddressInfo } from 'net';
+import type { Server } from 'http';
+
+// 数据库和封面缓存目录都在导入时读取环境变量，先指向临时目录
+const dataDir = fs.mkdtempSync(path.join(os.tmpdir(), 'library-covers-test-'));
+process.env.DB_PATH = path.join(dataDir, 'library.db');
+process.env.COVER_CACHE_DIR = path.join(dataDir, 'covers');
+const { default: database } = await import('../database/database.js');
+const { default: coversRoutes, setCoverFetcher, setCoverResizer } = await import('../routes/covers.js');
+
+// PNG 文件头加填充，缩放结果是比它小的 JPEG
+const ORIGINAL = Buffer.concat([Buffer.from([0x89, 0x50, 0x4e, 0x47, 0x0d, 0x0a, 0x1a, 0x0a]), Buffer.alloc(512, 1)]);
+const RESIZED = Buffer.concat([Buffer.from([0xff, 0xd8]), Buffer.alloc(64, 2)]);
+
+let server: Server;
+let baseUrl: string;
+let fetched: string[];
+let resizedWidths: number[];
+
+function insertBook(isbn: string, coverUrl: string | null) {
+  return database.run('INSERT INTO books (isbn, title, author, cover_url) VALUES (?, ?, ?, ?)', [
+    isbn,
+    `封面测试 ${isbn}`,
+    '测试作者',
+    coverUrl
+  ]).lastInsertRowid;
+}
+
+before(async () => {
+  await database.init();
+  const app = express();
+  app.use('/api/covers', coversRoutes);
+  server = app.listen(0);
+  await new Promise((resolve) => server.once('listening', resolve));
+  baseUrl = `http://127.0.0.1:${(server.address() as AddressInfo).port}/api/covers`;
+});
+
+after(async () => {
+  setCoverFetcher(null);
+  setCoverResizer(null);
+  await new Promise((resolve) => server.close(resolve));
+  database.close();
+  fs.rmSync(dataDir, { recursive: true, force: true });
+});
+
+beforeEach(() => {
+  fetched = [];
+  resizedWidths = [];
+  setCoverFetcher(async (url) => {
+    fetched.push(url);
+    return ORIGINAL;
+  });
+  setCoverResizer(async (_data, width) => {
+    resizedWidths.push(width);
+    return RESIZED;
+  });
+});
+
+test('原图只下载一次，之后从磁盘缓存返回', async () => {
+  const id = insertBook('COVER-1', 'https://img.isbn.work/1.png');
+
+  const first = await fetch(`${baseUrl}/${id}`);
+  assert.equal(first.status, 200);
+  assert.equal(first.headers.get('content-type'), 'image/png');
+  assert.equal(first.headers.get('cache-control'), 'public, max-age=86400');
+  assert.deepEqual(Buffer.from(await first.arrayBuffer()), ORIGINAL);
+
+  const second = await fetch(`${baseUrl}/${id}?v=1`);
+  assert.equal(second.status, 200);
+  assert.equal(second.headers.get('cache-control'), 'public, max-age=31536000, immutable');
+  assert.deepEqual(Buffer.from(await second.arrayBuffer()), ORIGINAL);
+  assert.deepEqual(fetched, ['https://img.isbn.work/1.png']);
+});
+
+test('If-None-Match 命中时返回 304，不下载', async () => {
+  const id = insertBook('COVER-2', 'https://img.isbn.work/2.png');
+  const etag = (await fetch(`${baseUrl}/${id}`)).headers.get('etag');
+  assert.ok(etag);
+  fetched = [];
+
+  const response = await fetch(`${baseUrl}/${id}`, { headers: { 'If-None-Match': etag } });
+  assert.equal(response.status, 304);
+  assert.deepEqual(fetched, []);
+});
+
+test('缩略图宽度向上取整到档位，缩放结果缓存', async () => {
+  const id = insertBook('COVER-3', 'https://img.isbn.work/3.png');
+
+  const first = await fetch(`${baseUrl}/${id}?w=100`);
+  assert.equal(first.status, 200);
+  assert.equal(first.headers.get('content-type'), 'image/jpeg');
+  assert.match(first.headers.get('etag') ?? '', /-128"$/);
+  assert.deepEqual(Buffer.from(await first.arrayBuffer()), RESIZED);
+
+  const second = await fetch(`${baseUrl}/${id}?w=128`);
+  assert.deepEqual(Buffer.from(await second.arrayBuffer()), RESIZED);
+  assert.deepEqual(resizedWidths, [128]);
+  assert.equal(fetched.length, 1);
+});
+
+test('宽度不是正整数时返回 400', async () => {
+  const id = insertBook('COVER-4', 'https://img.isbn.work/4.png');
+  const response = await fetch(`${baseUrl}/${id}?w=abc`);
+  assert.equal(response.status, 400);
+  assert.equal((await response.json()).success, false);
+});
+
+test('没有封面或封面不在允许的来源时返回 404，不下载', async () => {
+  const none = insertBook('COVER-5', null);
+  const other = insertBook('COVER-6', 'https://example.com/6.png');
+
+  assert.equal((await fetch(`${baseUrl}/${none}`)).status, 404);
+  assert.equal((await fetch(`${baseUrl}/${other}`)).status, 404);
+  assert.equal((await fetch(`${baseUrl}/999999`)).status, 404);
+  assert.deepEqual(fetched, []);
+});
+
+test('下载失败或内容不是图片时返回 502 且不缓存', async () => {
+  const failing = insertBook('COVER-7', 'https://img.isbn.work/7.png');
+  const html = insertBook('COVER-8', 'https://img.isbn.work/8.png');
+  setCoverFetcher(async (url) => {
+    fetched.push(url);
+    if (url.endsWith('7.png')) throw new Error('网络错误');
+    return Buffer.from('<html></html>');
+  });
+
+  for (const id of [failing, html]) {
+    const response = await fetch(`${baseUrl}/${id}`);
+    assert.equal(response.status, 502);
+    assert.equal(response.headers.get('cache-control'), 'no-store');
+  }
+
+  // 失败的结果没有写入缓存，下次请求重新下载
+  await fetch(`${baseUrl}/${failing}`);
+  assert.equal(fetched.length, 3);
+});
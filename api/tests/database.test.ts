@@ -0,0 +1,73 @@
+import { test, before, after } from 'node:test';
+import assert from 'node:assert/strict';
+import fs from 'fs';
+import os from 'os';
+import path from 'path';
+
+// 数据库单例在导入时读取 DB_PATH，先指向临时目录
+const dataDir = fs.mkdtempSync(path.join(os.tmpdir(), 'library-db-test-'));
+process.env.DB_PATH = path.join(dataDir, 'library.db');
+const { default: database } = await import('../database/database.js');
+
+const WRITES = 20;
+
+function insertCategory(code: string) {
+  database.run('INSERT INTO categories (name, code, level) VALUES (?, ?, 1)', [`测试分类 ${code}`, code]);
+}
+
+before(async () => {
+  await database.init();
+});
+
+after(() => {
+  database.close();
+  fs.rmSync(dataDir, { recursive: true, force: true });
+});
+
+test('同一轮事件循环里的多次写入只 fdatasync 一次', async () => {
+  const start = database.getJournalStats();
+  for (let i = 0; i < WRITES; i++) {
+    insertCategory(`GROUP-${i}`);
+  }
+  // 写入返回时还没有落盘，等组提交完成
+  assert.equal(database.getJournalStats().pending, WRITES);
+  await database.whenDurable();
+
+  const end = database.getJournalStats();
+  assert.equal(end.appends - start.appends, WRITES);
+  assert.equal(end.syncs - start.syncs, 1);
+  assert.equal(end.pending, 0);
+});
+
+test('落盘之后的写入归入下一组', async () => {
+  const start = database.getJournalStats();
+  insertCategory('NEXT-1');
+  await database.whenDurable();
+  insertCategory('NEXT-2');
+  insertCategory('NEXT-3');
+  await database.whenDurable();
+
+  assert.equal(database.getJournalStats().syncs - start.syncs, 2);
+});
+
+test('事务整批作为一条日志记录落盘', async () => {
+  const start = database.getJournalStats();
+  database.transaction(() => {
+    insertCategory('TX-1');
+    insertCategory('TX-2');
+  });
+  await database.whenDurable();
+
+  const end = database.getJournalStats();
+  assert.equal(end.appends - start.appends, 1);
+  assert.equal(end.syncs - start.syncs, 1);
+  const journal = fs.readFileSync(`${process.env.DB_PATH}.journal`, 'utf8');
+  assert.match(journal, /TX-2/);
+});
+
+test('没有待落盘的写入时 whenDurable 立即完成', async () => {
+  await database.whenDurable();
+  const start = database.getJournalStats();
+  await database.whenDurable();
+  assert.equal(database.getJournalStats().syncs, start.syncs);
+});
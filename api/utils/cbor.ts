@@ -0,0 +1,143 @@
+/**
+ * 最小的 CBOR（RFC 8949）编码器，只覆盖 JSON 能表示的值，编码规则与 JSON.stringify 一致：
+ * 对象中值为 undefined 或函数的键省略，数组中的 undefined 编码为 null，Date 等带 toJSON 的对象先调用 toJSON。
+ * 整数按最短长度编码，其他数字编码为 float64；只输出定长数组和映射。
+ */
+class CborWriter {
+  private buffer = Buffer.allocUnsafe(1024);
+  private length = 0;
+
+  private ensure(size: number) {
+    if (this.length + size <= this.buffer.length) return;
+    let capacity = this.buffer.length * 2;
+    while (capacity < this.length + size) capacity *= 2;
+    const grown = Buffer.allocUnsafe(capacity);
+    this.buffer.copy(grown, 0, 0, this.length);
+    this.buffer = grown;
+  }
+
+  // 写入类型头：major 为主类型，argument 为长度或整数值
+  head(major: number, argument: number) {
+    const type = major << 5;
+    if (argument < 24) {
+      this.ensure(1);
+      this.buffer[this.length++] = type | argument;
+    } else if (argument < 0x100) {
+      this.ensure(2);
+      this.buffer[this.length++] = type | 24;
+      this.buffer[this.length++] = argument;
+    } else if (argument < 0x10000) {
+      this.ensure(3);
+      this.buffer[this.length++] = type | 25;
+      this.buffer.writeUInt16BE(argument, this.length);
+      this.length += 2;
+    } else if (argument < 0x100000000) {
+      this.ensure(5);
+      this.buffer[this.length++] = type | 26;
+      this.buffer.writeUInt32BE(argument, this.length);
+      this.length += 4;
+    } else {
+      this.ensure(9);
+      this.buffer[this.length++] = type | 27;
+      this.buffer.writeBigUInt64BE(BigInt(argument), this.length);
+      this.length += 8;
+    }
+  }
+
+  byte(value: number) {
+    this.ensure(1);
+    this.buffer[this.length++] = value;
+  }
+
+  float64(value: number) {
+    this.ensure(9);
+    this.buffer[this.length++] = 0xfb;
+    this.buffer.writeDoubleBE(value, this.length);
+    this.length += 8;
+  }
+
+  bytes(data: Uint8Array) {
+    this.ensure(data.length);
+    this.buffer.set(data, this.length);
+    this.length += data.length;
+  }
+
+  string(value: string) {
+    const size = Buffer.byteLength(value, 'utf8');
+    this.head(3, size);
+    this.ensure(size);
+    this.buffer.write(value, this.length, size, 'utf8');
+    this.length += size;
+  }
+
+  result() {
+    return this.buffer.subarray(0, this.length);
+  }
+}
+
+function isOmitted(value: unknown) {
+  return value === undefined || typeof value === 'function' || typeof value === 'symbol';
+}
+
+function writeValue(writer: CborWriter, value: unknown): void {
+  if (value === null || isOmitted(value)) {
+    writer.byte(0xf6);
+    return;
+  }
+  switch (typeof value) {
+    case 'boolean':
+      writer.byte(value ? 0xf5 : 0xf4);
+      return;
+    case 'number':
+      if (Number.isSafeInteger(value)) {
+        if (value >= 0) {
+          writer.head(0, value);
+        } else {
+          writer.head(1, -1 - value);
+        }
+      } else if (Number.isFinite(value)) {
+        writer.float64(value);
+      } else {
+        // 与 JSON.stringify 一样，NaN 和 Infinity 编码为 null
+        writer.byte(0xf6);
+      }
+      return;
+    case 'bigint':
+      writeValue(writer, Number(value));
+      return;
+    case 'string':
+      writer.string(value);
+      return;
+  }
+
+  if (value instanceof Uint8Array) {
+    writer.head(2, value.length);
+    writer.bytes(value);
+    return;
+  }
+  const withToJSON = value as { toJSON?: () => unknown };
+  if (typeof withToJSON.toJSON === 'function') {
+    writeValue(writer, withToJSON.toJSON());
+    return;
+  }
+  if (Array.isArray(value)) {
+    writer.head(4, value.length);
+    for (const item of value) {
+      writeValue(writer, item);
+    }
+    return;
+  }
+
+  const entries = Object.entries(value as Record<string, unknown>).filter(([, item]) => !isOmitted(item));
+  writer.head(5, entries.length);
+  for (const [key, item] of entries) {
+    writer.string(key);
+    writeValue(writer, item);
+  }
+}
+
+export function encodeCbor(value: unknown): Buffer {
+  const writer = new CborWriter();
+  writeValue(writer, value);
+  return writer.result();
+}
@@ -0,0 +1,68 @@
+/**
+ * 稀疏字段集：列表接口通过 ?fields=a,b,c 只取需要的列。
+ * 白名单把字段名映射到 SQL 表达式，不在白名单中的字段名不会拼进 SQL。
+ */
+export type FieldWhitelist = Record<string, string>;
+
+export interface Projection {
+  // 为 null 表示没有传 fields，按接口原来的列返回
+  select: string | null;
+  invalid: string[];
+}
+
+// 字段名里有 row、column 这类关键字，别名统一加引号
+export function projectFields(value: unknown, whitelist: FieldWhitelist, always: string[] = ['id']): Projection {
+  if (typeof value !== 'string' || value.trim() === '') {
+    return { select: null, invalid: [] };
+  }
+
+  const names = value.split(',').map(name => name.trim()).filter(Boolean);
+  const invalid = names.filter(name => !Object.prototype.hasOwnProperty.call(whitelist, name));
+  const selected = [...new Set([...always, ...names])].filter(name => !invalid.includes(name));
+  return {
+    select: selected.map(name => `${whitelist[name]} AS "${name}"`).join(', '),
+    invalid
+  };
+}
+
+export function invalidFieldsMessage(invalid: string[]) {
+  return `不支持的字段: ${invalid.join(', ')}`;
+}
+
+export const BOOK_FIELDS: FieldWhitelist = {
+  id: 'b.id',
+  isbn: 'b.isbn',
+  title: 'b.title',
+  author: 'b.author',
+  publisher: 'b.publisher',
+  publish_date: 'b.publish_date',
+  category_id: 'b.category_id',
+  category_name: 'c.name',
+  cover_url: 'b.cover_url',
+  description: 'b.description',
+  price: 'b.price',
+  room: 'b.room',
+  shelf: 'b.shelf',
+  row: 'b."row"',
+  column: 'b."column"',
+  number: 'b.number',
+  status: 'b.status',
+  created_at: 'b.created_at',
+  updated_at: 'b.updated_at'
+};
+
+// 借阅列表 JOIN 了图书表，图书的几列与借阅记录的列平铺在一起
+export const BORROW_FIELDS: FieldWhitelist = {
+  id: 'br.id',
+  book_id: 'br.book_id',
+  borrower: 'br.borrower',
+  borrow_date: 'br.borrow_date',
+  due_date: 'br.due_date',
+  return_date: 'br.return_date',
+  status: 'br.status',
+  created_at: 'br.created_at',
+  title: 'b.title',
+  author: 'b.author',
+  isbn: 'b.isbn',
+  cover_url: 'b.cover_url'
+};